@@ -0,0 +1,38 @@
+package rockets.benchmarks;
+
+import com.google.common.collect.Lists;
+import rockets.dataaccess.DAO;
+import rockets.dataaccess.DataGenerator;
+import rockets.model.Launch;
+import rockets.model.User;
+
+import java.util.List;
+
+/**
+ * A reproducible launch history of a given size, from {@link DataGenerator},
+ * and a set of users: the same size and seed always give the same entities.
+ * Some rockets fly until after today, so that some launches are planned.
+ */
+final class BenchmarkData {
+    private static final long SEED = 5171;
+
+    private final DataGenerator generator;
+    final List<Launch> launches = Lists.newArrayList();
+    final List<User> users = Lists.newArrayList();
+
+    BenchmarkData(int launchCount) {
+        generator = new DataGenerator(SEED, launchCount);
+        for (int i = 0, count = Math.max(100, launchCount / 10); i < count; i++) {
+            users.add(new User("user" + i + "@example.com"));
+        }
+    }
+
+    /**
+     * Saves the history and the users, and collects the saved launches.
+     */
+    void writeTo(DAO dao) {
+        generator.writeTo(dao);
+        dao.createOrUpdateAll(users);
+        launches.addAll(dao.loadAll(Launch.class));
+    }
+}
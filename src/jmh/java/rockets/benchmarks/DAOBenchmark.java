@@ -0,0 +1,118 @@
+package rockets.benchmarks;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import rockets.dataaccess.DAO;
+import rockets.dataaccess.memory.InMemoryDAO;
+import rockets.dataaccess.neo4j.Neo4jDAO;
+import rockets.model.Launch;
+import rockets.model.User;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The DAO hot paths: point loads, loading all launches, upserts of existing
+ * launches and user lookups by email, against an embedded Neo4j store in a
+ * temporary directory, and against {@link InMemoryDAO} as a baseline.
+ *
+ * Filling the embedded store with a million launches takes a while; narrow
+ * the sizes with <code>-p launches=...</code> when that is not what is being
+ * measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class DAOBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int launches;
+
+    @Param({"neo4j", "memory"})
+    public String store;
+
+    private File directory;
+    private DAO dao;
+    private List<Launch> saved;
+    private List<User> users;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if ("neo4j".equals(store)) {
+            directory = Files.createTempDirectory("rockets-benchmark").toFile();
+            dao = new Neo4jDAO(directory.getPath());
+        } else {
+            dao = new InMemoryDAO();
+        }
+        BenchmarkData data = new BenchmarkData(launches);
+        data.writeTo(dao);
+        saved = data.launches;
+        users = data.users;
+        releaseSession();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        dao.close();
+        if (null != directory) {
+            FileUtils.deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Starts each iteration with a fresh session, so that entities loaded in
+     * earlier iterations are not served from its cache. Run on the worker
+     * thread when benchmarking with one thread, the default.
+     */
+    @TearDown(Level.Iteration)
+    public void releaseSession() {
+        if (dao instanceof Neo4jDAO) {
+            ((Neo4jDAO) dao).releaseSession();
+        }
+    }
+
+    @Benchmark
+    public Launch load() {
+        return dao.load(Launch.class, anyLaunch().getId());
+    }
+
+    @Benchmark
+    public Collection<Launch> loadAll() {
+        return dao.loadAll(Launch.class);
+    }
+
+    @Benchmark
+    public Launch createOrUpdate() {
+        Launch launch = anyLaunch();
+        launch.setPrice(1 + ThreadLocalRandom.current().nextInt(200));
+        return dao.createOrUpdate(launch);
+    }
+
+    @Benchmark
+    public User getUserByEmail() {
+        return dao.getUserByEmail(users.get(ThreadLocalRandom.current().nextInt(users.size())).getEmail());
+    }
+
+    private Launch anyLaunch() {
+        return saved.get(ThreadLocalRandom.current().nextInt(saved.size()));
+    }
+}
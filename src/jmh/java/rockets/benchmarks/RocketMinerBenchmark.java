@@ -0,0 +1,119 @@
+package rockets.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import rockets.dataaccess.memory.InMemoryDAO;
+import rockets.mining.RocketMiner;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every {@link RocketMiner} query over an in-memory history, so that the
+ * miner is measured rather than the database, for each way the miner can
+ * answer: scanning loaded launches, scanning them in parallel, or scanning
+ * a columnar snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class RocketMinerBenchmark {
+    private static final int K = 10;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int launches;
+
+    @Param({"scan", "parallel", "snapshot"})
+    public String mode;
+
+    private InMemoryDAO dao;
+    private ForkJoinPool pool;
+    private RocketMiner miner;
+    private int year;
+    private Date from;
+    private Date to;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dao = new InMemoryDAO();
+        new BenchmarkData(launches).writeTo(dao);
+
+        if ("parallel".equals(mode)) {
+            pool = new ForkJoinPool();
+            miner = new RocketMiner(dao, pool);
+        } else {
+            miner = new RocketMiner(dao);
+            if ("snapshot".equals(mode)) {
+                miner.refreshSnapshot();
+            }
+        }
+
+        year = Calendar.getInstance().get(Calendar.YEAR) - 10;
+        from = new GregorianCalendar(year, Calendar.JANUARY, 1).getTime();
+        to = new GregorianCalendar(year + 1, Calendar.JANUARY, 1).getTime();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (null != pool) {
+            pool.shutdown();
+        }
+        dao.close();
+    }
+
+    @Benchmark
+    public List<Rocket> mostLaunchedRockets() {
+        return miner.mostLaunchedRockets(K);
+    }
+
+    @Benchmark
+    public List<String> mostUnreliableLaunchServiceProviders() {
+        return miner.mostUnreliableLaunchServiceProviders(K);
+    }
+
+    @Benchmark
+    public List<Launch> mostRecentLaunches() {
+        return miner.mostRecentLaunches(K);
+    }
+
+    @Benchmark
+    public List<LaunchServiceProvider> busiestLaunchServiceProviderInMonth() {
+        return miner.busiestLaunchServiceProviderInMonth(K, year, 6);
+    }
+
+    @Benchmark
+    public List<Launch> mostExpensiveLaunches() {
+        return miner.mostExpensiveLaunches(K);
+    }
+
+    @Benchmark
+    public List<Rocket> mostNumberOfPlannedLaunch() {
+        return miner.mostNumberOfPlannedLaunch(2);
+    }
+
+    @Benchmark
+    public List<Launch> launchesBetween() {
+        return miner.launchesBetween(from, to);
+    }
+}
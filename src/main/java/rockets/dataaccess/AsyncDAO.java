@@ -0,0 +1,164 @@
+package rockets.dataaccess;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.reactivestreams.Publisher;
+import rockets.model.Entity;
+import rockets.model.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the calls of another {@link DAO} on a dedicated pool of I/O threads,
+ * returning futures, so that independent queries can run concurrently and
+ * be composed without holding on to the calling thread.
+ *
+ * The pool has a fixed number of threads and a bounded queue. When the
+ * queue is full, a call runs on the calling thread instead, which slows
+ * callers down to the pace of the database rather than queueing without
+ * limit. Failures of the underlying call complete the future exceptionally.
+ */
+public class AsyncDAO {
+    private static final int DEFAULT_THREADS = 4;
+    private static final int DEFAULT_QUEUE_CAPACITY = 256;
+    private static final Runnable NOTHING = () -> { };
+
+    private final DAO dao;
+    private final ThreadPoolExecutor executor;
+    private final Runnable afterCall;
+
+    public AsyncDAO(DAO dao) {
+        this(dao, DEFAULT_THREADS, DEFAULT_QUEUE_CAPACITY, NOTHING);
+    }
+
+    /**
+     * @param afterCall run on the I/O thread after every call, e.g. to release
+     *                  that thread's database session.
+     */
+    public AsyncDAO(DAO dao, int threads, int queueCapacity, Runnable afterCall) {
+        if (threads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("threads and queueCapacity must be positive.");
+        }
+        this.dao = dao;
+        this.afterCall = afterCall;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadFactoryBuilder().setNameFormat("dao-io-%d").setDaemon(true).build(),
+                (call, pool) -> {
+                    if (pool.isShutdown()) {
+                        throw new RejectedExecutionException("AsyncDAO is closed.");
+                    }
+                    ((Call<?>) call).complete();
+                });
+    }
+
+    /**
+     * @return the number of calls waiting for an I/O thread.
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public <T extends Entity> CompletableFuture<T> load(Class<T> clazz, Long id) {
+        return submit(() -> dao.load(clazz, id));
+    }
+
+    public <T extends Entity> CompletableFuture<T> load(Class<T> clazz, Long id, int depth) {
+        return submit(() -> dao.load(clazz, id, depth));
+    }
+
+    public <T extends Entity> CompletableFuture<Collection<T>> loadAll(Class<T> clazz) {
+        return submit(() -> dao.loadAll(clazz));
+    }
+
+    public <T extends Entity> CompletableFuture<List<T>> loadPage(Class<T> clazz, int offset, int limit, String sortBy) {
+        return submit(() -> dao.loadPage(clazz, offset, limit, sortBy));
+    }
+
+    public <T extends Entity> CompletableFuture<List<Map<String, Object>>> loadProperties(
+            Class<T> clazz, List<String> properties, int offset, int limit, String sortBy) {
+        return submit(() -> dao.loadProperties(clazz, properties, offset, limit, sortBy));
+    }
+
+    public <T extends Entity> CompletableFuture<Long> count(Class<T> clazz) {
+        return submit(() -> dao.count(clazz));
+    }
+
+    public <T extends Entity> CompletableFuture<T> createOrUpdate(T entity) {
+        return submit(() -> dao.createOrUpdate(entity));
+    }
+
+    public <T extends Entity> CompletableFuture<Collection<T>> createOrUpdateAll(Collection<T> entities) {
+        return submit(() -> dao.createOrUpdateAll(entities));
+    }
+
+    public <T extends Entity> CompletableFuture<Void> delete(T entity) {
+        return submit(() -> {
+            dao.delete(entity);
+            return null;
+        });
+    }
+
+    public CompletableFuture<User> getUserByEmail(String email) {
+        return submit(() -> dao.getUserByEmail(email));
+    }
+
+    /**
+     * Publishes all entities of a class as they are requested, emitting them
+     * on the I/O threads.
+     *
+     * @see EntityPublisher
+     */
+    public <T extends Entity> Publisher<T> publisher(Class<T> clazz) {
+        return new EntityPublisher<>(dao, clazz, task -> submit(Executors.callable(task)));
+    }
+
+    /**
+     * Lets the calls already submitted finish, then closes the underlying DAO.
+     */
+    public void close() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        dao.close();
+    }
+
+    private <R> CompletableFuture<R> submit(Callable<R> callable) {
+        Call<R> call = new Call<>(callable);
+        executor.execute(call);
+        return call.future;
+    }
+
+    private final class Call<R> implements Runnable {
+        private final Callable<R> callable;
+        private final CompletableFuture<R> future = new CompletableFuture<>();
+
+        private Call(Callable<R> callable) {
+            this.callable = callable;
+        }
+
+        @Override
+        public void run() {
+            try {
+                complete();
+            } finally {
+                afterCall.run();
+            }
+        }
+
+        private void complete() {
+            try {
+                future.complete(callable.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package rockets.dataaccess;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import rockets.model.Entity;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+import rockets.model.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A {@link DAO} that caches point loads, email lookups, and collection,
+ * page and count queries of another DAO.
+ *
+ * Each cache is bounded in size (least recently used entries are evicted
+ * first) and entries expire a fixed time after they are loaded. Writes
+ * through this DAO invalidate the written entity, the entities next to it
+ * in the graph, all query results, and for users all email lookups; writes
+ * that bypass it are only seen once entries expire. Streams are not cached.
+ *
+ * Cached entities are not copied: every caller, on any thread, gets the same
+ * instance, which may belong to another thread's session of the DAO behind.
+ * They are read-only. To change an entity, load it from {@link #getDelegate()}
+ * or save a new one with the same natural key.
+ */
+public class CachingDAO implements DAO {
+    private static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+    private static final long DEFAULT_EXPIRY_SECONDS = 60;
+
+    private final DAO dao;
+    private final Cache<List<Object>, Optional<Entity>> entities;
+    private final Cache<String, Optional<User>> usersByEmail;
+    private final Cache<List<Object>, Object> queries;
+
+    public CachingDAO(DAO dao) {
+        this(dao, DEFAULT_MAXIMUM_SIZE, DEFAULT_EXPIRY_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public CachingDAO(DAO dao, long maximumSize, long expireAfterWrite, TimeUnit unit) {
+        this.dao = dao;
+        this.entities = newCache(maximumSize, expireAfterWrite, unit);
+        this.usersByEmail = newCache(maximumSize, expireAfterWrite, unit);
+        this.queries = newCache(maximumSize, expireAfterWrite, unit);
+    }
+
+    private static <K, V> Cache<K, V> newCache(long maximumSize, long expireAfterWrite, TimeUnit unit) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite, unit)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return the DAO whose results are cached.
+     */
+    public DAO getDelegate() {
+        return dao;
+    }
+
+    /**
+     * @return hits, misses and evictions of all caches together.
+     */
+    public CacheStats stats() {
+        return entities.stats().plus(usersByEmail.stats()).plus(queries.stats());
+    }
+
+    public void invalidateAll() {
+        entities.invalidateAll();
+        usersByEmail.invalidateAll();
+        queries.invalidateAll();
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id) {
+        Optional<Entity> entity = get(entities, Arrays.asList(clazz, id), () -> Optional.ofNullable(dao.load(clazz, id)));
+        return clazz.cast(entity.orElse(null));
+    }
+
+    // Loads of other depths hold other parts of the graph, so they are cached as queries
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id, int depth) {
+        Optional<?> entity = (Optional<?>) get(queries, Arrays.asList("load", clazz, id, depth),
+                () -> Optional.ofNullable(dao.load(clazz, id, depth)));
+        return clazz.cast(entity.orElse(null));
+    }
+
+    @Override
+    public <T extends Entity> T createOrUpdate(T entity) {
+        T saved = dao.createOrUpdate(entity);
+        invalidate(saved);
+        return saved;
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities) {
+        Collection<T> saved = dao.createOrUpdateAll(entities);
+        for (T entity : saved) {
+            invalidate(entity);
+        }
+        return saved;
+    }
+
+    @Override
+    public <T extends Entity> void updateProperties(Collection<T> entities) {
+        dao.updateProperties(entities);
+        for (T entity : entities) {
+            invalidate(entity);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        return (Collection<T>) get(queries, Arrays.asList("loadAll", clazz),
+                () -> Collections.unmodifiableCollection(new ArrayList<>(dao.loadAll(clazz))));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz, int depth) {
+        return (Collection<T>) get(queries, Arrays.asList("loadAll", clazz, depth),
+                () -> Collections.unmodifiableCollection(new ArrayList<>(dao.loadAll(clazz, depth))));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Entity> List<T> loadPage(Class<T> clazz, int offset, int limit, String sortBy) {
+        return (List<T>) get(queries, Arrays.asList("loadPage", clazz, offset, limit, sortBy),
+                () -> Collections.unmodifiableList(new ArrayList<>(dao.loadPage(clazz, offset, limit, sortBy))));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Entity> List<Map<String, Object>> loadProperties(Class<T> clazz, List<String> properties,
+                                                                       int offset, int limit, String sortBy) {
+        return (List<Map<String, Object>>) get(queries,
+                Arrays.asList("loadProperties", clazz, new ArrayList<>(properties), offset, limit, sortBy),
+                () -> Collections.unmodifiableList(new ArrayList<>(dao.loadProperties(clazz, properties, offset, limit, sortBy))));
+    }
+
+    @Override
+    public <T extends Entity> long count(Class<T> clazz) {
+        return (Long) get(queries, Arrays.asList("count", clazz), () -> dao.count(clazz));
+    }
+
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz) {
+        return dao.stream(clazz);
+    }
+
+    @Override
+    public <T extends Entity> void delete(T entity) {
+        dao.delete(entity);
+        invalidate(entity);
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        return get(usersByEmail, email, () -> Optional.ofNullable(dao.getUserByEmail(email))).orElse(null);
+    }
+
+    @Override
+    public void close() {
+        invalidateAll();
+        dao.close();
+    }
+
+    private void invalidate(Entity entity) {
+        invalidateEntity(entity);
+        queries.invalidateAll();
+    }
+
+    // Providers and rockets are saved and deleted along with what they own, and entities are cached with
+    // their neighbours: a rocket with its manufacturer and launches, a launch with its rocket and provider
+    private void invalidateEntity(Entity entity) {
+        invalidateKey(entity);
+        if (entity instanceof User) {
+            // the user may have been cached under an email it no longer has
+            usersByEmail.invalidateAll();
+        } else if (entity instanceof LaunchServiceProvider) {
+            if (null != ((LaunchServiceProvider) entity).getRockets()) {
+                ((LaunchServiceProvider) entity).getRockets().forEach(this::invalidateEntity);
+            }
+        } else if (entity instanceof Rocket) {
+            Rocket rocket = (Rocket) entity;
+            invalidateKey(rocket.getManufacturer());
+            if (null != rocket.getLaunches()) {
+                rocket.getLaunches().forEach(this::invalidateEntity);
+            }
+        } else if (entity instanceof Launch) {
+            invalidateKey(((Launch) entity).getLaunchVehicle());
+            invalidateKey(((Launch) entity).getLaunchServiceProvider());
+        }
+    }
+
+    private void invalidateKey(Entity entity) {
+        if (null != entity && null != entity.getId()) {
+            entities.invalidate(Arrays.asList(entity.getClass(), entity.getId()));
+        }
+    }
+
+    private static <K, V> V get(Cache<K, V> cache, K key, Callable<V> loader) {
+        try {
+            return cache.get(key, loader);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package rockets.dataaccess;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rockets.model.Entity;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Imports providers, rockets and launches from CSV files with a header row,
+ * writing them through {@link DAO#createOrUpdateAll(java.util.Collection)}
+ * in batches.
+ *
+ * Expected columns (optional ones may be missing or empty):
+ * <ul>
+ * <li>providers: name, yearFounded, country, [headquarters]</li>
+ * <li>rockets: name, family, variation, country, manufacturer (a provider
+ * name), [massToLEO], [massToGTO], [massToOther], [firstYearFlight],
+ * [latestYearFlight], [noLaunches], [wikilink]</li>
+ * <li>launches: launchDate (yyyy-MM-dd), rocket (a rocket name), launchSite,
+ * orbit, [rocketCountry], [function], [launchOutcome], [price]</li>
+ * </ul>
+ *
+ * Providers are kept in a lookup map by name, and rockets by name and
+ * country, as they are matched in the database. A launch names its rocket's
+ * country when another rocket has the same name. Launches are read and
+ * written one batch at a time, linked to their rocket only from the launch
+ * side, so the importer holds no launch once its batch is written; a DAO
+ * that keeps what it saves, as a Neo4jDAO session does, is released after
+ * each batch through the hook given to the importer. Every value goes
+ * through the model constructors and setters, so
+ * an invalid row fails the import with its file and row number. The flight
+ * years and launch counts of rockets are set once all launches are read,
+ * since a launch cannot be created for a rocket whose first flight year is
+ * already set; saving them then writes the rockets alone.
+ */
+public class CsvImporter {
+    private static final Logger logger = LoggerFactory.getLogger(CsvImporter.class);
+
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final Runnable NOTHING = () -> { };
+
+    private static final CSVFormat FORMAT = CSVFormat.DEFAULT
+            .withFirstRecordAsHeader()
+            .withIgnoreSurroundingSpaces();
+
+    private final DAO dao;
+    private final Runnable afterBatch;
+    private final DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private final Map<String, LaunchServiceProvider> providers = new LinkedHashMap<>();
+    private final Map<List<String>, Rocket> rockets = new LinkedHashMap<>();
+    private final ListMultimap<String, Rocket> rocketsByName = ArrayListMultimap.create();
+    private final Map<Rocket, CSVRecord> flightRecords = new LinkedHashMap<>();
+
+    public CsvImporter(DAO dao) {
+        this(dao, NOTHING);
+    }
+
+    /**
+     * @param afterBatch run after every batch is written, e.g. to release the
+     *                   session of a Neo4jDAO.
+     */
+    public CsvImporter(DAO dao, Runnable afterBatch) {
+        this.dao = dao;
+        this.afterBatch = afterBatch;
+        dateFormat.setLenient(false);
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive.");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports the three files, in order.
+     *
+     * @return the number of rows imported and the overall throughput.
+     */
+    public Summary importAll(Reader providerCsv, Reader rocketCsv, Reader launchCsv) throws IOException {
+        long start = System.nanoTime();
+        long rows = importProviders(providerCsv).getRows()
+                + importRockets(rocketCsv).getRows()
+                + importLaunches(launchCsv).getRows();
+        Summary summary = new Summary("all", rows, System.nanoTime() - start);
+        logger.info("Imported {}", summary);
+        return summary;
+    }
+
+    public Summary importProviders(Reader csv) throws IOException {
+        return importRows("providers", csv, record -> {
+            LaunchServiceProvider lsp = new LaunchServiceProvider(
+                    record.get("name"), Integer.parseInt(record.get("yearFounded")), record.get("country"));
+            if (isSet(record, "headquarters")) {
+                lsp.setHeadquarters(record.get("headquarters"));
+            }
+            if (null != providers.putIfAbsent(lsp.getName(), lsp)) {
+                throw new IllegalArgumentException("Duplicate provider " + lsp.getName());
+            }
+            return lsp;
+        });
+    }
+
+    public Summary importRockets(Reader csv) throws IOException {
+        return importRows("rockets", csv, record -> {
+            LaunchServiceProvider manufacturer = lookup(providers, "provider", record.get("manufacturer"));
+            Rocket rocket = new Rocket(record.get("name"), record.get("family"), record.get("variation"),
+                    record.get("country"), manufacturer);
+            if (isSet(record, "massToLEO")) {
+                rocket.setMassToLEO(record.get("massToLEO"));
+            }
+            if (isSet(record, "massToGTO")) {
+                rocket.setMassToGTO(record.get("massToGTO"));
+            }
+            if (isSet(record, "massToOther")) {
+                rocket.setMassToOther(record.get("massToOther"));
+            }
+            if (isSet(record, "wikilink")) {
+                rocket.setWikilink(record.get("wikilink"));
+            }
+            if (null != rockets.putIfAbsent(Arrays.asList(rocket.getName(), rocket.getCountry()), rocket)) {
+                throw new IllegalArgumentException("Duplicate rocket " + rocket.getName() + " of " + rocket.getCountry());
+            }
+            rocketsByName.put(rocket.getName(), rocket);
+            manufacturer.getRockets().add(rocket);
+            flightRecords.put(rocket, record);
+            return rocket;
+        });
+    }
+
+    /**
+     * Imports launches, then sets and saves the flight years and launch
+     * counts of the imported rockets.
+     */
+    public Summary importLaunches(Reader csv) throws IOException {
+        Summary summary = importRows("launches", csv, record -> {
+            Rocket rocket = rocketOf(record);
+            Launch launch = new Launch(parseDate(record.get("launchDate")), rocket, rocket.getManufacturer(),
+                    record.get("launchSite"), record.get("orbit"));
+            if (isSet(record, "function")) {
+                launch.setFunction(record.get("function"));
+            }
+            if (isSet(record, "launchOutcome")) {
+                launch.setLaunchOutcome(Launch.LaunchOutcome.valueOf(record.get("launchOutcome")));
+            }
+            if (isSet(record, "price")) {
+                launch.setPrice(Integer.parseInt(record.get("price")));
+            }
+            return launch;
+        });
+
+        List<Rocket> flown = Lists.newArrayList();
+        for (Map.Entry<Rocket, CSVRecord> entry : flightRecords.entrySet()) {
+            if (setFlights(entry.getKey(), entry.getValue())) {
+                flown.add(entry.getKey());
+            }
+        }
+        flightRecords.clear();
+        for (List<Rocket> batch : Lists.partition(flown, batchSize)) {
+            dao.updateProperties(batch);
+            afterBatch.run();
+        }
+        return summary;
+    }
+
+    // The rocket of a launch row, by name and, when the row gives it or the name is not unique, country
+    private Rocket rocketOf(CSVRecord record) {
+        String name = record.get("rocket");
+        if (isSet(record, "rocketCountry")) {
+            Rocket rocket = rockets.get(Arrays.asList(name, record.get("rocketCountry")));
+            if (null == rocket) {
+                throw new IllegalArgumentException("Unknown rocket " + name + " of " + record.get("rocketCountry"));
+            }
+            return rocket;
+        }
+        List<Rocket> named = rocketsByName.get(name);
+        if (named.size() > 1) {
+            throw new IllegalArgumentException("Rockets of several countries are named " + name
+                    + "; the launch needs a rocketCountry");
+        }
+        if (named.isEmpty()) {
+            throw new IllegalArgumentException("Unknown rocket " + name);
+        }
+        return named.get(0);
+    }
+
+    private boolean setFlights(Rocket rocket, CSVRecord record) {
+        try {
+            boolean set = false;
+            if (isSet(record, "firstYearFlight")) {
+                rocket.setFirstYearFlight(Integer.parseInt(record.get("firstYearFlight")));
+                set = true;
+            }
+            if (isSet(record, "latestYearFlight")) {
+                rocket.setLatestYearFlight(Integer.parseInt(record.get("latestYearFlight")));
+                set = true;
+            }
+            if (isSet(record, "noLaunches")) {
+                rocket.setNoLaunches(Integer.parseInt(record.get("noLaunches")));
+                set = true;
+            }
+            return set;
+        } catch (RuntimeException e) {
+            throw invalidRow("rockets", record, e);
+        }
+    }
+
+    // Parses and writes rows in batches, logging progress after each batch
+    private Summary importRows(String file, Reader csv, RowMapper mapper) throws IOException {
+        long start = System.nanoTime();
+        long rows = 0;
+        List<Entity> batch = Lists.newArrayListWithCapacity(batchSize);
+        try (CSVParser parser = FORMAT.parse(csv)) {
+            for (CSVRecord record : parser) {
+                try {
+                    batch.add(mapper.map(record));
+                } catch (RuntimeException e) {
+                    throw invalidRow(file, record, e);
+                }
+                rows++;
+                if (batch.size() == batchSize) {
+                    dao.createOrUpdateAll(batch);
+                    afterBatch.run();
+                    batch.clear();
+                    logger.info("{}: {} rows imported", file, rows);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            dao.createOrUpdateAll(batch);
+            afterBatch.run();
+        }
+
+        Summary summary = new Summary(file, rows, System.nanoTime() - start);
+        logger.info("Imported {}", summary);
+        return summary;
+    }
+
+    private Date parseDate(String value) {
+        try {
+            return dateFormat.parse(value);
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid date " + value, e);
+        }
+    }
+
+    private static <T> T lookup(Map<String, T> byName, String kind, String name) {
+        T value = byName.get(name);
+        if (null == value) {
+            throw new IllegalArgumentException("Unknown " + kind + " " + name);
+        }
+        return value;
+    }
+
+    private static boolean isSet(CSVRecord record, String column) {
+        return record.isSet(column) && !record.get(column).isEmpty();
+    }
+
+    private static IllegalArgumentException invalidRow(String file, CSVRecord record, RuntimeException e) {
+        return new IllegalArgumentException(
+                "Invalid row " + record.getRecordNumber() + " in " + file + ": " + e.getMessage(), e);
+    }
+
+    private interface RowMapper {
+        Entity map(CSVRecord record);
+    }
+
+    /**
+     * The number of rows an import read and how long it took.
+     */
+    public static final class Summary {
+        private final String file;
+        private final long rows;
+        private final long nanos;
+
+        private Summary(String file, long rows, long nanos) {
+            this.file = file;
+            this.rows = rows;
+            this.nanos = nanos;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getMillis() {
+            return nanos / 1_000_000;
+        }
+
+        public double getRowsPerSecond() {
+            return 0 == nanos ? 0 : rows * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d rows in %d ms (%.0f rows/s)", file, rows, getMillis(), getRowsPerSecond());
+        }
+    }
+}
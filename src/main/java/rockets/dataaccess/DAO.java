@@ -4,14 +4,67 @@ import rockets.model.Entity;
 import rockets.model.User;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public interface DAO {
     <T extends Entity> T load(Class<T> clazz, Long id);
 
+    /**
+     * Loads an entity and the graph around it up to <code>depth</code>
+     * relationships away: 0 loads its properties only, 1 its direct
+     * neighbours too, and -1 everything reachable from it.
+     */
+    <T extends Entity> T load(Class<T> clazz, Long id, int depth);
+
     <T extends Entity> T createOrUpdate(T entity);
 
+    /**
+     * Saves many entities at once, with the same matching of existing
+     * entities as {@link #createOrUpdate(Entity)}.
+     */
+    <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities);
+
+    /**
+     * Writes the properties of entities that have been saved, leaving their
+     * relationships, and the entities they refer to or own, as they are.
+     */
+    <T extends Entity> void updateProperties(Collection<T> entities);
+
     <T extends Entity> Collection<T> loadAll(Class<T> clazz);
 
+    /**
+     * Loads all entities of a class to the given depth, as in
+     * {@link #load(Class, Long, int)}.
+     */
+    <T extends Entity> Collection<T> loadAll(Class<T> clazz, int depth);
+
+    /**
+     * Iterates over all entities of a class without materialising them all at
+     * once. The stream holds on to resources until it is closed, so use it in
+     * a try-with-resources block.
+     */
+    <T extends Entity> Stream<T> stream(Class<T> clazz);
+
+    /**
+     * Loads at most <code>limit</code> entities of a class, skipping the first
+     * <code>offset</code>, ordered by the given property (ascending, ties by
+     * id) or by id when <code>sortBy</code> is null.
+     */
+    <T extends Entity> List<T> loadPage(Class<T> clazz, int offset, int limit, String sortBy);
+
+    /**
+     * Reads a page of entities, as {@link #loadPage(Class, int, int, String)}
+     * does, but returns only the given properties of each one: a row per
+     * entity maps "id" and each property name to its stored value (null when
+     * unset). Relationships are not followed.
+     */
+    <T extends Entity> List<Map<String, Object>> loadProperties(Class<T> clazz, List<String> properties,
+                                                                int offset, int limit, String sortBy);
+
+    <T extends Entity> long count(Class<T> clazz);
+
     <T extends Entity> void delete(T entity);
 
     User getUserByEmail(String email);
@@ -0,0 +1,374 @@
+package rockets.dataaccess;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates a synthetic launch history of any size, for benchmarks and load
+ * tests, either straight into a {@link DAO} or as CSV files that
+ * {@link CsvImporter} reads.
+ *
+ * The history is shaped like the real one:
+ * <ul>
+ * <li>a few providers build most rockets, and a few rockets fly most
+ * launches (both Zipf-distributed);</li>
+ * <li>each rocket flies during a window of years starting from 1957, its
+ * launches spread across the window at most one a day, so windows reaching
+ * past today give planned launches without an outcome;</li>
+ * <li>about 15% of a rocket's first tenth of launches fail, and 4% of the
+ * rest;</li>
+ * <li>prices are log-normal around a per-rocket base price.</li>
+ * </ul>
+ *
+ * Generation is deterministic: the same seed, size and reference date give
+ * the same entities in the same order. Each rocket draws its launches from
+ * a random number generator of its own, so they are produced one rocket at
+ * a time without holding the whole history in memory.
+ */
+public class DataGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(DataGenerator.class);
+
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int FIRST_YEAR = 1957;
+    private static final int FUTURE_YEARS = 3;
+
+    private static final List<String> COUNTRIES = ImmutableList.of(
+            "USA", "Russia", "China", "France", "Japan", "India", "New Zealand", "Israel", "Iran", "Ukraine");
+    private static final List<String> ORBITS = ImmutableList.of("LEO", "LEO", "LEO", "SSO", "SSO", "GTO", "GTO", "MEO", "HEO", "Lunar");
+    private static final List<String> FUNCTIONS = ImmutableList.of(
+            "Communications", "Earth observation", "Navigation", "Crewed", "Cargo", "Science", "Technology demonstration");
+
+    private static final CSVFormat FORMAT = CSVFormat.DEFAULT;
+
+    private final long seed;
+    private final long launchCount;
+    private final LocalDate today;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private final List<LaunchServiceProvider> providers = Lists.newArrayList();
+    private final List<Rocket> rockets = Lists.newArrayList();
+    private final List<String> sites = Lists.newArrayList();
+    private long[] windowStarts;
+    private int[] windowDays;
+    private int[] basePrices;
+    private int[] providerOf;
+    private int[] counts;
+
+    public DataGenerator(long seed, long launchCount) {
+        this(seed, launchCount, LocalDate.now());
+    }
+
+    /**
+     * @param today the reference date: launches after it are planned ones.
+     */
+    public DataGenerator(long seed, long launchCount, LocalDate today) {
+        if (launchCount < 0) {
+            throw new IllegalArgumentException("launchCount cannot be negative.");
+        }
+        this.seed = seed;
+        this.launchCount = launchCount;
+        this.today = today;
+        generateFleet();
+    }
+
+    /**
+     * Exports a generated history as CSV files to directory <code>args[2]</code>.
+     */
+    public static void main(String[] args) throws IOException {
+        if (3 != args.length) {
+            System.err.println("Usage: DataGenerator <launches> <seed> <output directory>");
+            System.exit(1);
+        }
+        Path directory = Files.createDirectories(Paths.get(args[2]));
+        DataGenerator generator = new DataGenerator(Long.parseLong(args[1]), Long.parseLong(args[0]));
+        try (Writer providerCsv = Files.newBufferedWriter(directory.resolve("providers.csv"), StandardCharsets.UTF_8);
+             Writer rocketCsv = Files.newBufferedWriter(directory.resolve("rockets.csv"), StandardCharsets.UTF_8);
+             Writer launchCsv = Files.newBufferedWriter(directory.resolve("launches.csv"), StandardCharsets.UTF_8)) {
+            generator.writeCsv(providerCsv, rocketCsv, launchCsv);
+        }
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive.");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return the generated providers, each with its rockets; the rockets'
+     * launches are only ever in the DAO written to.
+     */
+    public List<LaunchServiceProvider> getProviders() {
+        return providers;
+    }
+
+    // Providers, rockets and each rocket's window, base price and number of launches
+    private void generateFleet() {
+        Random random = new Random(seed);
+        int rocketCount = (int) Math.min(100_000, Math.max(20, launchCount / 500));
+        int providerCount = Math.max(5, Math.min(2_000, rocketCount / 20));
+        int thisYear = today.getYear();
+
+        for (int i = 0; i < providerCount; i++) {
+            String country = COUNTRIES.get(Math.min(COUNTRIES.size() - 1, zipf(random, COUNTRIES.size())));
+            LaunchServiceProvider provider = new LaunchServiceProvider(
+                    "Provider " + i, 1945 + random.nextInt(thisYear - 1945 - 1), country);
+            provider.setHeadquarters("City " + i);
+            providers.add(provider);
+            sites.add(country + " Spaceport " + i);
+        }
+
+        windowStarts = new long[rocketCount];
+        windowDays = new int[rocketCount];
+        basePrices = new int[rocketCount];
+        providerOf = new int[rocketCount];
+        double[] weights = new double[rocketCount];
+        for (int i = 0; i < rocketCount; i++) {
+            providerOf[i] = zipf(random, providerCount);
+            LaunchServiceProvider provider = providers.get(providerOf[i]);
+            Rocket rocket = new Rocket("Rocket " + i, "Family " + i / 4, "Block " + (1 + i % 4), provider.getCountry(), provider);
+            rocket.setMassToLEO((500 + random.nextInt(60_000)) + " kg");
+            provider.getRockets().add(rocket);
+            rockets.add(rocket);
+
+            int from = Math.max(FIRST_YEAR, provider.getYearFounded()) + random.nextInt(5);
+            int startYear = Math.min(thisYear - 1, from + random.nextInt(Math.max(1, thisYear - from)));
+            int years = 2 + (int) Math.min(45, -Math.log(1 - random.nextDouble()) * 12);
+            LocalDate start = LocalDate.of(startYear, 1, 1).plusDays(random.nextInt(365));
+            LocalDate end = LocalDate.of(Math.min(startYear + years, thisYear + FUTURE_YEARS), 12, 31);
+            windowStarts[i] = start.toEpochDay();
+            windowDays[i] = (int) Math.max(1, end.toEpochDay() - windowStarts[i]);
+            basePrices[i] = (int) Math.max(5, Math.min(1_000, Math.exp(Math.log(60) + 0.8 * random.nextGaussian())));
+            weights[i] = 1.0 / (i + 1);
+        }
+        counts = allocate(launchCount, weights, windowDays);
+    }
+
+    /**
+     * Shares out <code>total</code> launches in proportion to the weights,
+     * no rocket getting more than its cap; what a capped rocket cannot take
+     * goes to the others.
+     */
+    private static int[] allocate(long total, double[] weights, int[] caps) {
+        int[] counts = new int[weights.length];
+        boolean[] full = new boolean[weights.length];
+        long remaining = total;
+        while (remaining > 0) {
+            double open = 0;
+            for (int i = 0; i < weights.length; i++) {
+                open += full[i] ? 0 : weights[i];
+            }
+            if (0 == open) {
+                throw new IllegalArgumentException("Too many launches for the generated rockets: " + total);
+            }
+            long assigned = 0;
+            for (int i = 0; i < weights.length; i++) {
+                if (!full[i]) {
+                    long add = Math.min((long) (remaining * weights[i] / open), caps[i] - counts[i]);
+                    counts[i] += add;
+                    assigned += add;
+                    full[i] = counts[i] == caps[i];
+                }
+            }
+            // rounding leftovers go to the heaviest rockets with room
+            for (int i = 0; 0 == assigned && i < weights.length && assigned < remaining; i++) {
+                if (!full[i]) {
+                    counts[i]++;
+                    assigned++;
+                    full[i] = counts[i] == caps[i];
+                }
+            }
+            remaining -= assigned;
+        }
+        return counts;
+    }
+
+    // A Zipf-distributed index in [0, n): index i is drawn in proportion to 1 / (i + 1)
+    private static int zipf(Random random, int n) {
+        double harmonic = Math.log(n) + 0.5772156649 + 1.0 / (2 * n);
+        double target = random.nextDouble() * harmonic;
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1.0 / (i + 1);
+            if (sum >= target) {
+                return i;
+            }
+        }
+        return n - 1;
+    }
+
+    /**
+     * Saves the providers and rockets, then the launches in batches, then the
+     * flight years of the rockets, as {@link CsvImporter} does. Launches are
+     * not collected on their rockets, so only one rocket's launches and a
+     * batch are in memory at a time.
+     *
+     * @return the number of launches written.
+     */
+    public long writeTo(DAO dao) {
+        long start = System.nanoTime();
+        dao.createOrUpdateAll(providers);
+
+        List<Launch> batch = Lists.newArrayListWithCapacity(batchSize);
+        List<Rocket> flown = Lists.newArrayList();
+        long written = 0;
+        for (int i = 0; i < rockets.size(); i++) {
+            List<Launch> launches = launches(i);
+            for (Launch launch : launches) {
+                batch.add(launch);
+                if (batch.size() == batchSize) {
+                    dao.createOrUpdateAll(batch);
+                    written += batch.size();
+                    batch.clear();
+                    logger.info("launches: {} generated", written);
+                }
+            }
+            // Only once its launches are made, which the rocket's flight years would otherwise reject
+            if (setFlights(rockets.get(i), launches)) {
+                flown.add(rockets.get(i));
+            }
+        }
+        if (!batch.isEmpty()) {
+            dao.createOrUpdateAll(batch);
+            written += batch.size();
+        }
+
+        for (List<Rocket> rocketBatch : Lists.partition(flown, batchSize)) {
+            dao.updateProperties(rocketBatch);
+        }
+        logger.info("Generated {} launches in {} ms", written, (System.nanoTime() - start) / 1_000_000);
+        return written;
+    }
+
+    /**
+     * Writes the history in the three CSV layouts {@link CsvImporter} reads.
+     * Only one rocket's launches are in memory at a time.
+     *
+     * @return the number of launches written.
+     */
+    public long writeCsv(Writer providerCsv, Writer rocketCsv, Writer launchCsv) throws IOException {
+        CSVPrinter providerRows = FORMAT.withHeader("name", "yearFounded", "country", "headquarters").print(providerCsv);
+        for (LaunchServiceProvider provider : providers) {
+            providerRows.printRecord(provider.getName(), provider.getYearFounded(), provider.getCountry(), provider.getHeadquarters());
+        }
+        providerRows.flush();
+
+        CSVPrinter rocketRows = FORMAT.withHeader("name", "family", "variation", "country", "manufacturer", "massToLEO",
+                "firstYearFlight", "latestYearFlight").print(rocketCsv);
+        for (int i = 0; i < rockets.size(); i++) {
+            Rocket rocket = rockets.get(i);
+            int[] years = flightYears(launches(i));
+            rocketRows.printRecord(rocket.getName(), rocket.getFamilyName(), rocket.getVariationName(), rocket.getCountry(),
+                    rocket.getManufacturer().getName(), rocket.getMassToLEO(),
+                    0 == years[0] ? "" : years[0], 0 == years[1] ? "" : years[1]);
+        }
+        rocketRows.flush();
+
+        CSVPrinter launchRows = FORMAT.withHeader("launchDate", "rocket", "launchSite", "orbit", "function",
+                "launchOutcome", "price").print(launchCsv);
+        long written = 0;
+        ZoneId zone = ZoneId.systemDefault();
+        for (int i = 0; i < rockets.size(); i++) {
+            for (Launch launch : launches(i)) {
+                launchRows.printRecord(launch.getLaunchDate().toInstant().atZone(zone).toLocalDate(),
+                        launch.getLaunchVehicle().getName(), launch.getLaunchSite(), launch.getOrbit(),
+                        launch.getFunction(), launch.getLaunchOutcome(), launch.getPrice());
+                written++;
+            }
+        }
+        launchRows.flush();
+        return written;
+    }
+
+    /**
+     * Generates the launches of one rocket, oldest first. Launch k falls in
+     * the k-th of <code>counts[i]</code> equal slices of the rocket's window,
+     * so no two share a day.
+     */
+    private List<Launch> launches(int i) {
+        Random random = rocketRandom(i);
+        Rocket rocket = rockets.get(i);
+        String site = sites.get(providerOf[i]);
+        long todayEpochDay = today.toEpochDay();
+        ZoneId zone = ZoneId.systemDefault();
+
+        List<Launch> launches = Lists.newArrayListWithCapacity(counts[i]);
+        for (int k = 0; k < counts[i]; k++) {
+            long day = windowStarts[i] + day(i, k, random);
+            Date date = Date.from(LocalDate.ofEpochDay(day).atStartOfDay(zone).toInstant());
+            Launch launch = new Launch(date, rocket, rocket.getManufacturer(), site + " LC-" + (1 + random.nextInt(3)),
+                    ORBITS.get(random.nextInt(ORBITS.size())));
+            if (random.nextInt(10) < 7) {
+                launch.setFunction(FUNCTIONS.get(random.nextInt(FUNCTIONS.size())));
+            }
+            double failureRate = k < counts[i] / 10 ? 0.15 : 0.04;
+            boolean failed = random.nextDouble() < failureRate;
+            if (day <= todayEpochDay) {
+                launch.setLaunchOutcome(failed ? Launch.LaunchOutcome.FAILED : Launch.LaunchOutcome.SUCCESSFUL);
+            }
+            launch.setPrice((int) Math.round(basePrices[i] * Math.exp(0.15 * random.nextGaussian())));
+            launches.add(launch);
+        }
+        return launches;
+    }
+
+    // The day of launch k within the rocket's window
+    private int day(int i, int k, Random random) {
+        long from = (long) k * windowDays[i] / counts[i];
+        long to = (long) (k + 1) * windowDays[i] / counts[i];
+        return (int) (from + random.nextInt((int) (to - from)));
+    }
+
+    private Random rocketRandom(int i) {
+        return new Random(seed ^ (0x9E3779B97F4A7C15L * (i + 1)));
+    }
+
+    // The years of the first launch and of the latest past launch, 0 when there is none
+    private int[] flightYears(Collection<Launch> launches) {
+        int[] years = new int[2];
+        ZoneId zone = ZoneId.systemDefault();
+        for (Launch launch : launches) {
+            LocalDate date = launch.getLaunchDate().toInstant().atZone(zone).toLocalDate();
+            if (0 == years[0] || date.getYear() < years[0]) {
+                years[0] = date.getYear();
+            }
+            if (!date.isAfter(today) && date.getYear() > years[1]) {
+                years[1] = date.getYear();
+            }
+        }
+        return years;
+    }
+
+    private boolean setFlights(Rocket rocket, Collection<Launch> launches) {
+        int[] years = flightYears(launches);
+        if (0 == years[0]) {
+            return false;
+        }
+        rocket.setFirstYearFlight(years[0]);
+        if (0 != years[1]) {
+            rocket.setLatestYearFlight(years[1]);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,176 @@
+package rockets.dataaccess;
+
+import com.google.common.math.LongMath;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rockets.model.Entity;
+
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Publishes all entities of a class, as a Reactive Streams
+ * {@link Publisher}, emitting them only as fast as subscribers request them.
+ *
+ * Each subscription reads from a {@link DAO#stream(Class)} of its own,
+ * which {@link rockets.dataaccess.neo4j.Neo4jDAO} loads in batches, so a
+ * slow subscriber holds at most one batch in memory. Entities are emitted
+ * on the given executor, one task at a time per subscription; the stream is
+ * closed on completion, on failure, and once a cancellation is seen.
+ *
+ * @param <T> the type of the published entities.
+ */
+public class EntityPublisher<T extends Entity> implements Publisher<T> {
+    private static final Logger logger = LoggerFactory.getLogger(EntityPublisher.class);
+
+    private final DAO dao;
+    private final Class<T> clazz;
+    private final Executor executor;
+
+    public EntityPublisher(DAO dao, Class<T> clazz, Executor executor) {
+        this.dao = dao;
+        this.clazz = clazz;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        if (null == subscriber) {
+            throw new NullPointerException("subscriber cannot be null.");
+        }
+        subscriber.onSubscribe(new StreamSubscription(subscriber));
+    }
+
+    /**
+     * Demand is added up in <code>requested</code>, and <code>pending</code>
+     * counts signals since the emitting task last looked, so that only one
+     * task emits at a time and none is lost.
+     */
+    private final class StreamSubscription implements Subscription, Runnable {
+        private final Subscriber<? super T> subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+        private volatile boolean done;
+
+        // Only touched by the emitting task
+        private Stream<T> stream;
+        private Iterator<T> entities;
+
+        private StreamSubscription(Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested " + n + " entities; requests must be positive.");
+            } else {
+                requested.accumulateAndGet(n, LongMath::saturatedAdd);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (0 == pending.getAndIncrement()) {
+                try {
+                    executor.execute(this);
+                } catch (RuntimeException e) {
+                    // nothing is emitting, so failing here keeps signals serial
+                    pending.set(0);
+                    fail(e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                emit();
+                missed = pending.addAndGet(-missed);
+            } while (0 != missed);
+        }
+
+        private void emit() {
+            if (done) {
+                return;
+            }
+            if (cancelled) {
+                finish();
+                return;
+            }
+            if (null != invalidRequest) {
+                fail(invalidRequest);
+                return;
+            }
+            try {
+                if (null == stream) {
+                    stream = dao.stream(clazz);
+                    entities = stream.iterator();
+                }
+                long emitted = 0;
+                long demand = requested.get();
+                while (!cancelled) {
+                    if (emitted == demand) {
+                        // pick up demand that arrived while emitting
+                        demand = Long.MAX_VALUE == demand ? demand : requested.addAndGet(-emitted);
+                        emitted = 0;
+                        if (0 == demand) {
+                            return;
+                        }
+                    }
+                    if (!entities.hasNext()) {
+                        finish();
+                        subscriber.onComplete();
+                        return;
+                    }
+                    subscriber.onNext(entities.next());
+                    emitted++;
+                }
+                finish();
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        // Signals the error unless the subscriber has had its terminal signal
+        private void fail(Throwable e) {
+            if (done) {
+                logger.warn("Subscription of {} has ended; dropping", subscriber, e);
+                return;
+            }
+            finish();
+            try {
+                subscriber.onError(e);
+            } catch (RuntimeException again) {
+                logger.error("Subscriber {} failed handling an error", subscriber, again);
+            }
+        }
+
+        private void finish() {
+            done = true;
+            if (null != stream) {
+                try {
+                    stream.close();
+                } catch (RuntimeException e) {
+                    logger.warn("Could not close the stream of {}", clazz.getSimpleName(), e);
+                }
+                stream = null;
+            }
+        }
+    }
+}
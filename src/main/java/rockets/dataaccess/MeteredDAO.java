@@ -0,0 +1,158 @@
+package rockets.dataaccess;
+
+import rockets.metrics.Counter;
+import rockets.metrics.Histogram;
+import rockets.metrics.MetricsRegistry;
+import rockets.model.Entity;
+import rockets.model.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * A {@link DAO} that times every call to another DAO, into the
+ * <code>dao_operation_seconds</code> summary by operation, and counts the
+ * calls that throw in <code>dao_errors_total</code>. For streams, only
+ * opening the stream is timed.
+ *
+ * The metrics of each operation are looked up once, so a call costs two
+ * clock reads and a histogram update on top of the call itself.
+ */
+public class MeteredDAO implements DAO {
+    private static final String OPERATION_SECONDS = "dao_operation_seconds";
+    private static final String ERRORS = "dao_errors_total";
+
+    private final DAO dao;
+    private final Operation load;
+    private final Operation createOrUpdate;
+    private final Operation createOrUpdateAll;
+    private final Operation updateProperties;
+    private final Operation loadAll;
+    private final Operation stream;
+    private final Operation loadPage;
+    private final Operation loadProperties;
+    private final Operation count;
+    private final Operation delete;
+    private final Operation getUserByEmail;
+
+    public MeteredDAO(DAO dao, MetricsRegistry metrics) {
+        this.dao = dao;
+        this.load = new Operation(metrics, "load");
+        this.createOrUpdate = new Operation(metrics, "createOrUpdate");
+        this.createOrUpdateAll = new Operation(metrics, "createOrUpdateAll");
+        this.updateProperties = new Operation(metrics, "updateProperties");
+        this.loadAll = new Operation(metrics, "loadAll");
+        this.stream = new Operation(metrics, "stream");
+        this.loadPage = new Operation(metrics, "loadPage");
+        this.loadProperties = new Operation(metrics, "loadProperties");
+        this.count = new Operation(metrics, "count");
+        this.delete = new Operation(metrics, "delete");
+        this.getUserByEmail = new Operation(metrics, "getUserByEmail");
+    }
+
+    /**
+     * @return the DAO whose calls are timed.
+     */
+    public DAO getDelegate() {
+        return dao;
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id) {
+        return load.time(() -> dao.load(clazz, id));
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id, int depth) {
+        return load.time(() -> dao.load(clazz, id, depth));
+    }
+
+    @Override
+    public <T extends Entity> T createOrUpdate(T entity) {
+        return createOrUpdate.time(() -> dao.createOrUpdate(entity));
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities) {
+        return createOrUpdateAll.time(() -> dao.createOrUpdateAll(entities));
+    }
+
+    @Override
+    public <T extends Entity> void updateProperties(Collection<T> entities) {
+        updateProperties.time(() -> {
+            dao.updateProperties(entities);
+            return null;
+        });
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        return loadAll.time(() -> dao.loadAll(clazz));
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz, int depth) {
+        return loadAll.time(() -> dao.loadAll(clazz, depth));
+    }
+
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz) {
+        return stream.time(() -> dao.stream(clazz));
+    }
+
+    @Override
+    public <T extends Entity> List<T> loadPage(Class<T> clazz, int offset, int limit, String sortBy) {
+        return loadPage.time(() -> dao.loadPage(clazz, offset, limit, sortBy));
+    }
+
+    @Override
+    public <T extends Entity> List<Map<String, Object>> loadProperties(Class<T> clazz, List<String> properties,
+                                                                       int offset, int limit, String sortBy) {
+        return loadProperties.time(() -> dao.loadProperties(clazz, properties, offset, limit, sortBy));
+    }
+
+    @Override
+    public <T extends Entity> long count(Class<T> clazz) {
+        return count.time(() -> dao.count(clazz));
+    }
+
+    @Override
+    public <T extends Entity> void delete(T entity) {
+        delete.time(() -> {
+            dao.delete(entity);
+            return null;
+        });
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        return getUserByEmail.time(() -> dao.getUserByEmail(email));
+    }
+
+    @Override
+    public void close() {
+        dao.close();
+    }
+
+    private static final class Operation {
+        private final Histogram seconds;
+        private final Counter errors;
+
+        private Operation(MetricsRegistry metrics, String name) {
+            this.seconds = metrics.histogram(OPERATION_SECONDS, "Time taken by DAO calls.", "operation", name);
+            this.errors = metrics.counter(ERRORS, "DAO calls that threw.", "operation", name);
+        }
+
+        private <R> R time(Supplier<R> call) {
+            try {
+                return seconds.time(call);
+            } catch (RuntimeException e) {
+                errors.increment();
+                throw e;
+            }
+        }
+    }
+}
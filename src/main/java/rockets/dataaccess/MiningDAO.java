@@ -0,0 +1,27 @@
+package rockets.dataaccess;
+
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.util.List;
+
+/**
+ * Ranking queries that a data store can answer itself, returning only the
+ * k requested rows instead of the whole graph.
+ *
+ * Results are ranked as by the corresponding {@link rockets.mining.RocketMiner}
+ * methods, but the order of ties is unspecified: it need not match the order
+ * in which the miner, scanning entities itself, would return them.
+ */
+public interface MiningDAO {
+    List<Rocket> findMostLaunchedRockets(int k);
+
+    List<String> findMostUnreliableLaunchServiceProviders(int k);
+
+    List<Launch> findMostRecentLaunches(int k);
+
+    List<LaunchServiceProvider> findBusiestLaunchServiceProvidersInMonth(int k, int year, int month);
+
+    List<Launch> findMostExpensiveLaunches(int k);
+}
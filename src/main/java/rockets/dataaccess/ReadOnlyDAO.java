@@ -0,0 +1,104 @@
+package rockets.dataaccess;
+
+import rockets.model.Entity;
+import rockets.model.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * A {@link DAO} that serves the reads of another DAO and rejects every write
+ * with an {@link UnsupportedOperationException}, for nodes whose data cannot
+ * be written back, such as a read replica serving a snapshot.
+ */
+public class ReadOnlyDAO implements DAO {
+    private final DAO dao;
+
+    public ReadOnlyDAO(DAO dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * @return the DAO whose reads are served.
+     */
+    public DAO getDelegate() {
+        return dao;
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("This data is read-only.");
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id) {
+        return dao.load(clazz, id);
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id, int depth) {
+        return dao.load(clazz, id, depth);
+    }
+
+    @Override
+    public <T extends Entity> T createOrUpdate(T entity) {
+        throw readOnly();
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities) {
+        throw readOnly();
+    }
+
+    @Override
+    public <T extends Entity> void updateProperties(Collection<T> entities) {
+        throw readOnly();
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        return dao.loadAll(clazz);
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz, int depth) {
+        return dao.loadAll(clazz, depth);
+    }
+
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz) {
+        return dao.stream(clazz);
+    }
+
+    @Override
+    public <T extends Entity> List<T> loadPage(Class<T> clazz, int offset, int limit, String sortBy) {
+        return dao.loadPage(clazz, offset, limit, sortBy);
+    }
+
+    @Override
+    public <T extends Entity> List<Map<String, Object>> loadProperties(Class<T> clazz, List<String> properties,
+                                                                       int offset, int limit, String sortBy) {
+        return dao.loadProperties(clazz, properties, offset, limit, sortBy);
+    }
+
+    @Override
+    public <T extends Entity> long count(Class<T> clazz) {
+        return dao.count(clazz);
+    }
+
+    @Override
+    public <T extends Entity> void delete(T entity) {
+        throw readOnly();
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        return dao.getUserByEmail(email);
+    }
+
+    @Override
+    public void close() {
+        dao.close();
+    }
+}
@@ -0,0 +1,324 @@
+package rockets.dataaccess;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rockets.model.Entity;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+import rockets.model.User;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * A {@link DAO} that defers updates of existing entities and writes them in
+ * batches.
+ *
+ * Saving an entity that already has an id only queues it; saving it again
+ * before the next flush replaces the queued copy, so repeated updates cost
+ * one write. The queue is flushed through
+ * {@link DAO#updateProperties(Collection)} every flush interval, as soon as
+ * it holds a batch worth of entities, and on {@link #close()}: a queued save
+ * writes the entity's own properties and leaves its relationships as they
+ * are, so an entity loaded without them, such as a rocket whose launches
+ * were not loaded, does not lose them. New entities, saves that reach new
+ * entities, and deletes are written straight away, since callers need their
+ * ids and outcomes, and so are property updates; a queued save of the same
+ * entity still goes out with the next flush.
+ *
+ * Point loads see queued updates; other reads only see them once flushed.
+ * A failed flush is logged and its entities are queued again unless they
+ * were updated in the meantime.
+ */
+public class WriteBehindDAO implements DAO {
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindDAO.class);
+
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final long DEFAULT_FLUSH_MILLIS = 1000;
+
+    private final DAO dao;
+    private final int batchSize;
+    private final Runnable afterFlush;
+    private final ScheduledExecutorService flusher;
+
+    private final Map<List<Object>, Entity> pending = new LinkedHashMap<>();
+    private final Object flushLock = new Object();
+
+    // Set while a flush for a full batch is waiting to run, so that one is scheduled at a time
+    private final AtomicBoolean batchFlushScheduled = new AtomicBoolean();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushedEntities = new AtomicLong();
+    private final AtomicLong flushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+
+    public WriteBehindDAO(DAO dao) {
+        this(dao, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_MILLIS, TimeUnit.MILLISECONDS, () -> { });
+    }
+
+    /**
+     * @param afterFlush run on the flushing thread after every flush, e.g. to
+     *                   release that thread's database session.
+     */
+    public WriteBehindDAO(DAO dao, int batchSize, long flushInterval, TimeUnit unit, Runnable afterFlush) {
+        if (batchSize < 1 || flushInterval < 1) {
+            throw new IllegalArgumentException("batchSize and flushInterval must be positive.");
+        }
+        this.dao = dao;
+        this.batchSize = batchSize;
+        this.afterFlush = afterFlush;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("write-behind-%d").setDaemon(true).build());
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval, unit);
+    }
+
+    /**
+     * @return the number of entities waiting to be written.
+     */
+    public int getQueueDepth() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    public long getFlushes() {
+        return flushes.get();
+    }
+
+    public long getFlushedEntities() {
+        return flushedEntities.get();
+    }
+
+    public double getMeanFlushMillis() {
+        long count = flushes.get();
+        return 0 == count ? 0 : flushNanos.get() / 1e6 / count;
+    }
+
+    public double getMaxFlushMillis() {
+        return maxFlushNanos.get() / 1e6;
+    }
+
+    /**
+     * Writes every queued entity now, on the calling thread.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<Entity> batch;
+            synchronized (pending) {
+                batch = Lists.newArrayList(pending.values());
+                pending.clear();
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            try {
+                for (List<Entity> part : Lists.partition(batch, batchSize)) {
+                    dao.updateProperties(part);
+                }
+            } catch (RuntimeException e) {
+                requeue(batch);
+                throw e;
+            }
+            long nanos = System.nanoTime() - start;
+            flushes.incrementAndGet();
+            flushedEntities.addAndGet(batch.size());
+            flushNanos.addAndGet(nanos);
+            maxFlushNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("Write-behind flush failed, {} entities queued", getQueueDepth(), e);
+        } finally {
+            afterFlush.run();
+        }
+    }
+
+    // Newer updates queued while the flush ran take precedence
+    private void requeue(List<Entity> batch) {
+        synchronized (pending) {
+            Map<List<Object>, Entity> newer = new LinkedHashMap<>(pending);
+            pending.clear();
+            for (Entity entity : batch) {
+                pending.put(key(entity), entity);
+            }
+            pending.putAll(newer);
+        }
+    }
+
+    private void enqueue(Entity entity) {
+        int size;
+        synchronized (pending) {
+            pending.put(key(entity), entity);
+            size = pending.size();
+        }
+        // at least, not exactly: requeued entities can take the queue past a batch
+        if (size >= batchSize && batchFlushScheduled.compareAndSet(false, true)) {
+            try {
+                flusher.execute(() -> {
+                    batchFlushScheduled.set(false);
+                    flushQuietly();
+                });
+            } catch (RejectedExecutionException e) {
+                // closing, which flushes anyway
+                batchFlushScheduled.set(false);
+            }
+        }
+    }
+
+    // Whether saving the entity creates one: it is new, or refers to or owns a new entity
+    private static boolean isOrReachesNew(Entity entity) {
+        if (null == entity.getId()) {
+            return true;
+        } else if (entity instanceof LaunchServiceProvider) {
+            return anyNew(((LaunchServiceProvider) entity).getRockets());
+        } else if (entity instanceof Rocket) {
+            Rocket rocket = (Rocket) entity;
+            return isNew(rocket.getManufacturer()) || anyNew(rocket.getLaunches());
+        } else if (entity instanceof Launch) {
+            Launch launch = (Launch) entity;
+            return isNew(launch.getLaunchVehicle()) || isNew(launch.getLaunchServiceProvider());
+        }
+        return false;
+    }
+
+    private static boolean isNew(Entity entity) {
+        return null != entity && null == entity.getId();
+    }
+
+    private static boolean anyNew(Collection<? extends Entity> entities) {
+        return null != entities && entities.stream().anyMatch(WriteBehindDAO::isNew);
+    }
+
+    private static List<Object> key(Entity entity) {
+        return Arrays.asList(entity.getClass(), entity.getId());
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id) {
+        T queued = queued(clazz, id);
+        return null != queued ? queued : dao.load(clazz, id);
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id, int depth) {
+        T queued = queued(clazz, id);
+        return null != queued ? queued : dao.load(clazz, id, depth);
+    }
+
+    private <T extends Entity> T queued(Class<T> clazz, Long id) {
+        synchronized (pending) {
+            return clazz.cast(pending.get(Arrays.asList(clazz, id)));
+        }
+    }
+
+    @Override
+    public <T extends Entity> T createOrUpdate(T entity) {
+        if (isOrReachesNew(entity)) {
+            return dao.createOrUpdate(entity);
+        }
+        enqueue(entity);
+        return entity;
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities) {
+        List<T> created = Lists.newArrayList();
+        for (T entity : entities) {
+            if (isOrReachesNew(entity)) {
+                created.add(entity);
+            } else {
+                enqueue(entity);
+            }
+        }
+        if (!created.isEmpty()) {
+            dao.createOrUpdateAll(created);
+        }
+        return entities;
+    }
+
+    @Override
+    public <T extends Entity> void updateProperties(Collection<T> entities) {
+        dao.updateProperties(entities);
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        return dao.loadAll(clazz);
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz, int depth) {
+        return dao.loadAll(clazz, depth);
+    }
+
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz) {
+        return dao.stream(clazz);
+    }
+
+    @Override
+    public <T extends Entity> List<T> loadPage(Class<T> clazz, int offset, int limit, String sortBy) {
+        return dao.loadPage(clazz, offset, limit, sortBy);
+    }
+
+    @Override
+    public <T extends Entity> List<Map<String, Object>> loadProperties(Class<T> clazz, List<String> properties,
+                                                                       int offset, int limit, String sortBy) {
+        return dao.loadProperties(clazz, properties, offset, limit, sortBy);
+    }
+
+    @Override
+    public <T extends Entity> long count(Class<T> clazz) {
+        return dao.count(clazz);
+    }
+
+    // A queued update must not bring a deleted entity back
+    @Override
+    public <T extends Entity> void delete(T entity) {
+        synchronized (flushLock) {
+            synchronized (pending) {
+                pending.remove(key(entity));
+            }
+            dao.delete(entity);
+        }
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        return dao.getUserByEmail(email);
+    }
+
+    /**
+     * Stops the timer, writes what is still queued, then closes the
+     * underlying DAO.
+     */
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        dao.close();
+    }
+}
@@ -0,0 +1,54 @@
+package rockets.dataaccess.feed;
+
+import rockets.model.Entity;
+
+/**
+ * A write to an entity, as published on a {@link ChangeFeed}. Changes carry
+ * the type and id of the entity only; listeners load what they need.
+ */
+public final class Change {
+    public enum Kind {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final long sequence;
+    private final Kind kind;
+    private final Class<? extends Entity> entityType;
+    private final long id;
+
+    Change(long sequence, Kind kind, Class<? extends Entity> entityType, long id) {
+        this.sequence = sequence;
+        this.kind = kind;
+        this.entityType = entityType;
+        this.id = id;
+    }
+
+    /**
+     * @return the position of the change in its feed, counting from 1.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public Class<? extends Entity> getEntityType() {
+        return entityType;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return "Change{" +
+                "sequence=" + sequence +
+                ", kind=" + kind +
+                ", entityType=" + entityType.getSimpleName() +
+                ", id=" + id +
+                '}';
+    }
+}
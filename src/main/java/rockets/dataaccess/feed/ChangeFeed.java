@@ -0,0 +1,220 @@
+package rockets.dataaccess.feed;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rockets.model.Entity;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An ordered, in-process feed of entity changes, so that caches, indexes and
+ * views can follow writes instead of rescanning.
+ *
+ * Changes are numbered and kept in a ring buffer of fixed capacity. Each
+ * subscriber has its own cursor into the ring and its own delivery thread,
+ * and receives every change published after it subscribed, in order.
+ * Publishing never waits for subscribers: one that falls behind by more
+ * than the capacity of the ring skips to the oldest change still held and is
+ * told how many it missed, so that it can reload.
+ */
+public class ChangeFeed implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeed.class);
+
+    private static final int DEFAULT_CAPACITY = 1 << 14;
+
+    private final Change[] ring;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    private final ThreadFactory threads = new ThreadFactoryBuilder().setNameFormat("change-feed-%d").setDaemon(true).build();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    // The sequence of the last change published; guarded by lock
+    private long head;
+    private boolean closed;
+
+    public ChangeFeed() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ChangeFeed(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive.");
+        }
+        this.ring = new Change[capacity];
+    }
+
+    /**
+     * Receives the changes of a feed, one at a time, on the subscription's
+     * delivery thread.
+     */
+    public interface Listener {
+        void onChange(Change change);
+
+        /**
+         * Called when changes were overwritten before they could be
+         * delivered; the changes that follow are delivered as usual.
+         *
+         * @param missed the number of changes that were skipped.
+         */
+        default void onOverrun(long missed) {
+            logger.warn("Change feed listener {} missed {} changes", this, missed);
+        }
+    }
+
+    /**
+     * Publishes a change to an entity with the given type and id.
+     *
+     * @return the change as published.
+     */
+    public Change publish(Change.Kind kind, Class<? extends Entity> entityType, long id) {
+        lock.lock();
+        try {
+            Change change = new Change(head + 1, kind, entityType, id);
+            ring[(int) (change.getSequence() % ring.length)] = change;
+            head = change.getSequence();
+            published.signalAll();
+            return change;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the sequence of the last change published, 0 if there is none.
+     */
+    public long getLastSequence() {
+        lock.lock();
+        try {
+            return head;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Delivers changes published from now on to the listener, until the
+     * subscription or the feed is closed.
+     */
+    public Subscription subscribe(Listener listener) {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("The change feed is closed.");
+            }
+            Subscription subscription = new Subscription(listener, head);
+            subscriptions.add(subscription);
+            subscription.thread.start();
+            return subscription;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops delivering to all subscribers, waiting for each to finish the
+     * change it is handling.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+
+    /**
+     * The delivery of a feed to one listener.
+     */
+    public final class Subscription implements AutoCloseable {
+        private final Listener listener;
+        private final Thread thread;
+        private volatile boolean cancelled;
+
+        // The sequence of the last change taken from the ring; guarded by lock
+        private long cursor;
+
+        private Subscription(Listener listener, long cursor) {
+            this.listener = listener;
+            this.cursor = cursor;
+            this.thread = threads.newThread(this::deliver);
+        }
+
+        /**
+         * @return the number of changes published but not yet taken for delivery.
+         */
+        public long getLag() {
+            lock.lock();
+            try {
+                return head - cursor;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void deliver() {
+            while (!cancelled) {
+                long missed;
+                Change change;
+                lock.lock();
+                try {
+                    while (cursor == head && !cancelled) {
+                        published.await();
+                    }
+                    if (cancelled) {
+                        return;
+                    }
+                    long oldest = Math.max(1, head - ring.length + 1);
+                    missed = Math.max(0, oldest - cursor - 1);
+                    cursor += missed + 1;
+                    change = ring[(int) (cursor % ring.length)];
+                } catch (InterruptedException e) {
+                    return;
+                } finally {
+                    lock.unlock();
+                }
+
+                try {
+                    if (missed > 0) {
+                        listener.onOverrun(missed);
+                    }
+                    listener.onChange(change);
+                } catch (RuntimeException e) {
+                    logger.error("Change feed listener {} failed on {}", listener, change, e);
+                }
+            }
+        }
+
+        /**
+         * Stops delivery, waiting for the change being handled, if any.
+         */
+        @Override
+        public void close() {
+            cancelled = true;
+            subscriptions.remove(this);
+            lock.lock();
+            try {
+                published.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (Thread.currentThread() != thread) {
+                try {
+                    thread.join(TimeUnit.SECONDS.toMillis(10));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
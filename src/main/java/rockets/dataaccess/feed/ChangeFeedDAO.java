@@ -0,0 +1,184 @@
+package rockets.dataaccess.feed;
+
+import rockets.dataaccess.DAO;
+import rockets.model.Entity;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+import rockets.model.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * A {@link DAO} that publishes every write made through it to a
+ * {@link ChangeFeed}, once the write has succeeded.
+ *
+ * Every entity a save writes is published: those passed in, what providers
+ * and rockets own, and the unsaved rockets and providers they refer to,
+ * which are saved with them. An entity that had no id before the save is
+ * published as created, and one that had an id as updated, each entity once
+ * per save. A property update publishes the entities updated, and a delete
+ * the entity deleted. Changes are numbered in the order the writes
+ * return, so concurrent writes of the same entity may be published in
+ * either order.
+ */
+public class ChangeFeedDAO implements DAO {
+    private final DAO dao;
+    private final ChangeFeed feed;
+
+    public ChangeFeedDAO(DAO dao, ChangeFeed feed) {
+        this.dao = dao;
+        this.feed = feed;
+    }
+
+    public ChangeFeed getFeed() {
+        return feed;
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id) {
+        return dao.load(clazz, id);
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id, int depth) {
+        return dao.load(clazz, id, depth);
+    }
+
+    @Override
+    public <T extends Entity> T createOrUpdate(T entity) {
+        Written written = new Written();
+        written.collect(entity);
+        T saved = dao.createOrUpdate(entity);
+        written.publishTo(feed);
+        return saved;
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities) {
+        Written written = new Written();
+        entities.forEach(written::collect);
+        Collection<T> saved = dao.createOrUpdateAll(entities);
+        written.publishTo(feed);
+        return saved;
+    }
+
+    @Override
+    public <T extends Entity> void updateProperties(Collection<T> entities) {
+        dao.updateProperties(entities);
+        for (T entity : entities) {
+            feed.publish(Change.Kind.UPDATED, entity.getClass(), entity.getId());
+        }
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        return dao.loadAll(clazz);
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz, int depth) {
+        return dao.loadAll(clazz, depth);
+    }
+
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz) {
+        return dao.stream(clazz);
+    }
+
+    @Override
+    public <T extends Entity> List<T> loadPage(Class<T> clazz, int offset, int limit, String sortBy) {
+        return dao.loadPage(clazz, offset, limit, sortBy);
+    }
+
+    @Override
+    public <T extends Entity> List<Map<String, Object>> loadProperties(Class<T> clazz, List<String> properties,
+                                                                       int offset, int limit, String sortBy) {
+        return dao.loadProperties(clazz, properties, offset, limit, sortBy);
+    }
+
+    @Override
+    public <T extends Entity> long count(Class<T> clazz) {
+        return dao.count(clazz);
+    }
+
+    @Override
+    public <T extends Entity> void delete(T entity) {
+        Long id = entity.getId();
+        dao.delete(entity);
+        if (null != id) {
+            feed.publish(Change.Kind.DELETED, entity.getClass(), id);
+        }
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        return dao.getUserByEmail(email);
+    }
+
+    /**
+     * Closes the underlying DAO; the feed is left open for its owner to close.
+     */
+    @Override
+    public void close() {
+        dao.close();
+    }
+
+    /**
+     * The entities a write saves, as the DAOs cascade it, in the order they
+     * are reached, and whether each had an id before the write.
+     */
+    private static final class Written {
+        private final Set<Entity> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final List<Entity> entities = new ArrayList<>();
+        private final List<Boolean> created = new ArrayList<>();
+
+        private void collect(Entity entity) {
+            if (null == entity || !seen.add(entity)) {
+                return;
+            }
+            entities.add(entity);
+            created.add(null == entity.getId());
+            if (entity instanceof LaunchServiceProvider && null != ((LaunchServiceProvider) entity).getRockets()) {
+                ((LaunchServiceProvider) entity).getRockets().forEach(this::collect);
+            } else if (entity instanceof Rocket) {
+                Rocket rocket = (Rocket) entity;
+                collectIfNew(rocket.getManufacturer());
+                if (null != rocket.getLaunches()) {
+                    rocket.getLaunches().forEach(this::collect);
+                }
+            } else if (entity instanceof Launch) {
+                collectIfNew(((Launch) entity).getLaunchVehicle());
+                collectIfNew(((Launch) entity).getLaunchServiceProvider());
+            }
+        }
+
+        // Saved entities that are only referenced are not saved again
+        private void collectIfNew(Entity referenced) {
+            if (null != referenced && null == referenced.getId()) {
+                collect(referenced);
+            }
+        }
+
+        // Equal copies of an entity are saved as one, so share an id and are published once
+        private void publishTo(ChangeFeed feed) {
+            Set<List<Object>> published = new HashSet<>();
+            for (int i = 0; i < entities.size(); i++) {
+                Entity entity = entities.get(i);
+                if (null != entity.getId() && published.add(Arrays.asList(entity.getClass(), entity.getId()))) {
+                    feed.publish(created.get(i) ? Change.Kind.CREATED : Change.Kind.UPDATED,
+                            entity.getClass(), entity.getId());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package rockets.dataaccess.memory;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.neo4j.ogm.annotation.Property;
+import org.neo4j.ogm.annotation.Relationship;
+import rockets.dataaccess.DAO;
+import rockets.model.Entity;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+import rockets.model.User;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A {@link DAO} that keeps entities in memory, for tests and for nodes that
+ * serve reads without a database.
+ *
+ * Entities are matched and cascaded as {@link rockets.dataaccess.neo4j.Neo4jDAO}
+ * does: an entity with the natural key of a stored one takes over its id
+ * (an existing user is not updated), and saving an entity also saves the
+ * providers, rockets and launches reachable from it, except through the
+ * rocket and provider it refers to once those are saved. Ids are unique across
+ * types, as node ids are. As loading a rocket from the graph would show, a
+ * saved launch is among its stored rocket's launches until it is deleted,
+ * however it was saved.
+ *
+ * Entities are stored by reference and held in concurrent maps: by id for
+ * each type, and by natural key, which also serves email lookups. Reads do
+ * not lock; writes are serialised so that matching and indexing are atomic.
+ * Since the stored objects are the ones callers save and load, all loads
+ * return the whole reachable graph whatever the depth asked for.
+ */
+public class InMemoryDAO implements DAO {
+    private final ConcurrentMap<Class<?>, ConcurrentNavigableMap<Long, Entity>> byClass = new ConcurrentHashMap<>();
+    private final ConcurrentMap<List<Object>, Long> byNaturalKey = new ConcurrentHashMap<>();
+    private final Map<Long, List<Object>> naturalKeys = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private long lastId = -1;
+
+    // Stored properties of each entity type, by property name
+    private static final Map<Class<?>, Map<String, Field>> PROPERTIES = new ConcurrentHashMap<>();
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id) {
+        return clazz.cast(entities(clazz).get(id));
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id, int depth) {
+        if (depth < -1) {
+            throw new IllegalArgumentException("depth must be -1 (unlimited) or more.");
+        }
+        return load(clazz, id);
+    }
+
+    @Override
+    public <T extends Entity> T createOrUpdate(T entity) {
+        synchronized (writeLock) {
+            save(entity, Collections.newSetFromMap(new IdentityHashMap<>()));
+        }
+        return entity;
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities) {
+        synchronized (writeLock) {
+            Set<Entity> saved = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (T entity : entities) {
+                save(entity, saved);
+            }
+        }
+        return entities;
+    }
+
+    // Entities are stored as they are, so this stores them again without cascading
+    @Override
+    public <T extends Entity> void updateProperties(Collection<T> entities) {
+        synchronized (writeLock) {
+            for (T entity : entities) {
+                if (null == entity.getId()) {
+                    throw new IllegalArgumentException("Only saved entities can have their properties updated.");
+                }
+                put(entity);
+            }
+        }
+    }
+
+    // Saves providers before their rockets and rockets before their launches,
+    // so that launches are matched on the id of their rocket
+    private void save(Entity entity, Set<Entity> saved) {
+        if (null == entity || !saved.add(entity)) {
+            return;
+        }
+        if (entity instanceof LaunchServiceProvider) {
+            put(entity);
+            saveAll(((LaunchServiceProvider) entity).getRockets(), saved);
+        } else if (entity instanceof Rocket) {
+            Rocket rocket = (Rocket) entity;
+            saveIfNew(rocket.getManufacturer(), saved);
+            put(rocket);
+            saveAll(rocket.getLaunches(), saved);
+        } else if (entity instanceof Launch) {
+            Launch launch = (Launch) entity;
+            saveIfNew(launch.getLaunchVehicle(), saved);
+            saveIfNew(launch.getLaunchServiceProvider(), saved);
+            put(launch);
+            Rocket vehicle = storedVehicleOf(launch);
+            if (null != vehicle) {
+                if (null == vehicle.getLaunches()) {
+                    vehicle.setLaunches(new LinkedHashSet<>());
+                }
+                vehicle.getLaunches().add(launch);
+            }
+        } else {
+            put(entity);
+        }
+    }
+
+    // Saved entities that are only referenced are linked to, not saved again with all they own
+    private void saveIfNew(Entity referenced, Set<Entity> saved) {
+        if (null != referenced && null == referenced.getId()) {
+            save(referenced, saved);
+        }
+    }
+
+    private void saveAll(Collection<? extends Entity> entities, Set<Entity> saved) {
+        if (null != entities) {
+            for (Entity entity : entities) {
+                save(entity, saved);
+            }
+        }
+    }
+
+    // The stored rocket a launch flies on, whose launches stand in for the relationship a graph has
+    private Rocket storedVehicleOf(Launch launch) {
+        Rocket vehicle = launch.getLaunchVehicle();
+        return null == vehicle || null == vehicle.getId() ? null : entities(Rocket.class).get(vehicle.getId());
+    }
+
+    private void put(Entity entity) {
+        List<Object> key = naturalKey(entity);
+        Long existingId = null == key ? null : byNaturalKey.get(key);
+        if (null != existingId) {
+            entity.setId(existingId);
+            if (entity instanceof User) {
+                return;
+            }
+        } else if (null == entity.getId()) {
+            entity.setId(++lastId);
+        } else {
+            lastId = Math.max(lastId, entity.getId());
+        }
+
+        // the entity may have changed its natural key since it was last saved
+        List<Object> previous = naturalKeys.remove(entity.getId());
+        if (null != previous) {
+            byNaturalKey.remove(previous);
+        }
+        if (null != key) {
+            byNaturalKey.put(key, entity.getId());
+            naturalKeys.put(entity.getId(), key);
+        }
+        byClass.computeIfAbsent(entity.getClass(), c -> new ConcurrentSkipListMap<>()).put(entity.getId(), entity);
+    }
+
+    // Stores entities as they are, with their ids, without matching or cascading
+    void restore(Collection<Entity> entities) {
+        synchronized (writeLock) {
+            for (Entity entity : entities) {
+                List<Object> key = naturalKey(entity);
+                if (null != key && null == byNaturalKey.putIfAbsent(key, entity.getId())) {
+                    naturalKeys.put(entity.getId(), key);
+                }
+                byClass.computeIfAbsent(entity.getClass(), c -> new ConcurrentSkipListMap<>()).put(entity.getId(), entity);
+                lastId = Math.max(lastId, entity.getId());
+            }
+        }
+    }
+
+    // The natural key an entity is matched on, or null when it cannot match a stored one
+    private static List<Object> naturalKey(Entity entity) {
+        if (entity instanceof LaunchServiceProvider) {
+            LaunchServiceProvider lsp = (LaunchServiceProvider) entity;
+            return Arrays.asList(LaunchServiceProvider.class, lsp.getName(), lsp.getYearFounded(), lsp.getCountry());
+        } else if (entity instanceof Rocket) {
+            Rocket rocket = (Rocket) entity;
+            return Arrays.asList(Rocket.class, rocket.getName(), rocket.getCountry());
+        } else if (entity instanceof Launch) {
+            Launch launch = (Launch) entity;
+            Rocket vehicle = launch.getLaunchVehicle();
+            if (null == vehicle || null == vehicle.getId() || null == launch.getLaunchDate()) {
+                return null;
+            }
+            return Arrays.asList(Launch.class, launch.getLaunchDate().getTime(), launch.getLaunchSite(), vehicle.getId());
+        } else if (entity instanceof User) {
+            return Arrays.asList(User.class, ((User) entity).getEmail());
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Entity> ConcurrentNavigableMap<Long, T> entities(Class<T> clazz) {
+        return (ConcurrentNavigableMap<Long, T>) byClass.computeIfAbsent(clazz, c -> new ConcurrentSkipListMap<>());
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        return Lists.newArrayList(entities(clazz).values());
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz, int depth) {
+        if (depth < -1) {
+            throw new IllegalArgumentException("depth must be -1 (unlimited) or more.");
+        }
+        return loadAll(clazz);
+    }
+
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz) {
+        return entities(clazz).values().stream();
+    }
+
+    @Override
+    public <T extends Entity> List<T> loadPage(Class<T> clazz, int offset, int limit, String sortBy) {
+        return page(clazz, Collections.emptyList(), offset, limit, sortBy);
+    }
+
+    @Override
+    public <T extends Entity> List<Map<String, Object>> loadProperties(Class<T> clazz, List<String> properties,
+                                                                       int offset, int limit, String sortBy) {
+        List<Map<String, Object>> rows = Lists.newArrayList();
+        for (T entity : page(clazz, properties, offset, limit, sortBy)) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", entity.getId());
+            for (String property : properties) {
+                row.put(property, property(entity, property));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    // Orders as the database does: by the stored value, missing values last, then by id
+    private <T extends Entity> List<T> page(Class<T> clazz, List<String> properties, int offset, int limit, String sortBy) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit cannot be negative.");
+        }
+        for (String property : properties) {
+            if (!isIdentifier(property) || "id".equals(property)) {
+                throw new IllegalArgumentException("Invalid property: " + property);
+            }
+        }
+        Stream<T> entities = entities(clazz).values().stream();
+        if (null != sortBy) {
+            if (!isIdentifier(sortBy)) {
+                throw new IllegalArgumentException("Invalid sort property: " + sortBy);
+            }
+            Field field = properties(clazz).get(sortBy);
+            if (null != field && !field.getType().isPrimitive() && !Comparable.class.isAssignableFrom(field.getType())) {
+                throw new IllegalArgumentException("Cannot sort by " + sortBy + ", whose values are not ordered.");
+            }
+            Comparator<T> byProperty = Comparator.comparing(
+                    entity -> property(entity, sortBy), Comparator.nullsLast(InMemoryDAO::compareValues));
+            entities = entities.sorted(byProperty.thenComparing(Entity::getId));
+        }
+        return entities.skip(offset).limit(limit).collect(Collectors.toList());
+    }
+
+    // Stored values of one property have one type (dates are read as longs, enums as names), and page() only
+    // sorts by properties of primitive or Comparable types
+    @SuppressWarnings("unchecked")
+    private static int compareValues(Object a, Object b) {
+        return ((Comparable<Object>) a).compareTo(b);
+    }
+
+    private static boolean isIdentifier(String name) {
+        return null != name && name.matches("[A-Za-z_][A-Za-z0-9_]*");
+    }
+
+    // The value of a property as the database stores it, or null when the entity has no such property
+    private static Object property(Entity entity, String name) {
+        Field field = properties(entity.getClass()).get(name);
+        if (null == field) {
+            return null;
+        }
+        Object value;
+        try {
+            value = field.get(entity);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        } else if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        return value;
+    }
+
+    private static Map<String, Field> properties(Class<?> clazz) {
+        return PROPERTIES.computeIfAbsent(clazz, c -> {
+            ImmutableMap.Builder<String, Field> fields = ImmutableMap.builder();
+            for (Class<?> type = c; null != type && Object.class != type; type = type.getSuperclass()) {
+                for (Field field : type.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) || field.isAnnotationPresent(Relationship.class)
+                            || Entity.class.isAssignableFrom(field.getType())) {
+                        continue;
+                    }
+                    Property property = field.getAnnotation(Property.class);
+                    field.setAccessible(true);
+                    fields.put(null == property || property.name().isEmpty() ? field.getName() : property.name(), field);
+                }
+            }
+            return fields.build();
+        });
+    }
+
+    @Override
+    public <T extends Entity> long count(Class<T> clazz) {
+        return entities(clazz).size();
+    }
+
+    @Override
+    public <T extends Entity> void delete(T entity) {
+        if (null == entity.getId()) {
+            return;
+        }
+        synchronized (writeLock) {
+            if (null != entities(entity.getClass()).remove(entity.getId())) {
+                List<Object> key = naturalKeys.remove(entity.getId());
+                if (null != key) {
+                    byNaturalKey.remove(key);
+                }
+                if (entity instanceof Launch) {
+                    Rocket vehicle = storedVehicleOf((Launch) entity);
+                    if (null != vehicle && null != vehicle.getLaunches()) {
+                        vehicle.getLaunches().remove(entity);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        Long id = byNaturalKey.get(Arrays.asList(User.class, email));
+        return null == id ? null : load(User.class, id);
+    }
+
+    @Override
+    public void close() {
+        synchronized (writeLock) {
+            byClass.clear();
+            byNaturalKey.clear();
+            naturalKeys.clear();
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package rockets.dataaccess.memory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rockets.dataaccess.DAO;
+import rockets.dataaccess.neo4j.Neo4jDAO;
+import rockets.model.Entity;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+import rockets.model.User;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A compact binary copy of all providers, rockets, launches and users, for
+ * bringing up an {@link InMemoryDAO} without a database.
+ *
+ * The file starts with a dictionary holding every distinct string once;
+ * strings are then written as dictionary indexes. Each entity type lists
+ * the names of its fields, followed by its entities: the id, then each field
+ * as a primitive (ints, dates as epoch millis, enums as ordinals), a
+ * dictionary index, or the ids of the entities it refers to. Snapshots are
+ * read through a memory-mapped buffer, and fields are matched by name, so a
+ * field added to the model since a snapshot was written is left unset.
+ *
+ * Entities are hydrated field by field, as OGM does, without going through
+ * the validating constructors and setters.
+ */
+public final class Snapshot {
+    private static final Logger logger = LoggerFactory.getLogger(Snapshot.class);
+
+    private static final int MAGIC = 0x524b5453; // "RKTS"
+    private static final int VERSION = 1;
+    private static final int NULL = -1;
+    private static final long NULL_DATE = Long.MIN_VALUE;
+
+    private static final List<Class<? extends Entity>> TYPES = ImmutableList.of(
+            LaunchServiceProvider.class, Rocket.class, Launch.class, User.class);
+
+    private Snapshot() {
+    }
+
+    /**
+     * Exports the embedded store in directory <code>args[0]</code> to the
+     * snapshot file <code>args[1]</code>.
+     */
+    public static void main(String[] args) throws IOException {
+        if (2 != args.length) {
+            System.err.println("Usage: Snapshot <neo4j.dir> <snapshot file>");
+            System.exit(1);
+        }
+        DAO dao = new Neo4jDAO(args[0]);
+        try {
+            write(dao, Paths.get(args[1]));
+        } finally {
+            dao.close();
+        }
+    }
+
+    /**
+     * Writes every entity of the DAO to <code>file</code>, replacing it only
+     * once the snapshot is complete.
+     *
+     * @return the number of entities written.
+     */
+    public static long write(DAO dao, Path file) throws IOException {
+        long start = System.nanoTime();
+        Map<Class<?>, List<Entity>> entities = new LinkedHashMap<>();
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        long count = 0;
+        for (Class<? extends Entity> type : TYPES) {
+            List<Entity> all = Lists.newArrayList(dao.loadAll(type));
+            all.sort(Comparator.comparing(Entity::getId));
+            entities.put(type, all);
+            count += all.size();
+            for (Field field : fields(type)) {
+                intern(dictionary, field.getName());
+                for (Entity entity : all) {
+                    Object value = get(field, entity);
+                    if (value instanceof String) {
+                        intern(dictionary, (String) value);
+                    } else if (value instanceof Collection && isStrings(field)) {
+                        for (Object element : (Collection<?>) value) {
+                            intern(dictionary, (String) element);
+                        }
+                    }
+                }
+            }
+        }
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream stream = Files.newOutputStream(temporary);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(dictionary.size());
+            for (String string : dictionary.keySet()) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            for (Class<? extends Entity> type : TYPES) {
+                List<Field> fields = fields(type);
+                out.writeInt(fields.size());
+                for (Field field : fields) {
+                    out.writeInt(dictionary.get(field.getName()));
+                }
+                out.writeInt(entities.get(type).size());
+                for (Entity entity : entities.get(type)) {
+                    out.writeLong(entity.getId());
+                    for (Field field : fields) {
+                        writeValue(out, field, get(field, entity), dictionary);
+                    }
+                }
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        logger.info("Wrote {} entities to {} in {} ms", count, file, (System.nanoTime() - start) / 1_000_000);
+        return count;
+    }
+
+    /**
+     * Reads a snapshot into a new {@link InMemoryDAO}.
+     */
+    public static InMemoryDAO read(Path file) throws IOException {
+        long start = System.nanoTime();
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not a rockets snapshot, or one of another version: " + file);
+        }
+        String[] dictionary = new String[buffer.getInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        // References are resolved once every entity exists
+        Map<Long, Entity> byId = new LinkedHashMap<>();
+        List<Reference> references = Lists.newArrayList();
+        for (Class<? extends Entity> type : TYPES) {
+            Map<String, Field> known = new HashMap<>();
+            for (Field field : fields(type)) {
+                known.put(field.getName(), field);
+            }
+            Field[] fields = new Field[buffer.getInt()];
+            for (int i = 0; i < fields.length; i++) {
+                String name = dictionary[buffer.getInt()];
+                fields[i] = known.get(name);
+                if (null == fields[i]) {
+                    throw new IOException("Unknown field " + type.getSimpleName() + "." + name + " in " + file);
+                }
+            }
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                Entity entity = newInstance(type);
+                entity.setId(buffer.getLong());
+                for (Field field : fields) {
+                    readValue(buffer, field, entity, dictionary, references);
+                }
+                byId.put(entity.getId(), entity);
+            }
+        }
+        for (Reference reference : references) {
+            reference.resolve(byId);
+        }
+
+        InMemoryDAO dao = new InMemoryDAO();
+        dao.restore(byId.values());
+        logger.info("Read {} entities from {} in {} ms", byId.size(), file, (System.nanoTime() - start) / 1_000_000);
+        return dao;
+    }
+
+    private static void writeValue(DataOutputStream out, Field field, Object value, Map<String, Integer> dictionary)
+            throws IOException {
+        Class<?> type = field.getType();
+        if (String.class == type) {
+            out.writeInt(null == value ? NULL : dictionary.get(value));
+        } else if (int.class == type) {
+            out.writeInt((Integer) value);
+        } else if (Date.class == type) {
+            out.writeLong(null == value ? NULL_DATE : ((Date) value).getTime());
+        } else if (type.isEnum()) {
+            out.writeByte(null == value ? NULL : ((Enum<?>) value).ordinal());
+        } else if (Entity.class.isAssignableFrom(type)) {
+            out.writeLong(null == value || null == ((Entity) value).getId() ? NULL : ((Entity) value).getId());
+        } else if (Set.class == type) {
+            Collection<?> elements = (Collection<?>) value;
+            out.writeInt(null == elements ? NULL : elements.size());
+            if (null != elements) {
+                for (Object element : elements) {
+                    if (isStrings(field)) {
+                        out.writeInt(dictionary.get(element));
+                    } else {
+                        Long id = ((Entity) element).getId();
+                        out.writeLong(null == id ? NULL : id);
+                    }
+                }
+            }
+        } else {
+            throw new IllegalStateException("Unsupported field " + field);
+        }
+    }
+
+    private static void readValue(ByteBuffer in, Field field, Entity entity, String[] dictionary,
+                                  List<Reference> references) {
+        Class<?> type = field.getType();
+        if (String.class == type) {
+            int index = in.getInt();
+            set(field, entity, NULL == index ? null : dictionary[index]);
+        } else if (int.class == type) {
+            set(field, entity, in.getInt());
+        } else if (Date.class == type) {
+            long millis = in.getLong();
+            set(field, entity, NULL_DATE == millis ? null : new Date(millis));
+        } else if (type.isEnum()) {
+            byte ordinal = in.get();
+            set(field, entity, NULL == ordinal ? null : type.getEnumConstants()[ordinal]);
+        } else if (Entity.class.isAssignableFrom(type)) {
+            long id = in.getLong();
+            if (NULL != id) {
+                references.add(byId -> set(field, entity, byId.get(id)));
+            }
+        } else if (Set.class == type) {
+            int size = in.getInt();
+            if (NULL == size) {
+                return;
+            }
+            Set<Object> elements = new LinkedHashSet<>();
+            if (isStrings(field)) {
+                for (int i = 0; i < size; i++) {
+                    elements.add(dictionary[in.getInt()]);
+                }
+            } else {
+                long[] ids = new long[size];
+                for (int i = 0; i < size; i++) {
+                    ids[i] = in.getLong();
+                }
+                references.add(byId -> {
+                    for (long id : ids) {
+                        Entity element = byId.get(id);
+                        if (null != element) {
+                            elements.add(element);
+                        }
+                    }
+                });
+            }
+            set(field, entity, elements);
+        } else {
+            throw new IllegalStateException("Unsupported field " + field);
+        }
+    }
+
+    // The fields of a type and its superclasses except the id, by name
+    private static List<Field> fields(Class<?> type) {
+        List<Field> fields = Lists.newArrayList();
+        for (Class<?> c = type; Object.class != c; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !"id".equals(field.getName())) {
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+        }
+        fields.sort(Comparator.comparing(Field::getName));
+        return fields;
+    }
+
+    private static boolean isStrings(Field field) {
+        return field.getGenericType() instanceof ParameterizedType
+                && String.class == ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+    }
+
+    private static void intern(Map<String, Integer> dictionary, String string) {
+        if (null != string) {
+            dictionary.putIfAbsent(string, dictionary.size());
+        }
+    }
+
+    private static Object get(Field field, Entity entity) {
+        try {
+            return field.get(entity);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void set(Field field, Entity entity, Object value) {
+        try {
+            field.set(entity, value);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Entity newInstance(Class<? extends Entity> type) {
+        try {
+            return type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private interface Reference {
+        void resolve(Map<Long, Entity> byId);
+    }
+}
@@ -1,14 +1,19 @@
 package rockets.dataaccess.neo4j;
 
-import com.google.common.collect.Sets;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import org.neo4j.ogm.config.Configuration;
 import org.neo4j.ogm.cypher.Filter;
-import org.neo4j.ogm.cypher.Filters;
 import org.neo4j.ogm.drivers.embedded.driver.EmbeddedDriver;
 import org.neo4j.ogm.session.Session;
 import org.neo4j.ogm.session.SessionFactory;
 import org.neo4j.ogm.transaction.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import rockets.dataaccess.DAO;
+import rockets.dataaccess.MiningDAO;
 import rockets.model.Entity;
 import rockets.model.Launch;
 import rockets.model.LaunchServiceProvider;
@@ -16,21 +21,106 @@ import rockets.model.Rocket;
 import rockets.model.User;
 
 import java.io.File;
+import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static org.neo4j.ogm.cypher.ComparisonOperator.EQUALS;
 
-public class Neo4jDAO implements DAO {
+public class Neo4jDAO implements DAO, MiningDAO {
+    private static final Logger logger = LoggerFactory.getLogger(Neo4jDAO.class);
+
     private static final int DEPTH_ENTITY = 1;
+    private static final int DEPTH_PROPERTIES = 0;
+    private static final int STREAM_BATCH_SIZE = 500;
+    private static final int DEFAULT_WRITE_BATCH_SIZE = 1000;
+
+    // Keyset paging by node id: each batch starts after the last id of the previous one
+    private static final String NEXT_IDS =
+            "MATCH (n:`%s`) WHERE id(n) > $after RETURN id(n) AS id ORDER BY id(n) LIMIT $batch";
+
+    private static final String MOST_LAUNCHED_ROCKETS =
+            "MATCH (r:Rocket) OPTIONAL MATCH (r)-[:PROVIDES]->(l:Launch) " +
+            "WITH r, count(l) AS launches " +
+            "RETURN id(r) AS id ORDER BY launches DESC, id(r) LIMIT $k";
+
+    private static final String MOST_UNRELIABLE_PROVIDERS =
+            "MATCH (lsp:LaunchServiceProvider)-[:MANUFACTURES]->(:Rocket)-[:PROVIDES]->(l:Launch) " +
+            "WITH lsp.name AS name, count(l) AS total, " +
+            "sum(CASE WHEN l.launchOutcome = 'FAILED' THEN 1 ELSE 0 END) AS failed " +
+            "WHERE failed > 0 " +
+            "RETURN name ORDER BY toFloat(failed) / total DESC, name LIMIT $k";
+
+    private static final String MOST_RECENT_LAUNCHES =
+            "MATCH (l:Launch) RETURN id(l) AS id ORDER BY l.launchDate DESC, id(l) LIMIT $k";
+
+    private static final String BUSIEST_PROVIDERS_BETWEEN =
+            "MATCH (lsp:LaunchServiceProvider)-[:MANUFACTURES]->(:Rocket)-[:PROVIDES]->(l:Launch) " +
+            "WHERE l.launchDate >= $from AND l.launchDate < $to " +
+            "WITH lsp, count(l) AS launches " +
+            "RETURN id(lsp) AS id ORDER BY launches DESC, id(lsp) LIMIT $k";
+
+    private static final String MOST_EXPENSIVE_LAUNCHES =
+            "MATCH (l:Launch) RETURN id(l) AS id ORDER BY l.price DESC, id(l) LIMIT $k";
+
+    // Label, returned columns and ordering are filled in by page()
+    private static final String PAGE =
+            "MATCH (n:`%s`) RETURN id(n) AS id%s ORDER BY %sid(n) SKIP $offset LIMIT $limit";
+
+    // Natural keys, backed by the schema below. Lookups are set-based: one query per
+    // entity type for any number of keys, each key carrying its index in the batch
+    private static final String EXISTING_PROVIDERS =
+            "UNWIND $keys AS key MATCH (n:LaunchServiceProvider) " +
+            "WHERE n.name = key.name AND n.yearFounded = key.yearFounded AND n.country = key.country " +
+            "RETURN key.index AS index, min(id(n)) AS id";
+
+    private static final String EXISTING_ROCKETS =
+            "UNWIND $keys AS key MATCH (n:Rocket) WHERE n.name = key.name AND n.country = key.country " +
+            "RETURN key.index AS index, min(id(n)) AS id";
+
+    private static final String EXISTING_LAUNCHES =
+            "UNWIND $keys AS key MATCH (r:Rocket)-[:PROVIDES]->(n:Launch) " +
+            "WHERE n.launchDate = key.launchDate AND n.launchSite = key.launchSite AND id(r) = key.rocket " +
+            "RETURN key.index AS index, min(id(n)) AS id";
+
+    private static final String EXISTING_USERS =
+            "UNWIND $keys AS key MATCH (n:User) WHERE n.email = key.email " +
+            "RETURN key.index AS index, min(id(n)) AS id";
+
+    private static final Map<Class<?>, String> EXISTING_NODES = ImmutableMap.of(
+            LaunchServiceProvider.class, EXISTING_PROVIDERS,
+            Rocket.class, EXISTING_ROCKETS,
+            Launch.class, EXISTING_LAUNCHES,
+            User.class, EXISTING_USERS);
+
+    private static final List<String> SCHEMA = ImmutableList.of(
+            "CREATE INDEX ON :LaunchServiceProvider(name, yearFounded, country)",
+            "CREATE INDEX ON :Rocket(name, country)",
+            "CREATE INDEX ON :Launch(launchDate, launchSite)",
+            "CREATE INDEX ON :Launch(launchDate)");
+    private static final String UNIQUE_EMAILS = "CREATE CONSTRAINT ON (u:User) ASSERT u.email IS UNIQUE";
+    private static final String EMAIL_INDEX = "CREATE INDEX ON :User(email)";
 
-    private Session session;
     private SessionFactory sessionFactory;
+    // OGM sessions are not thread-safe: each thread works with a session of its own
+    private final ThreadLocal<Session> sessions = ThreadLocal.withInitial(() -> sessionFactory.openSession());
+    private int writeBatchSize = DEFAULT_WRITE_BATCH_SIZE;
 
     public Neo4jDAO(SessionFactory sessionFactory) {
         this.sessionFactory = sessionFactory;
-        if (null == session) {
-            session = sessionFactory.openSession();
-        }
+        createSchema();
     }
 
     public Neo4jDAO(String dbAddress) {
@@ -44,36 +134,261 @@ public class Neo4jDAO implements DAO {
         driver.configure(configuration);
 
         sessionFactory = new SessionFactory(driver, User.class.getPackage().getName());
-        session = sessionFactory.openSession();
+        createSchema();
+    }
+
+    /**
+     * Ends the calling thread's session. The next call on this thread opens a
+     * new one, so entities loaded before are no longer tracked. Call it when
+     * a unit of work, such as a web request, is done.
+     */
+    public void releaseSession() {
+        sessions.remove();
+    }
+
+    private Session session() {
+        return sessions.get();
+    }
+
+    // Indexes natural keys so that matching existing entities is a point lookup; existing ones are kept.
+    // A database that already holds users sharing an email cannot take the constraint, so it gets a plain
+    // index on emails instead, and still opens
+    private void createSchema() {
+        for (String statement : SCHEMA) {
+            session().query(statement, Collections.emptyMap());
+        }
+        try {
+            session().query(UNIQUE_EMAILS, Collections.emptyMap());
+        } catch (RuntimeException e) {
+            logger.warn("Emails are not unique, so they are indexed without a constraint: {}", e.getMessage());
+            releaseSession();
+            session().query(EMAIL_INDEX, Collections.emptyMap());
+        }
+        session().query("CALL db.awaitIndexes()", Collections.emptyMap());
     }
 
     @Override
     public <T extends Entity> T load(Class<T> clazz, Long id) {
-        return session.load(clazz, id, DEPTH_ENTITY);
+        return session().load(clazz, id, DEPTH_ENTITY);
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id, int depth) {
+        return session().load(clazz, id, checkDepth(depth));
     }
 
     @Override
     public <T extends Entity> T createOrUpdate(T entity) {
         Class clazz = entity.getClass();
 
-        T existingEntity = findExistingEntity(entity, clazz);
-        if (null != existingEntity) {
-            entity.setId(existingEntity.getId());
+        Long existingId = findExistingId(entity);
+        if (null != existingId) {
+            entity.setId(existingId);
 
             //This code will make User cannot update the user property if they have same email
-            if(existingEntity.getClass().equals(User.class))
+            if(clazz.equals(User.class))
             {
                 return entity;
             }
         }
 
-        Transaction tx = session.beginTransaction();
-        saveOutgoingEntities(entity, clazz);
-        session.save(entity);
-        tx.commit();
+        // Cascaded saves run in the transaction of the outermost call
+        if (null != session().getTransaction()) {
+            saveOutgoingEntities(entity, clazz);
+            session().save(entity);
+            return entity;
+        }
+        try (Transaction tx = session().beginTransaction()) {
+            saveOutgoingEntities(entity, clazz);
+            session().save(entity);
+            tx.commit();
+        }
         return entity;
     }
 
+    /**
+     * Sets how many entities {@link #createOrUpdateAll(Collection)} writes per transaction.
+     */
+    public void setWriteBatchSize(int writeBatchSize) {
+        if (writeBatchSize < 1) {
+            throw new IllegalArgumentException("writeBatchSize must be positive.");
+        }
+        this.writeBatchSize = writeBatchSize;
+    }
+
+    /**
+     * Saves the entities and everything reachable from them (providers,
+     * rockets, launches), matching existing nodes as {@link #createOrUpdate(Entity)}
+     * does. Existing nodes are found with one query per entity type rather
+     * than one per entity, and the writes go out <code>writeBatchSize</code>
+     * entities per transaction.
+     *
+     * Users equal to one another within the input are saved once. Equal new
+     * providers, rockets or launches are rejected before anything is written:
+     * the graph is saved through the references between them, which would
+     * reach each copy and create a node for it.
+     *
+     * @throws IllegalArgumentException if two new providers, rockets or
+     * launches reachable from the input have the same natural key.
+     */
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities) {
+        BulkWrite write = new BulkWrite();
+        for (Entity entity : entities) {
+            write.collect(entity);
+        }
+
+        write.resolve(write.providers);
+        write.resolve(write.rockets);
+        write.resolve(write.launches);
+        List<User> existingUsers = write.resolve(write.users);
+
+        List<Entity> pending = Lists.newArrayList();
+        pending.addAll(write.providers);
+        pending.addAll(write.rockets);
+        pending.addAll(write.launches);
+        for (User user : write.users) {
+            // as in createOrUpdate, an existing user is not updated
+            if (!existingUsers.contains(user)) {
+                pending.add(user);
+            }
+        }
+        for (List<Entity> batch : Lists.partition(pending, writeBatchSize)) {
+            try (Transaction tx = session().beginTransaction()) {
+                session().save(batch, DEPTH_ENTITY);
+                tx.commit();
+            }
+        }
+        write.copyIdsToDuplicates();
+        return entities;
+    }
+
+    /**
+     * Writes the entities without their relationships, <code>writeBatchSize</code>
+     * entities per transaction.
+     */
+    @Override
+    public <T extends Entity> void updateProperties(Collection<T> entities) {
+        for (T entity : entities) {
+            if (null == entity.getId()) {
+                throw new IllegalArgumentException("Only saved entities can have their properties updated.");
+            }
+        }
+        for (List<T> batch : Lists.partition(Lists.newArrayList(entities), writeBatchSize)) {
+            try (Transaction tx = session().beginTransaction()) {
+                session().save(batch, DEPTH_PROPERTIES);
+                tx.commit();
+            }
+        }
+    }
+
+    // A lookup key from alternating names and values; values may be null
+    private static Map<String, Object> key(Object... namesAndValues) {
+        Map<String, Object> key = new HashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            key.put((String) namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return key;
+    }
+
+    // The entities of a bulk write, by type, with repeated users mapped to the first equal one
+    private class BulkWrite {
+        private final Set<Entity> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Map<Entity, Entity> duplicates = new IdentityHashMap<>();
+        private final List<LaunchServiceProvider> providers = Lists.newArrayList();
+        private final List<Rocket> rockets = Lists.newArrayList();
+        private final List<Launch> launches = Lists.newArrayList();
+        private final List<User> users = Lists.newArrayList();
+
+        private void collect(Entity entity) {
+            if (null == entity || !seen.add(entity)) {
+                return;
+            }
+            if (entity instanceof LaunchServiceProvider) {
+                LaunchServiceProvider lsp = (LaunchServiceProvider) entity;
+                providers.add(lsp);
+                if (null != lsp.getRockets()) {
+                    lsp.getRockets().forEach(this::collect);
+                }
+            } else if (entity instanceof Rocket) {
+                Rocket rocket = (Rocket) entity;
+                rockets.add(rocket);
+                collectIfNew(rocket.getManufacturer());
+                if (null != rocket.getLaunches()) {
+                    rocket.getLaunches().forEach(this::collect);
+                }
+            } else if (entity instanceof Launch) {
+                Launch launch = (Launch) entity;
+                launches.add(launch);
+                collectIfNew(launch.getLaunchVehicle());
+                collectIfNew(launch.getLaunchServiceProvider());
+            } else if (entity instanceof User) {
+                users.add((User) entity);
+            }
+        }
+
+        // Saved entities that are only referenced are linked to, not saved again with all they own
+        private void collectIfNew(Entity referenced) {
+            if (null != referenced && null == referenced.getId()) {
+                collect(referenced);
+            }
+        }
+
+        /**
+         * Sets the ids of unsaved entities matching existing nodes and moves
+         * users with the same key as an earlier one out of <code>group</code>.
+         * Entities that already have an id are kept as they are.
+         *
+         * @throws IllegalArgumentException if a new provider, rocket or launch
+         * has the same key as an earlier one.
+         *
+         * @return the entities that matched existing nodes.
+         */
+        private <E extends Entity> List<E> resolve(List<E> group) {
+            Map<Map<String, ?>, E> firstByKey = new HashMap<>();
+            List<E> distinct = Lists.newArrayList();
+            List<Map<String, Object>> keys = Lists.newArrayList();
+            for (E entity : group) {
+                Map<String, ?> key = null == entity.getId() ? naturalKey(entity) : null;
+                if (null == key) {
+                    distinct.add(entity);
+                    continue;
+                }
+                E first = firstByKey.putIfAbsent(key, entity);
+                if (null != first) {
+                    if (!(entity instanceof User)) {
+                        throw new IllegalArgumentException("Equal new entities cannot be saved together: " + entity);
+                    }
+                    duplicates.put(entity, first);
+                    continue;
+                }
+                Map<String, Object> indexed = new HashMap<>(key);
+                indexed.put("index", distinct.size());
+                keys.add(indexed);
+                distinct.add(entity);
+            }
+            group.clear();
+            group.addAll(distinct);
+
+            List<E> existing = Lists.newArrayList();
+            if (!keys.isEmpty()) {
+                String cypher = EXISTING_NODES.get(group.get(0).getClass());
+                for (Map<String, Object> row : session().query(cypher, ImmutableMap.of("keys", keys)).queryResults()) {
+                    E entity = group.get(((Number) row.get("index")).intValue());
+                    entity.setId(((Number) row.get("id")).longValue());
+                    existing.add(entity);
+                }
+            }
+            return existing;
+        }
+
+        private void copyIdsToDuplicates() {
+            for (Map.Entry<Entity, Entity> duplicate : duplicates.entrySet()) {
+                duplicate.getKey().setId(duplicate.getValue().getId());
+            }
+        }
+    }
+
     // Makes sure we save associated entities correctly (only once)
     private <T extends Entity> void saveOutgoingEntities(T entity, Class clazz) {
         if (clazz.equals(Rocket.class)) {
@@ -89,52 +404,173 @@ public class Neo4jDAO implements DAO {
         }
     }
 
-    private <T extends Entity> T findExistingEntity(Entity entity, Class clazz) {
-        Entity existingEntity = null;
-        Filters filters = new Filters();
-        Collection<? extends Entity> collection = Sets.newLinkedHashSet();
-        if (clazz.equals(Rocket.class)) {
+    private Long findExistingId(Entity entity) {
+        Map<String, Object> key = naturalKey(entity);
+        if (null == key) {
+            return null;
+        }
+        key.put("index", 0);
+        String cypher = EXISTING_NODES.get(entity.getClass());
+        for (Map<String, Object> row : session().query(cypher, ImmutableMap.of("keys", ImmutableList.of(key))).queryResults()) {
+            return ((Number) row.get("id")).longValue();
+        }
+        return null;
+    }
+
+    // The natural key an entity is matched on, or null when it cannot match an existing node
+    private static Map<String, Object> naturalKey(Entity entity) {
+        if (entity instanceof LaunchServiceProvider) {
+            LaunchServiceProvider lsp = (LaunchServiceProvider) entity;
+            return key("name", lsp.getName(), "yearFounded", lsp.getYearFounded(), "country", lsp.getCountry());
+        } else if (entity instanceof Rocket) {
             Rocket rocket = (Rocket) entity;
-            filters.add(new Filter("name", EQUALS, rocket.getName()))
-                    .and(new Filter("country", EQUALS, rocket.getCountry()));
-            collection = session.loadAll(Rocket.class, filters);
-        } else if (clazz.equals(User.class)) {
-            User user = (User) entity;
-            filters.add(new Filter("email", EQUALS, user.getEmail()));
-            collection = session.loadAll(User.class, filters);
-        } else if (clazz.equals(Launch.class)) {
+            return key("name", rocket.getName(), "country", rocket.getCountry());
+        } else if (entity instanceof Launch) {
             Launch launch = (Launch) entity;
-            filters.add(new Filter("launchDate", EQUALS, launch.getLaunchDate()))
-                    .and(new Filter("launchVehicle", EQUALS, launch.getLaunchVehicle()))
-                    .and(new Filter("launchSite", EQUALS, launch.getLaunchSite()))
-                    .and(new Filter("launchOutcome", EQUALS, launch.getLaunchOutcome()));
-            collection = session.loadAll(Launch.class, filters);
-        } else if (clazz.equals(LaunchServiceProvider.class)) {
-            LaunchServiceProvider lsp = (LaunchServiceProvider) entity;
-            filters.add(new Filter("name", EQUALS, lsp.getName()))
-                    .and(new Filter("yearFounded", EQUALS, lsp.getYearFounded()))
-                    .and(new Filter("country", EQUALS, lsp.getCountry()));
-            collection = session.loadAll(LaunchServiceProvider.class, filters);
+            Rocket vehicle = launch.getLaunchVehicle();
+            if (null == vehicle || null == vehicle.getId() || null == launch.getLaunchDate()) {
+                return null; // a launch of an unsaved rocket cannot exist yet
+            }
+            return key("launchDate", launch.getLaunchDate().getTime(), "launchSite", launch.getLaunchSite(),
+                    "rocket", vehicle.getId());
+        } else if (entity instanceof User) {
+            return key("email", ((User) entity).getEmail());
         }
+        return null;
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        return session().loadAll(clazz);
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz, int depth) {
+        return session().loadAll(clazz, checkDepth(depth));
+    }
+
+    @Override
+    public <T extends Entity> List<T> loadPage(Class<T> clazz, int offset, int limit, String sortBy) {
+        String cypher = page(clazz, Collections.emptyList(), offset, limit, sortBy);
+        return loadRanked(clazz, cypher, ImmutableMap.of("offset", offset, "limit", limit));
+    }
 
-        if (!collection.isEmpty()) {
-            existingEntity = collection.iterator().next();
+    @Override
+    public <T extends Entity> List<Map<String, Object>> loadProperties(Class<T> clazz, List<String> properties,
+                                                                       int offset, int limit, String sortBy) {
+        String cypher = page(clazz, properties, offset, limit, sortBy);
+        List<Map<String, Object>> rows = Lists.newArrayList();
+        for (Map<String, Object> row : session().query(cypher, ImmutableMap.of("offset", offset, "limit", limit)).queryResults()) {
+            Map<String, Object> projected = new LinkedHashMap<>();
+            projected.put("id", row.get("id"));
+            for (String property : properties) {
+                projected.put(property, row.get(property));
+            }
+            rows.add(projected);
+        }
+        return rows;
+    }
+
+    // Property names are spliced into the query, so only plain identifiers are accepted
+    private static String page(Class<?> clazz, List<String> properties, int offset, int limit, String sortBy) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit cannot be negative.");
+        }
+        StringBuilder columns = new StringBuilder();
+        for (String property : properties) {
+            if (!isIdentifier(property) || "id".equals(property)) {
+                throw new IllegalArgumentException("Invalid property: " + property);
+            }
+            columns.append(String.format(", n.`%1$s` AS `%1$s`", property));
+        }
+        String order = "";
+        if (null != sortBy) {
+            if (!isIdentifier(sortBy)) {
+                throw new IllegalArgumentException("Invalid sort property: " + sortBy);
+            }
+            order = String.format("n.`%s`, ", sortBy);
         }
-        return (T) existingEntity;
+        return String.format(PAGE, clazz.getSimpleName(), columns, order);
+    }
+
+    private static boolean isIdentifier(String name) {
+        return null != name && name.matches("[A-Za-z_][A-Za-z0-9_]*");
+    }
+
+    private static int checkDepth(int depth) {
+        if (depth < -1) {
+            throw new IllegalArgumentException("depth must be -1 (unlimited) or more.");
+        }
+        return depth;
     }
 
     @Override
-    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
-        return session.loadAll(clazz);
+    public <T extends Entity> long count(Class<T> clazz) {
+        return session().countEntitiesOfType(clazz);
+    }
+
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz) {
+        return stream(clazz, STREAM_BATCH_SIZE);
+    }
+
+    /**
+     * Streams all entities of a class in id order, loading <code>batchSize</code>
+     * of them at a time into a session of their own. That session is cleared
+     * before each batch and when the stream is closed, so only one batch is
+     * held in memory by the DAO.
+     */
+    public <T extends Entity> Stream<T> stream(Class<T> clazz, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive.");
+        }
+        Session cursor = sessionFactory.openSession();
+        String cypher = String.format(NEXT_IDS, clazz.getSimpleName());
+
+        Iterator<T> entities = new AbstractIterator<T>() {
+            private Iterator<T> batch = Lists.<T>newArrayList().iterator();
+            private long after = -1;
+            private boolean exhausted;
+
+            @Override
+            protected T computeNext() {
+                while (!batch.hasNext()) {
+                    if (exhausted) {
+                        return endOfData();
+                    }
+                    batch = nextBatch();
+                }
+                return batch.next();
+            }
+
+            private Iterator<T> nextBatch() {
+                List<Long> ids = Lists.newArrayListWithCapacity(batchSize);
+                for (Map<String, Object> row : cursor.query(cypher, ImmutableMap.of("after", after, "batch", batchSize)).queryResults()) {
+                    ids.add(((Number) row.get("id")).longValue());
+                }
+                exhausted = ids.size() < batchSize;
+                if (ids.isEmpty()) {
+                    return Lists.<T>newArrayList().iterator();
+                }
+                after = ids.get(ids.size() - 1);
+
+                cursor.clear();
+                List<T> loaded = Lists.newArrayList(cursor.loadAll(clazz, ids, DEPTH_ENTITY));
+                loaded.sort(Comparator.comparing(Entity::getId));
+                return loaded.iterator();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(entities, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(cursor::clear);
     }
 
     //TODO: need to be tested!
     public <T extends Entity> void delete(T entity) {
-        session.delete(entity);
+        session().delete(entity);
     }
 
    /* public <T extends Entity> void delete(T entity) {
-        session.delete(entity);
+        session().delete(entity);
 
         if (entity.getClass().equals(Launch.class)){
             Rocket rocket = ((Launch)entity).getLaunchVehicle();
@@ -152,7 +588,7 @@ public class Neo4jDAO implements DAO {
 
     @Override
     public User getUserByEmail(String email) {
-        Collection<User> users = session.loadAll(User.class, new Filter("email", EQUALS, email));
+        Collection<User> users = session().loadAll(User.class, new Filter("email", EQUALS, email));
 
         if (null == users || users.isEmpty()) {
             return null;
@@ -165,4 +601,65 @@ public class Neo4jDAO implements DAO {
     public void close() {
         sessionFactory.close();
     }
+
+    @Override
+    public List<Rocket> findMostLaunchedRockets(int k) {
+        return loadRanked(Rocket.class, MOST_LAUNCHED_ROCKETS, ImmutableMap.of("k", k));
+    }
+
+    @Override
+    public List<String> findMostUnreliableLaunchServiceProviders(int k) {
+        List<String> names = Lists.newArrayList();
+        for (Map<String, Object> row : session().query(MOST_UNRELIABLE_PROVIDERS, ImmutableMap.of("k", k)).queryResults()) {
+            names.add((String) row.get("name"));
+        }
+        return names;
+    }
+
+    @Override
+    public List<Launch> findMostRecentLaunches(int k) {
+        return loadRanked(Launch.class, MOST_RECENT_LAUNCHES, ImmutableMap.of("k", k));
+    }
+
+    @Override
+    public List<LaunchServiceProvider> findBusiestLaunchServiceProvidersInMonth(int k, int year, int month) {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(year, month - 1, 1);
+        long from = cal.getTimeInMillis();
+        cal.add(Calendar.MONTH, 1);
+        long to = cal.getTimeInMillis();
+
+        return loadRanked(LaunchServiceProvider.class, BUSIEST_PROVIDERS_BETWEEN,
+                ImmutableMap.of("k", k, "from", from, "to", to));
+    }
+
+    @Override
+    public List<Launch> findMostExpensiveLaunches(int k) {
+        return loadRanked(Launch.class, MOST_EXPENSIVE_LAUNCHES, ImmutableMap.of("k", k));
+    }
+
+    // Runs a ranking query returning an "id" column and loads just those entities, in rank order
+    private <T extends Entity> List<T> loadRanked(Class<T> clazz, String cypher, Map<String, ?> parameters) {
+        List<Long> ids = Lists.newArrayList();
+        for (Map<String, Object> row : session().query(cypher, parameters).queryResults()) {
+            ids.add(((Number) row.get("id")).longValue());
+        }
+        if (ids.isEmpty()) {
+            return Lists.newArrayList();
+        }
+
+        Map<Long, T> byId = new HashMap<>();
+        for (T entity : session().loadAll(clazz, ids, DEPTH_ENTITY)) {
+            byId.put(entity.getId(), entity);
+        }
+        List<T> ranked = Lists.newArrayListWithCapacity(ids.size());
+        for (Long id : ids) {
+            T entity = byId.get(id);
+            if (null != entity) {
+                ranked.add(entity);
+            }
+        }
+        return ranked;
+    }
 }
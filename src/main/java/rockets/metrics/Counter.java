@@ -0,0 +1,26 @@
+package rockets.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count that only goes up. Increments from many threads are striped, so
+ * they do not contend.
+ */
+public final class Counter {
+    private final LongAdder count = new LongAdder();
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("A counter cannot go down.");
+        }
+        count.add(n);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,182 @@
+package rockets.metrics;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.DoubleSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Named counters, gauges and latency histograms, each family of metrics
+ * split by label values, written out in the Prometheus text exposition
+ * format.
+ *
+ * Labels are given as name, value pairs. Looking a metric up is a
+ * concurrent map read; callers on hot paths keep the metric they get and
+ * record into it directly. Histograms are written as summaries in seconds,
+ * with quantiles over everything recorded since they were created.
+ */
+public class MetricsRegistry {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final Pattern NAME = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+    private static final Pattern LABEL_NAME = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+    private static final double[] QUANTILES = {0.5, 0.9, 0.95, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private enum Type {
+        COUNTER, GAUGE, SUMMARY
+    }
+
+    private final ConcurrentMap<String, Family> families = new ConcurrentHashMap<>();
+
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, Type.COUNTER).metrics.computeIfAbsent(labels(labels), key -> new Counter());
+    }
+
+    /**
+     * @return the histogram, recording nanoseconds, of the given summary; its
+     * name should end in "_seconds".
+     */
+    public Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) family(name, help, Type.SUMMARY).metrics.computeIfAbsent(labels(labels), key -> new Histogram());
+    }
+
+    /**
+     * Registers a gauge read from <code>value</code> whenever metrics are
+     * written, replacing any gauge with the same name and labels.
+     */
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.GAUGE).metrics.put(labels(labels), value);
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.get(name);
+        if (null == family) {
+            if (!NAME.matcher(name).matches()) {
+                throw new IllegalArgumentException("Invalid metric name " + name);
+            }
+            family = families.computeIfAbsent(name, key -> new Family(help, type));
+        }
+        if (family.type != type) {
+            throw new IllegalArgumentException(name + " is a " + family.type.name().toLowerCase() + ", not a "
+                    + type.name().toLowerCase());
+        }
+        return family;
+    }
+
+    private static List<String> labels(String[] labels) {
+        if (0 != labels.length % 2) {
+            throw new IllegalArgumentException("Labels must be name, value pairs.");
+        }
+        for (int i = 0; i < labels.length; i += 2) {
+            if (!LABEL_NAME.matcher(labels[i]).matches() || labels[i].startsWith("__") || "quantile".equals(labels[i])) {
+                throw new IllegalArgumentException("Invalid label name " + labels[i]);
+            }
+            if (null == labels[i + 1]) {
+                throw new IllegalArgumentException("Label " + labels[i] + " has no value.");
+            }
+        }
+        return ImmutableList.copyOf(labels);
+    }
+
+    /**
+     * Writes all metrics, families in order of name and metrics in order of
+     * label values.
+     */
+    public void write(Writer out) throws IOException {
+        for (Map.Entry<String, Family> entry : new TreeMap<>(families).entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            out.write("# HELP " + name + " " + family.help.replace("\\", "\\\\").replace("\n", "\\n") + "\n");
+            out.write("# TYPE " + name + " " + family.type.name().toLowerCase() + "\n");
+
+            Map<String, Object> sorted = new TreeMap<>();
+            family.metrics.forEach((labels, metric) -> sorted.put(format(labels), metric));
+            for (Map.Entry<String, Object> metric : sorted.entrySet()) {
+                String labels = metric.getKey();
+                switch (family.type) {
+                    case COUNTER:
+                        sample(out, name, labels, ((Counter) metric.getValue()).get());
+                        break;
+                    case GAUGE:
+                        sample(out, name, labels, ((DoubleSupplier) metric.getValue()).getAsDouble());
+                        break;
+                    default:
+                        Histogram histogram = (Histogram) metric.getValue();
+                        long count = histogram.getCount();
+                        for (double quantile : QUANTILES) {
+                            String withQuantile = "quantile=\"" + quantile + "\"";
+                            sample(out, name, labels.isEmpty() ? withQuantile : labels + "," + withQuantile,
+                                    0 == count ? Double.NaN : histogram.getValueAtQuantile(quantile) / NANOS_PER_SECOND);
+                        }
+                        sample(out, name + "_sum", labels, histogram.getSum() / NANOS_PER_SECOND);
+                        sample(out, name + "_count", labels, count);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return all metrics, as {@link #write(Writer)} writes them.
+     */
+    public String scrape() {
+        StringWriter out = new StringWriter();
+        try {
+            write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    private static void sample(Writer out, String name, String labels, double value) throws IOException {
+        out.write(name);
+        if (!labels.isEmpty()) {
+            out.write("{" + labels + "}");
+        }
+        out.write(" ");
+        if (Double.isNaN(value)) {
+            out.write("NaN");
+        } else if (Double.isInfinite(value)) {
+            out.write(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.write(Long.toString((long) value));
+        } else {
+            out.write(Double.toString(value));
+        }
+        out.write("\n");
+    }
+
+    private static String format(List<String> labels) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < labels.size(); i += 2) {
+            if (i > 0) {
+                result.append(',');
+            }
+            result.append(labels.get(i)).append("=\"")
+                    .append(labels.get(i + 1).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                    .append('"');
+        }
+        return result.toString();
+    }
+
+    private static final class Family {
+        private final String help;
+        private final Type type;
+        private final ConcurrentMap<List<String>, Object> metrics = new ConcurrentHashMap<>();
+
+        private Family(String help, Type type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package rockets.mining;
+
+import com.google.common.collect.Lists;
+import rockets.dataaccess.DAO;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The {@link RocketMiner} launch queries, as primitive scans over the
+ * {@link LaunchColumns} of a {@link LaunchSnapshot} or a {@link LaunchStore},
+ * loading only the launches, rockets and providers they return. Ties are
+ * broken by {@link LaunchColumns#sequence(int)}, so results and tie order
+ * match the scans over loaded launches.
+ */
+class ColumnQueries {
+    private final LaunchColumns columns;
+    private final DAO dao;
+
+    ColumnQueries(LaunchColumns columns, DAO dao) {
+        this.columns = columns;
+        this.dao = dao;
+    }
+
+    List<String> mostUnreliableLaunchServiceProviders(int k) {
+        int size = columns.size();
+        int names = columns.providerNameCount();
+        int[] failed = new int[names];
+        int[] total = new int[names];
+        int[] firstSeen = new int[names];
+        Arrays.fill(firstSeen, Integer.MAX_VALUE);
+
+        for (int row = 0; row < size; row++) {
+            int provider = columns.provider(row);
+            if (LaunchSnapshot.NONE != provider) {
+                int name = columns.providerNameCode(provider);
+                total[name]++;
+                if (LaunchSnapshot.FAILED == columns.outcome(row)) {
+                    failed[name]++;
+                }
+                firstSeen[name] = Math.min(firstSeen[name], columns.sequence(row));
+            }
+        }
+
+        // failed[a] / total[a] > failed[b] / total[b], compared without division
+        TopK<Integer> topK = new TopK<>(k, (a, b) -> Long.compare((long) failed[b] * total[a], (long) failed[a] * total[b]));
+        for (int name = 0; name < names; name++) {
+            if (failed[name] > 0) {
+                topK.offer(name, firstSeen[name]);
+            }
+        }
+
+        List<String> result = Lists.newArrayList();
+        for (int name : topK.toList()) {
+            result.add(columns.providerNameOf(name));
+        }
+        return result;
+    }
+
+    List<Launch> mostRecentLaunches(int k) {
+        return load(TopRows.select(0, columns.size(), k, columns::launchDate, columns::sequence));
+    }
+
+    List<Launch> mostExpensiveLaunches(int k) {
+        return load(TopRows.select(0, columns.size(), k, columns::price, columns::sequence));
+    }
+
+    List<LaunchServiceProvider> busiestLaunchServiceProviders(int k, long fromMillis, long toMillis) {
+        int providers = columns.providerCount();
+        int[] counts = new int[providers];
+        int[] firstRow = new int[providers];
+
+        for (int row = columns.scanStart(fromMillis), to = columns.scanEnd(toMillis); row < to; row++) {
+            long date = columns.launchDate(row);
+            int provider = columns.provider(row);
+            if (date >= fromMillis && date < toMillis && LaunchSnapshot.NONE != provider
+                    && (0 == counts[provider]++ || compareRows(row, firstRow[provider]) < 0)) {
+                firstRow[provider] = row;
+            }
+        }
+
+        // ties go to the provider launching first, as in a scan in date order
+        List<Integer> launched = Lists.newArrayList();
+        for (int provider = 0; provider < providers; provider++) {
+            if (counts[provider] > 0) {
+                launched.add(provider);
+            }
+        }
+        launched.sort((a, b) -> compareRows(firstRow[a], firstRow[b]));
+        TopK<Integer> topK = new TopK<>(k, Comparator.comparingInt((Integer p) -> counts[p]).reversed());
+        for (int provider : launched) {
+            topK.offer(provider);
+        }
+
+        List<LaunchServiceProvider> result = Lists.newArrayList();
+        for (int provider : topK.toList()) {
+            result.add(dao.load(LaunchServiceProvider.class, columns.providerId(provider)));
+        }
+        return result;
+    }
+
+    List<Rocket> rocketsWithPlannedLaunches(int minimum, long nowMillis) {
+        int rockets = columns.rocketCount();
+        int[] counts = new int[rockets];
+        int[] firstRow = new int[rockets];
+        for (int row = columns.scanStart(nowMillis + 1), size = columns.size(); row < size; row++) {
+            int rocket = columns.rocket(row);
+            if (columns.launchDate(row) > nowMillis && LaunchSnapshot.NONE != rocket
+                    && (0 == counts[rocket]++ || compareRows(row, firstRow[rocket]) < 0)) {
+                firstRow[rocket] = row;
+            }
+        }
+
+        // in order of first planned launch
+        List<Integer> planned = Lists.newArrayList();
+        for (int rocket = 0; rocket < rockets; rocket++) {
+            if (counts[rocket] > 0 && counts[rocket] >= minimum) {
+                planned.add(rocket);
+            }
+        }
+        planned.sort((a, b) -> compareRows(firstRow[a], firstRow[b]));
+
+        List<Rocket> result = Lists.newArrayList();
+        for (int rocket : planned) {
+            result.add(dao.load(Rocket.class, columns.rocketId(rocket)));
+        }
+        return result;
+    }
+
+    // Orders rows by launch date, then by sequence
+    private int compareRows(int a, int b) {
+        int byDate = Long.compare(columns.launchDate(a), columns.launchDate(b));
+        return 0 != byDate ? byDate : Integer.compare(columns.sequence(a), columns.sequence(b));
+    }
+
+    private List<Launch> load(int[] rows) {
+        List<Launch> launches = Lists.newArrayListWithCapacity(rows.length);
+        for (int row : rows) {
+            launches.add(dao.load(Launch.class, columns.launchId(row)));
+        }
+        return launches;
+    }
+}
@@ -0,0 +1,62 @@
+package rockets.mining;
+
+/**
+ * Column access to a launch history, one row per launch, shared by the
+ * columnar launch stores so that {@link ColumnQueries} scans them all alike.
+ *
+ * Rockets, providers and provider names are dictionary coded: a row holds
+ * consecutive codes starting at 0, or {@link LaunchSnapshot#NONE}.
+ */
+interface LaunchColumns {
+    int size();
+
+    long launchId(int row);
+
+    /**
+     * @return the position of the row's launch in the order of the loaded
+     * launches, by which ties are broken.
+     */
+    int sequence(int row);
+
+    long launchDate(int row);
+
+    int price(int row);
+
+    byte outcome(int row);
+
+    int rocket(int row);
+
+    int provider(int row);
+
+    int rocketCount();
+
+    long rocketId(int code);
+
+    int providerCount();
+
+    long providerId(int code);
+
+    /**
+     * Providers with the same name share a name code.
+     */
+    int providerNameCode(int providerCode);
+
+    /**
+     * @return an upper bound of the name codes.
+     */
+    int providerNameCount();
+
+    String providerNameOf(int nameCode);
+
+    /**
+     * @return a row before which every row was launched before
+     * <code>millis</code>, so that a scan for later launches can start there.
+     */
+    int scanStart(long millis);
+
+    /**
+     * @return a row from which every row was launched at or after
+     * <code>millis</code>, so that a scan for earlier launches can end there.
+     */
+    int scanEnd(long millis);
+}
@@ -0,0 +1,309 @@
+package rockets.mining;
+
+import rockets.model.Entity;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Read-only, column-oriented copy of the launch history for analytical scans.
+ *
+ * Every launch becomes one row of primitive columns (epoch-millis date,
+ * price, outcome and dictionary codes for rocket, provider, site and orbit),
+ * so scans are tight loops over arrays rather than walks over OGM objects.
+ * Launches themselves are not retained: a row keeps the launch id, which is
+ * enough to load the few launches a query returns. Rockets and providers are
+ * likewise coded by entity id, as in a {@link LaunchStore}, and provider
+ * names, sites and orbits are stored once each in the dictionaries.
+ *
+ * Rows are sorted by launch date; {@link #sequence(int)} keeps the position
+ * each launch had in the input so ties can be broken exactly as a scan over
+ * the input would.
+ */
+public final class LaunchSnapshot implements LaunchColumns {
+    public static final int NONE = -1;
+
+    public static final byte NO_OUTCOME = 0;
+    public static final byte FAILED = outcomeCode(Launch.LaunchOutcome.FAILED);
+    public static final byte SUCCESSFUL = outcomeCode(Launch.LaunchOutcome.SUCCESSFUL);
+
+    private final long[] launchIds;
+    private final int[] sequences;
+    private final long[] dates;
+    private final int[] prices;
+    private final byte[] outcomes;
+    private final int[] rocketCodes;
+    private final int[] providerCodes;
+    private final int[] siteCodes;
+    private final int[] orbitCodes;
+
+    private final long[] rocketIds;
+    private final long[] providerIds;
+    private final int[] providerNameCodes;
+    private final List<String> providerNames;
+    private final List<String> sites;
+    private final List<String> orbits;
+
+    private LaunchSnapshot(int size, Dictionary<Long> rockets, Dictionary<Long> providers, List<String> namesOfProviders,
+                           Dictionary<String> providerNames, Dictionary<String> sites, Dictionary<String> orbits) {
+        this.launchIds = new long[size];
+        this.sequences = new int[size];
+        this.dates = new long[size];
+        this.prices = new int[size];
+        this.outcomes = new byte[size];
+        this.rocketCodes = new int[size];
+        this.providerCodes = new int[size];
+        this.siteCodes = new int[size];
+        this.orbitCodes = new int[size];
+
+        this.rocketIds = rockets.values.stream().mapToLong(Long::longValue).toArray();
+        this.providerIds = providers.values.stream().mapToLong(Long::longValue).toArray();
+        this.providerNames = providerNames.values;
+        this.sites = sites.values;
+        this.orbits = orbits.values;
+        this.providerNameCodes = new int[providerIds.length];
+        for (int i = 0; i < providerNameCodes.length; i++) {
+            providerNameCodes[i] = providerNames.code(namesOfProviders.get(i));
+        }
+    }
+
+    /**
+     * Copies the given launches into a new snapshot. Launches must have been
+     * saved (have an id) and have a launch date, and so must their rockets
+     * and the rockets' manufacturers, if any.
+     */
+    public static LaunchSnapshot build(Iterable<Launch> launches) {
+        List<Launch> input = new ArrayList<>();
+        for (Launch launch : launches) {
+            if (null == launch.getId() || null == launch.getLaunchDate()) {
+                throw new IllegalArgumentException("Launch must have an id and a launch date.");
+            }
+            Rocket rocket = launch.getLaunchVehicle();
+            LaunchServiceProvider provider = null == rocket ? null : rocket.getManufacturer();
+            if ((null != rocket && null == rocket.getId()) || (null != provider && null == provider.getId())) {
+                throw new IllegalArgumentException("The launch vehicle and its manufacturer must have been saved.");
+            }
+            input.add(launch);
+        }
+
+        Integer[] order = new Integer[input.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> input.get(i).getLaunchDate()));
+
+        Dictionary<Long> rockets = new Dictionary<>();
+        Dictionary<Long> providers = new Dictionary<>();
+        List<String> namesOfProviders = new ArrayList<>();
+        Dictionary<String> providerNames = new Dictionary<>();
+        Dictionary<String> sites = new Dictionary<>();
+        Dictionary<String> orbits = new Dictionary<>();
+        for (Launch launch : input) {
+            Rocket rocket = launch.getLaunchVehicle();
+            rockets.add(idOf(rocket));
+            LaunchServiceProvider provider = null == rocket ? null : rocket.getManufacturer();
+            if (providers.add(idOf(provider))) {
+                namesOfProviders.add(provider.getName());
+            }
+            providerNames.add(null == provider ? null : provider.getName());
+            sites.add(launch.getLaunchSite());
+            orbits.add(launch.getOrbit());
+        }
+
+        LaunchSnapshot snapshot = new LaunchSnapshot(input.size(), rockets, providers, namesOfProviders,
+                providerNames, sites, orbits);
+        for (int row = 0; row < order.length; row++) {
+            Launch launch = input.get(order[row]);
+            Rocket rocket = launch.getLaunchVehicle();
+
+            snapshot.launchIds[row] = launch.getId();
+            snapshot.sequences[row] = order[row];
+            snapshot.dates[row] = launch.getLaunchDate().getTime();
+            snapshot.prices[row] = launch.getPrice();
+            snapshot.outcomes[row] = outcomeCode(launch.getLaunchOutcome());
+            snapshot.rocketCodes[row] = rockets.code(idOf(rocket));
+            snapshot.providerCodes[row] = providers.code(idOf(null == rocket ? null : rocket.getManufacturer()));
+            snapshot.siteCodes[row] = sites.code(launch.getLaunchSite());
+            snapshot.orbitCodes[row] = orbits.code(launch.getOrbit());
+        }
+        return snapshot;
+    }
+
+    private static Long idOf(Entity entity) {
+        return null == entity ? null : entity.getId();
+    }
+
+    @Override
+    public int size() {
+        return launchIds.length;
+    }
+
+    @Override
+    public long launchId(int row) {
+        return launchIds[row];
+    }
+
+    /**
+     * @return the position of the row's launch in the input of {@link #build(Iterable)}.
+     */
+    @Override
+    public int sequence(int row) {
+        return sequences[row];
+    }
+
+    @Override
+    public long launchDate(int row) {
+        return dates[row];
+    }
+
+    @Override
+    public int price(int row) {
+        return prices[row];
+    }
+
+    @Override
+    public byte outcome(int row) {
+        return outcomes[row];
+    }
+
+    /**
+     * @return the rocket code of the row, or {@link #NONE}.
+     */
+    @Override
+    public int rocket(int row) {
+        return rocketCodes[row];
+    }
+
+    /**
+     * @return the provider code of the row, or {@link #NONE}.
+     */
+    @Override
+    public int provider(int row) {
+        return providerCodes[row];
+    }
+
+    public int site(int row) {
+        return siteCodes[row];
+    }
+
+    public int orbit(int row) {
+        return orbitCodes[row];
+    }
+
+    @Override
+    public int rocketCount() {
+        return rocketIds.length;
+    }
+
+    @Override
+    public long rocketId(int code) {
+        return rocketIds[code];
+    }
+
+    @Override
+    public int providerCount() {
+        return providerIds.length;
+    }
+
+    @Override
+    public long providerId(int code) {
+        return providerIds[code];
+    }
+
+    /**
+     * Providers with the same name share a provider name code.
+     */
+    @Override
+    public int providerNameCode(int providerCode) {
+        return providerNameCodes[providerCode];
+    }
+
+    @Override
+    public int providerNameCount() {
+        return providerNames.size();
+    }
+
+    @Override
+    public String providerNameOf(int nameCode) {
+        return providerNames.get(nameCode);
+    }
+
+    public String siteOf(int code) {
+        return NONE == code ? null : sites.get(code);
+    }
+
+    public String orbitOf(int code) {
+        return NONE == code ? null : orbits.get(code);
+    }
+
+    /**
+     * @return the first row launched at or after <code>millis</code>, or {@link #size()}.
+     */
+    public int firstRowFrom(long millis) {
+        int low = 0;
+        int high = dates.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (dates[mid] < millis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public int scanStart(long millis) {
+        return firstRowFrom(millis);
+    }
+
+    @Override
+    public int scanEnd(long millis) {
+        return firstRowFrom(millis);
+    }
+
+    /**
+     * Selects the rows in <code>[from, to)</code> with the k highest keys,
+     * highest first, breaking ties by {@link #sequence(int)}.
+     */
+    public int[] topRows(int from, int to, int k, IntToLongFunction key) {
+        return TopRows.select(from, to, k, key, this::sequence);
+    }
+
+    static byte outcomeCode(Launch.LaunchOutcome outcome) {
+        return null == outcome ? NO_OUTCOME : (byte) (outcome.ordinal() + 1);
+    }
+
+    /**
+     * Assigns consecutive codes to distinct values, in order of first appearance.
+     */
+    private static final class Dictionary<T> {
+        private final Map<T, Integer> codes = new HashMap<>();
+        private final List<T> values = new ArrayList<>();
+
+        /**
+         * @return whether the value was given a new code.
+         */
+        private boolean add(T value) {
+            if (null == value || codes.containsKey(value)) {
+                return false;
+            }
+            codes.put(value, values.size());
+            values.add(value);
+            return true;
+        }
+
+        private int code(T value) {
+            return null == value ? NONE : codes.get(value);
+        }
+    }
+}
@@ -0,0 +1,519 @@
+package rockets.mining;
+
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append-only launch history kept in a memory-mapped file rather than on the
+ * heap, for histories too long to load.
+ *
+ * The file holds a header and one fixed-width record per launch, with the
+ * same columns as a {@link LaunchSnapshot} row: launch id, epoch-millis date,
+ * price, outcome, and codes for rocket, provider, site and orbit. Rockets and
+ * providers are coded by entity id, and site, orbit and provider names by a
+ * string dictionary; the dictionaries are kept in a sidecar file ending in
+ * <code>.dict</code> and are small enough to be read onto the heap on
+ * {@link #open(Path)}. Accessors read the mapped records in place, so a
+ * scan allocates nothing per row.
+ *
+ * Rows are in append order. Appends are serialised; the dictionaries are
+ * republished, as a snapshot, before the row count, and the row count after
+ * the record is written, so concurrent readers see only complete rows, with
+ * their codes, as long as they read {@link #size()} first.
+ *
+ * A single mapping can address only 2 GB, so the records are mapped in
+ * segments of 2<sup>24</sup> records (640 MB) each, and the store holds up to
+ * <code>Integer.MAX_VALUE</code> rows, about 80 GB. The first segment grows
+ * by remapping it at twice its capacity, so small stores stay small; later
+ * segments are mapped whole as the rows reach them.
+ */
+public final class LaunchStore implements LaunchColumns, AutoCloseable {
+    public static final int NONE = LaunchSnapshot.NONE;
+
+    private static final int MAGIC = 0x524b544c; // "RKTL"
+    private static final int VERSION = 1;
+    private static final int HEADER = 16;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int SEGMENT_SHIFT = 24;
+
+    // Record layout
+    private static final int RECORD = 40;
+    private static final int LAUNCH_ID = 0;
+    private static final int DATE = 8;
+    private static final int PRICE = 16;
+    private static final int ROCKET = 20;
+    private static final int PROVIDER = 24;
+    private static final int SITE = 28;
+    private static final int ORBIT = 32;
+    private static final int OUTCOME = 36;
+
+    // Dictionary entries
+    private static final byte STRING = 'S';
+    private static final byte ROCKET_ID = 'R';
+    private static final byte PROVIDER_ID = 'P';
+
+    private final Path file;
+    private final FileChannel channel;
+    private final DataOutputStream dictionary;
+    private final int segmentShift;
+    private final int segmentRows;
+    private final MappedByteBuffer header;
+    // Replaced, never written, when a segment is mapped or remapped
+    private volatile MappedByteBuffer[] segments;
+    private volatile int size;
+
+    // Written by appends only; readers go through the published codes
+    private final Map<String, Integer> stringCodes = new HashMap<>();
+    private String[] strings = new String[16];
+    private int stringCount;
+    private final Map<Long, Integer> rocketCodes = new HashMap<>();
+    private long[] rocketIds = new long[16];
+    private int rocketCount;
+    private final Map<Long, Integer> providerCodes = new HashMap<>();
+    private long[] providerIds = new long[16];
+    private int[] providerNameCodes = new int[16];
+    private int providerCount;
+    private volatile Codes codes;
+
+    private LaunchStore(Path file, int segmentShift) throws IOException {
+        this.file = file;
+        this.segmentShift = segmentShift;
+        this.segmentRows = 1 << segmentShift;
+        readDictionary(dictionaryFile(file));
+        publishCodes();
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long length = channel.size();
+            if (0 != length) {
+                // checked before mapping, which would grow the file
+                ByteBuffer header = ByteBuffer.allocate(HEADER);
+                channel.read(header, 0);
+                if (length < HEADER || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                    throw new IOException("Not a launch store, or one of another version: " + file);
+                }
+            }
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+            if (0 == length) {
+                header.putInt(0, MAGIC);
+                header.putInt(4, VERSION);
+                header.putLong(8, 0);
+            }
+            size = (int) header.getLong(8);
+            segments = map(Math.max(INITIAL_CAPACITY, Math.max(size, (length - HEADER) / RECORD)));
+            this.dictionary = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(dictionaryFile(file),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the store in <code>file</code>, creating it if it does not exist.
+     */
+    public static LaunchStore open(Path file) throws IOException {
+        return new LaunchStore(file, SEGMENT_SHIFT);
+    }
+
+    /**
+     * Opens the store mapping segments of 2<sup>segmentShift</sup> records,
+     * which only changes how the file is mapped, not what it holds.
+     */
+    static LaunchStore open(Path file, int segmentShift) throws IOException {
+        return new LaunchStore(file, segmentShift);
+    }
+
+    private static Path dictionaryFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".dict");
+    }
+
+    // Maps whole segments, and the last one as far as the capacity reaches into it
+    private MappedByteBuffer[] map(long capacity) throws IOException {
+        long rows = Math.min(capacity, Integer.MAX_VALUE);
+        MappedByteBuffer[] mapped = new MappedByteBuffer[(int) ((rows + segmentRows - 1) >>> segmentShift)];
+        for (int segment = 0; segment < mapped.length; segment++) {
+            mapped[segment] = map(segment, (int) Math.min(segmentRows, rows - ((long) segment << segmentShift)));
+        }
+        return mapped;
+    }
+
+    private MappedByteBuffer map(int segment, int rows) throws IOException {
+        long position = HEADER + ((long) segment << segmentShift) * RECORD;
+        return channel.map(FileChannel.MapMode.READ_WRITE, position, (long) rows * RECORD);
+    }
+
+    // Entries are replayed in order, so codes come out as they were assigned
+    private void readDictionary(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (InputStream stream = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16))) {
+            while (true) {
+                int tag = in.read();
+                if (-1 == tag) {
+                    return;
+                } else if (STRING == tag) {
+                    addString(in.readUTF());
+                } else if (ROCKET_ID == tag) {
+                    addRocket(in.readLong());
+                } else if (PROVIDER_ID == tag) {
+                    addProvider(in.readLong(), in.readInt());
+                } else {
+                    throw new IOException("Corrupt launch store dictionary: " + path);
+                }
+            }
+        } catch (EOFException e) {
+            throw new IOException("Truncated launch store dictionary: " + path, e);
+        }
+    }
+
+    /**
+     * Appends a launch. The launch must have been saved and have a launch
+     * date, and so must its rocket and the rocket's manufacturer, if any.
+     */
+    public synchronized void append(Launch launch) {
+        if (null == launch.getId() || null == launch.getLaunchDate()) {
+            throw new IllegalArgumentException("Launch must have an id and a launch date.");
+        }
+        Rocket rocket = launch.getLaunchVehicle();
+        LaunchServiceProvider provider = null == rocket ? null : rocket.getManufacturer();
+        if ((null != rocket && null == rocket.getId()) || (null != provider && null == provider.getId())) {
+            throw new IllegalArgumentException("The launch vehicle and its manufacturer must have been saved.");
+        }
+
+        try {
+            int rocketCode = null == rocket ? NONE : rocketCode(rocket.getId());
+            int providerCode = null == provider ? NONE : providerCode(provider.getId(), provider.getName());
+            int siteCode = stringCode(launch.getLaunchSite());
+            int orbitCode = stringCode(launch.getOrbit());
+            dictionary.flush();
+            Codes published = codes;
+            if (published.stringCount != stringCount || published.rocketCount != rocketCount
+                    || published.providerCount != providerCount) {
+                publishCodes();
+            }
+
+            int row = size;
+            if (Integer.MAX_VALUE == row) {
+                throw new IOException("Launch store is full: " + file);
+            }
+            MappedByteBuffer records = segmentFor(row);
+            int offset = offset(row);
+            records.putLong(offset + LAUNCH_ID, launch.getId());
+            records.putLong(offset + DATE, launch.getLaunchDate().getTime());
+            records.putInt(offset + PRICE, launch.getPrice());
+            records.putInt(offset + ROCKET, rocketCode);
+            records.putInt(offset + PROVIDER, providerCode);
+            records.putInt(offset + SITE, siteCode);
+            records.putInt(offset + ORBIT, orbitCode);
+            records.put(offset + OUTCOME, LaunchSnapshot.outcomeCode(launch.getLaunchOutcome()));
+            header.putLong(8, row + 1);
+            size = row + 1;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Maps the next segment when the row starts one, or remaps the last one when it is full
+    private MappedByteBuffer segmentFor(int row) throws IOException {
+        MappedByteBuffer[] mapped = segments;
+        int segment = row >>> segmentShift;
+        if (segment < mapped.length && offset(row) < mapped[segment].capacity()) {
+            return mapped[segment];
+        }
+        if (segment == mapped.length) {
+            mapped = Arrays.copyOf(mapped, segment + 1);
+            mapped[segment] = map(segment, segmentRows);
+        } else {
+            mapped = mapped.clone();
+            mapped[segment] = map(segment, Math.min(segmentRows, 2 * (mapped[segment].capacity() / RECORD)));
+        }
+        segments = mapped;
+        return mapped[segment];
+    }
+
+    /**
+     * Appends the launches in iteration order.
+     */
+    public synchronized void appendAll(Iterable<Launch> launches) {
+        for (Launch launch : launches) {
+            append(launch);
+        }
+    }
+
+    private int stringCode(String value) throws IOException {
+        if (null == value) {
+            return NONE;
+        }
+        Integer code = stringCodes.get(value);
+        if (null == code) {
+            dictionary.writeByte(STRING);
+            dictionary.writeUTF(value);
+            code = addString(value);
+        }
+        return code;
+    }
+
+    private int rocketCode(long id) throws IOException {
+        Integer code = rocketCodes.get(id);
+        if (null == code) {
+            dictionary.writeByte(ROCKET_ID);
+            dictionary.writeLong(id);
+            code = addRocket(id);
+        }
+        return code;
+    }
+
+    private int providerCode(long id, String name) throws IOException {
+        Integer code = providerCodes.get(id);
+        if (null == code) {
+            int nameCode = stringCode(name);
+            dictionary.writeByte(PROVIDER_ID);
+            dictionary.writeLong(id);
+            dictionary.writeInt(nameCode);
+            code = addProvider(id, nameCode);
+        }
+        return code;
+    }
+
+    private int addString(String value) {
+        if (stringCount == strings.length) {
+            strings = Arrays.copyOf(strings, 2 * stringCount);
+        }
+        strings[stringCount] = value;
+        stringCodes.put(value, stringCount);
+        return stringCount++;
+    }
+
+    private int addRocket(long id) {
+        if (rocketCount == rocketIds.length) {
+            rocketIds = Arrays.copyOf(rocketIds, 2 * rocketCount);
+        }
+        rocketIds[rocketCount] = id;
+        rocketCodes.put(id, rocketCount);
+        return rocketCount++;
+    }
+
+    private int addProvider(long id, int nameCode) {
+        if (providerCount == providerIds.length) {
+            providerIds = Arrays.copyOf(providerIds, 2 * providerCount);
+            providerNameCodes = Arrays.copyOf(providerNameCodes, 2 * providerCount);
+        }
+        providerIds[providerCount] = id;
+        providerNameCodes[providerCount] = nameCode;
+        providerCodes.put(id, providerCount);
+        return providerCount++;
+    }
+
+    // Arrays are only written past the counts, or replaced when they grow, so a snapshot needs no copies
+    private void publishCodes() {
+        codes = new Codes(strings, stringCount, rocketIds, rocketCount, providerIds, providerNameCodes, providerCount);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long launchId(int row) {
+        return segment(row).getLong(offset(row) + LAUNCH_ID);
+    }
+
+    @Override
+    public long launchDate(int row) {
+        return segment(row).getLong(offset(row) + DATE);
+    }
+
+    @Override
+    public int price(int row) {
+        return segment(row).getInt(offset(row) + PRICE);
+    }
+
+    @Override
+    public byte outcome(int row) {
+        return segment(row).get(offset(row) + OUTCOME);
+    }
+
+    /**
+     * @return the rocket code of the row, or {@link #NONE}.
+     */
+    @Override
+    public int rocket(int row) {
+        return segment(row).getInt(offset(row) + ROCKET);
+    }
+
+    /**
+     * @return the provider code of the row, or {@link #NONE}.
+     */
+    @Override
+    public int provider(int row) {
+        return segment(row).getInt(offset(row) + PROVIDER);
+    }
+
+    /**
+     * @return the string code of the row's launch site, or {@link #NONE}.
+     */
+    public int site(int row) {
+        return segment(row).getInt(offset(row) + SITE);
+    }
+
+    /**
+     * @return the string code of the row's orbit, or {@link #NONE}.
+     */
+    public int orbit(int row) {
+        return segment(row).getInt(offset(row) + ORBIT);
+    }
+
+    private MappedByteBuffer segment(int row) {
+        return segments[row >>> segmentShift];
+    }
+
+    private int offset(int row) {
+        return (row & (segmentRows - 1)) * RECORD;
+    }
+
+    /**
+     * @return the row itself: rows are in append order.
+     */
+    @Override
+    public int sequence(int row) {
+        return row;
+    }
+
+    @Override
+    public int rocketCount() {
+        return codes.rocketCount;
+    }
+
+    @Override
+    public long rocketId(int code) {
+        Codes published = codes;
+        return published.rocketIds[checkIndex(code, published.rocketCount)];
+    }
+
+    @Override
+    public int providerCount() {
+        return codes.providerCount;
+    }
+
+    @Override
+    public long providerId(int code) {
+        Codes published = codes;
+        return published.providerIds[checkIndex(code, published.providerCount)];
+    }
+
+    /**
+     * Providers with the same name share a name code, a string code.
+     */
+    @Override
+    public int providerNameCode(int providerCode) {
+        Codes published = codes;
+        return published.providerNameCodes[checkIndex(providerCode, published.providerCount)];
+    }
+
+    /**
+     * @return the number of string codes, which provider name codes are.
+     */
+    @Override
+    public int providerNameCount() {
+        return stringCount();
+    }
+
+    @Override
+    public String providerNameOf(int nameCode) {
+        return stringOf(nameCode);
+    }
+
+    public int stringCount() {
+        return codes.stringCount;
+    }
+
+    public String stringOf(int code) {
+        if (NONE == code) {
+            return null;
+        }
+        Codes published = codes;
+        return published.strings[checkIndex(code, published.stringCount)];
+    }
+
+    /**
+     * @return 0: rows are not in date order.
+     */
+    @Override
+    public int scanStart(long millis) {
+        return 0;
+    }
+
+    /**
+     * @return {@link #size()}: rows are not in date order.
+     */
+    @Override
+    public int scanEnd(long millis) {
+        return size();
+    }
+
+    private static int checkIndex(int code, int count) {
+        if (code < 0 || code >= count) {
+            throw new IndexOutOfBoundsException("No code " + code + ", only " + count);
+        }
+        return code;
+    }
+
+    /**
+     * Writes appended records to the file and closes it.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            dictionary.close();
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+            header.force();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static final class Codes {
+        private final String[] strings;
+        private final int stringCount;
+        private final long[] rocketIds;
+        private final int rocketCount;
+        private final long[] providerIds;
+        private final int[] providerNameCodes;
+        private final int providerCount;
+
+        private Codes(String[] strings, int stringCount, long[] rocketIds, int rocketCount,
+                      long[] providerIds, int[] providerNameCodes, int providerCount) {
+            this.strings = strings;
+            this.stringCount = stringCount;
+            this.rocketIds = rocketIds;
+            this.rocketCount = rocketCount;
+            this.providerIds = providerIds;
+            this.providerNameCodes = providerNameCodes;
+            this.providerCount = providerCount;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package rockets.mining;
+
+import rockets.model.Launch;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Immutable index of launches ordered by launch date.
+ *
+ * Launch dates are kept as a sorted array of epoch milliseconds alongside
+ * the launches, plus the offset at which every calendar month between the
+ * first and the last launch starts. A month is then located in O(1) and an
+ * arbitrary date range in O(log n), and both are returned as views of the
+ * index, so the cost of a query is proportional to the launches in the
+ * window rather than to the whole history. Months follow the default time
+ * zone, as in {@link Calendar#getInstance()}.
+ */
+public class LaunchTimeIndex {
+    private final long[] dates;
+    private final Launch[] launches;
+
+    // monthOffsets[i] is the first position in month firstMonth + i; the last entry is dates.length
+    private final int firstMonth;
+    private final int[] monthOffsets;
+
+    private LaunchTimeIndex(long[] dates, Launch[] launches, int firstMonth, int[] monthOffsets) {
+        this.dates = dates;
+        this.launches = launches;
+        this.firstMonth = firstMonth;
+        this.monthOffsets = monthOffsets;
+    }
+
+    /**
+     * Indexes the given launches. Launches without a date are left out.
+     */
+    public static LaunchTimeIndex build(Collection<Launch> launches) {
+        Launch[] sorted = launches.stream()
+                .filter(l -> null != l.getLaunchDate())
+                .toArray(Launch[]::new);
+        // stable, so launches on the same date keep their original order
+        Arrays.sort(sorted, Comparator.comparing(Launch::getLaunchDate));
+
+        long[] dates = new long[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            dates[i] = sorted[i].getLaunchDate().getTime();
+        }
+        if (0 == dates.length) {
+            return new LaunchTimeIndex(dates, sorted, 0, new int[]{0});
+        }
+
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(dates[0]);
+        int firstMonth = monthNumber(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1);
+        cal.setTimeInMillis(dates[dates.length - 1]);
+        int lastMonth = monthNumber(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1);
+
+        int[] monthOffsets = new int[lastMonth - firstMonth + 2];
+        int position = 0;
+        for (int i = 1; i < monthOffsets.length - 1; i++) {
+            int month = firstMonth + i;
+            position = lowerBound(dates, position, monthStart(month / 12, month % 12 + 1));
+            monthOffsets[i] = position;
+        }
+        monthOffsets[monthOffsets.length - 1] = dates.length;
+
+        return new LaunchTimeIndex(dates, sorted, firstMonth, monthOffsets);
+    }
+
+    public int size() {
+        return dates.length;
+    }
+
+    /**
+     * @return the launches in <code>[from, to)</code>, oldest first.
+     */
+    public List<Launch> between(Date from, Date to) {
+        return between(from.getTime(), to.getTime());
+    }
+
+    /**
+     * @return the launches in <code>[fromMillis, toMillis)</code>, oldest first.
+     */
+    public List<Launch> between(long fromMillis, long toMillis) {
+        int from = lowerBound(dates, 0, fromMillis);
+        int to = Math.max(from, lowerBound(dates, from, toMillis));
+        return range(from, to);
+    }
+
+    /**
+     * @return the launches on or after <code>from</code>, oldest first.
+     */
+    public List<Launch> since(Date from) {
+        return range(lowerBound(dates, 0, from.getTime()), dates.length);
+    }
+
+    /**
+     * @param year the year
+     * @param month the month of the year, from 1 to 12
+     * @return the launches in that month, oldest first.
+     */
+    public List<Launch> inMonth(int year, int month) {
+        int bucket = monthNumber(year, month) - firstMonth;
+        if (bucket < 0 || bucket >= monthOffsets.length - 1) {
+            return Collections.emptyList();
+        }
+        return range(monthOffsets[bucket], monthOffsets[bucket + 1]);
+    }
+
+    /**
+     * @return the launches in that year, oldest first.
+     */
+    public List<Launch> inYear(int year) {
+        return between(monthStart(year, 1), monthStart(year + 1, 1));
+    }
+
+    /**
+     * @return the first millisecond of the month, in the default time zone.
+     */
+    static long monthStart(int year, int month) {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(year, month - 1, 1);
+        return cal.getTimeInMillis();
+    }
+
+    private static int monthNumber(int year, int month) {
+        return year * 12 + month - 1;
+    }
+
+    private List<Launch> range(int from, int to) {
+        return Collections.unmodifiableList(Arrays.asList(launches).subList(from, to));
+    }
+
+    // First position at or after <code>from</code> whose date is not before <code>key</code>
+    private static int lowerBound(long[] sorted, int from, long key) {
+        int low = from;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
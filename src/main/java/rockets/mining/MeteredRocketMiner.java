@@ -0,0 +1,78 @@
+package rockets.mining;
+
+import rockets.dataaccess.DAO;
+import rockets.metrics.MetricsRegistry;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * A {@link RocketMiner} that times each query into the
+ * <code>miner_query_seconds</code> summary, by query, however the query is
+ * answered.
+ */
+public class MeteredRocketMiner extends RocketMiner {
+    private static final String QUERY_SECONDS = "miner_query_seconds";
+
+    private final MetricsRegistry metrics;
+
+    public MeteredRocketMiner(DAO dao, MetricsRegistry metrics) {
+        super(dao);
+        this.metrics = metrics;
+    }
+
+    public MeteredRocketMiner(DAO dao, boolean pushdown, MetricsRegistry metrics) {
+        super(dao, pushdown);
+        this.metrics = metrics;
+    }
+
+    public MeteredRocketMiner(DAO dao, ForkJoinPool pool, MetricsRegistry metrics) {
+        super(dao, pool);
+        this.metrics = metrics;
+    }
+
+    // Queries take milliseconds, so looking the histogram up on each call costs nothing noticeable
+    private <T> T time(String query, Supplier<T> body) {
+        return metrics.histogram(QUERY_SECONDS, "Time taken by RocketMiner queries.", "query", query).time(body);
+    }
+
+    @Override
+    public List<Rocket> mostLaunchedRockets(int k) {
+        return time("mostLaunchedRockets", () -> super.mostLaunchedRockets(k));
+    }
+
+    @Override
+    public List<String> mostUnreliableLaunchServiceProviders(int k) {
+        return time("mostUnreliableLaunchServiceProviders", () -> super.mostUnreliableLaunchServiceProviders(k));
+    }
+
+    @Override
+    public List<Launch> mostRecentLaunches(int k) {
+        return time("mostRecentLaunches", () -> super.mostRecentLaunches(k));
+    }
+
+    @Override
+    public List<LaunchServiceProvider> busiestLaunchServiceProviderInMonth(int k, int year, int month) {
+        return time("busiestLaunchServiceProviderInMonth", () -> super.busiestLaunchServiceProviderInMonth(k, year, month));
+    }
+
+    @Override
+    public List<Launch> mostExpensiveLaunches(int k) {
+        return time("mostExpensiveLaunches", () -> super.mostExpensiveLaunches(k));
+    }
+
+    @Override
+    public List<Rocket> mostNumberOfPlannedLaunch(int k) {
+        return time("mostNumberOfPlannedLaunch", () -> super.mostNumberOfPlannedLaunch(k));
+    }
+
+    @Override
+    public List<Launch> launchesBetween(Date from, Date to) {
+        return time("launchesBetween", () -> super.launchesBetween(from, to));
+    }
+}
@@ -0,0 +1,123 @@
+package rockets.mining;
+
+import rockets.dataaccess.DAO;
+import rockets.model.Entity;
+import rockets.model.Launch;
+import rockets.model.Rocket;
+import rockets.model.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * A {@link DAO} that keeps {@link MiningViews} up to date with every write
+ * made through it. A {@link RocketMiner} over this DAO answers its rankings
+ * from the views instead of rescanning all launches.
+ *
+ * Writes that bypass this DAO are not reflected until {@link #refreshViews()}.
+ */
+public class MiningViewDAO implements DAO {
+    private final DAO dao;
+    private final MiningViews views = new MiningViews();
+
+    public MiningViewDAO(DAO dao) {
+        this.dao = dao;
+        refreshViews();
+    }
+
+    public MiningViews getViews() {
+        return views;
+    }
+
+    /**
+     * Recomputes the views from all rockets and launches in the underlying DAO.
+     */
+    public void refreshViews() {
+        Collection<Rocket> rockets = dao.loadAll(Rocket.class);
+        Collection<Launch> launches = dao.loadAll(Launch.class);
+        views.rebuild(rockets, launches);
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id) {
+        return dao.load(clazz, id);
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id, int depth) {
+        return dao.load(clazz, id, depth);
+    }
+
+    @Override
+    public <T extends Entity> T createOrUpdate(T entity) {
+        T saved = dao.createOrUpdate(entity);
+        views.saved(saved);
+        return saved;
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities) {
+        Collection<T> saved = dao.createOrUpdateAll(entities);
+        for (T entity : saved) {
+            views.saved(entity);
+        }
+        return saved;
+    }
+
+    @Override
+    public <T extends Entity> void updateProperties(Collection<T> entities) {
+        dao.updateProperties(entities);
+        for (T entity : entities) {
+            views.saved(entity);
+        }
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        return dao.loadAll(clazz);
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz, int depth) {
+        return dao.loadAll(clazz, depth);
+    }
+
+    @Override
+    public <T extends Entity> List<T> loadPage(Class<T> clazz, int offset, int limit, String sortBy) {
+        return dao.loadPage(clazz, offset, limit, sortBy);
+    }
+
+    @Override
+    public <T extends Entity> List<Map<String, Object>> loadProperties(Class<T> clazz, List<String> properties,
+                                                                       int offset, int limit, String sortBy) {
+        return dao.loadProperties(clazz, properties, offset, limit, sortBy);
+    }
+
+    @Override
+    public <T extends Entity> long count(Class<T> clazz) {
+        return dao.count(clazz);
+    }
+
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz) {
+        return dao.stream(clazz);
+    }
+
+    @Override
+    public <T extends Entity> void delete(T entity) {
+        dao.delete(entity);
+        views.deleted(entity);
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        return dao.getUserByEmail(email);
+    }
+
+    @Override
+    public void close() {
+        dao.close();
+    }
+}
@@ -0,0 +1,353 @@
+package rockets.mining;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.SetMultimap;
+import rockets.model.Entity;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * Materialised mining views, maintained incrementally as entities are saved
+ * and deleted (see {@link MiningViewDAO}).
+ *
+ * Keeps launch counts per rocket, failure counts per provider, launch counts
+ * per provider for every month, and launches ordered by price and by date,
+ * each in a sorted structure so a top-k query walks only k entries. Entities
+ * are tracked by id; ties are broken by the order in which entities were
+ * first seen.
+ */
+public class MiningViews {
+    private static final Comparator<Stat<?>> MOST_COUNTED_FIRST =
+            Comparator.comparingInt((Stat<?> s) -> s.count).reversed();
+
+    // s.failed / s.total, highest first, compared without division
+    private static final Comparator<Stat<?>> HIGHEST_FAILURE_RATE_FIRST =
+            (a, b) -> Long.compare((long) b.failed * a.count, (long) a.failed * b.count);
+
+    private static final Comparator<LaunchRecord> MOST_EXPENSIVE_FIRST =
+            Comparator.comparingInt((LaunchRecord r) -> r.price).reversed();
+
+    private static final Comparator<LaunchRecord> MOST_RECENT_FIRST =
+            Comparator.comparingLong((LaunchRecord r) -> r.date).reversed();
+
+    private long sequence;
+
+    private final Map<Long, LaunchRecord> launches = new HashMap<>();
+    private final SetMultimap<Long, Long> launchesByRocket = HashMultimap.create();
+    private final SetMultimap<Long, Long> launchesByProvider = HashMultimap.create();
+
+    private final Ranking<Long, Rocket> rocketsByLaunches = new Ranking<>(MOST_COUNTED_FIRST);
+    private final Ranking<String, String> providersByFailureRate = new Ranking<>(HIGHEST_FAILURE_RATE_FIRST);
+    private final Map<Integer, Ranking<Long, LaunchServiceProvider>> providersByMonth = new HashMap<>();
+    private final TreeSet<LaunchRecord> launchesByPrice =
+            new TreeSet<>(MOST_EXPENSIVE_FIRST.thenComparingLong(r -> r.order));
+    private final TreeSet<LaunchRecord> launchesByDate =
+            new TreeSet<>(MOST_RECENT_FIRST.thenComparingLong(r -> r.order));
+
+    /**
+     * Discards the views and recomputes them from the given entities.
+     */
+    public synchronized void rebuild(Collection<Rocket> rockets, Collection<Launch> launches) {
+        this.launches.clear();
+        launchesByRocket.clear();
+        launchesByProvider.clear();
+        rocketsByLaunches.clear();
+        providersByFailureRate.clear();
+        providersByMonth.clear();
+        launchesByPrice.clear();
+        launchesByDate.clear();
+
+        for (Rocket rocket : rockets) {
+            putRocket(rocket);
+        }
+        for (Launch launch : launches) {
+            putLaunch(launch);
+        }
+    }
+
+    /**
+     * Records a saved entity, including the rockets and launches saved along with it.
+     */
+    public synchronized void saved(Entity entity) {
+        if (entity instanceof Launch) {
+            putLaunch((Launch) entity);
+        } else if (entity instanceof Rocket) {
+            saveRocket((Rocket) entity);
+        } else if (entity instanceof LaunchServiceProvider) {
+            Set<Rocket> rockets = ((LaunchServiceProvider) entity).getRockets();
+            if (null != rockets) {
+                for (Rocket rocket : rockets) {
+                    saveRocket(rocket);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes a deleted entity. Launches of a deleted rocket, or of the rockets
+     * of a deleted provider, no longer count towards any provider.
+     */
+    public synchronized void deleted(Entity entity) {
+        Long id = entity.getId();
+        if (null == id) {
+            return;
+        }
+
+        if (entity instanceof Launch) {
+            removeLaunch(id);
+        } else if (entity instanceof Rocket) {
+            // launches first: removing them counts down the rocket's entry, which would otherwise come back
+            for (Long launchId : Lists.newArrayList(launchesByRocket.get(id))) {
+                LaunchRecord record = removeLaunch(launchId);
+                addLaunch(new LaunchRecord(record.order, record.launch, null, null, record.yearMonth, record.failed));
+            }
+            rocketsByLaunches.remove(id);
+        } else if (entity instanceof LaunchServiceProvider) {
+            for (Long launchId : Lists.newArrayList(launchesByProvider.get(id))) {
+                LaunchRecord record = removeLaunch(launchId);
+                addLaunch(new LaunchRecord(record.order, record.launch, record.rocketId, null, record.yearMonth, record.failed));
+            }
+        }
+    }
+
+    public synchronized List<Rocket> mostLaunchedRockets(int k) {
+        return rocketsByLaunches.top(k, s -> true);
+    }
+
+    public synchronized List<String> mostUnreliableLaunchServiceProviders(int k) {
+        return providersByFailureRate.top(k, s -> s.failed > 0);
+    }
+
+    public synchronized List<LaunchServiceProvider> busiestLaunchServiceProviderInMonth(int k, int year, int month) {
+        Ranking<Long, LaunchServiceProvider> ranking = providersByMonth.get(yearMonth(year, month - 1));
+        return null == ranking ? Lists.newArrayList() : ranking.top(k, s -> true);
+    }
+
+    public synchronized List<Launch> mostExpensiveLaunches(int k) {
+        return firstLaunches(launchesByPrice, k);
+    }
+
+    public synchronized List<Launch> mostRecentLaunches(int k) {
+        return firstLaunches(launchesByDate, k);
+    }
+
+    private void saveRocket(Rocket rocket) {
+        putRocket(rocket);
+        Set<Launch> rocketLaunches = rocket.getLaunches();
+        if (null != rocketLaunches) {
+            for (Launch launch : rocketLaunches) {
+                putLaunch(launch);
+            }
+        }
+    }
+
+    private void putRocket(Rocket rocket) {
+        if (null != rocket.getId()) {
+            rocketsByLaunches.adjust(rocket.getId(), rocket, 0, 0);
+        }
+    }
+
+    private void putLaunch(Launch launch) {
+        Long id = launch.getId();
+        if (null == id) {
+            return;
+        }
+
+        LaunchRecord previous = removeLaunch(id);
+        long order = null == previous ? sequence++ : previous.order;
+
+        Rocket rocket = launch.getLaunchVehicle();
+        if (null != rocket) {
+            putRocket(rocket);
+        }
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(launch.getLaunchDate());
+        addLaunch(new LaunchRecord(order, launch,
+                null == rocket ? null : rocket.getId(),
+                null == rocket ? null : rocket.getManufacturer(),
+                yearMonth(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH)),
+                Launch.LaunchOutcome.FAILED == launch.getLaunchOutcome()));
+    }
+
+    private void addLaunch(LaunchRecord record) {
+        Long id = record.launch.getId();
+        launches.put(id, record);
+        launchesByPrice.add(record);
+        launchesByDate.add(record);
+
+        if (null != record.rocketId) {
+            launchesByRocket.put(record.rocketId, id);
+            rocketsByLaunches.adjust(record.rocketId, null, 1, 0);
+        }
+
+        LaunchServiceProvider provider = record.provider;
+        if (null != provider) {
+            providersByFailureRate.adjust(provider.getName(), provider.getName(), 1, record.failed ? 1 : 0);
+            if (null != provider.getId()) {
+                launchesByProvider.put(provider.getId(), id);
+                providersByMonth.computeIfAbsent(record.yearMonth, m -> new Ranking<>(MOST_COUNTED_FIRST))
+                        .adjust(provider.getId(), provider, 1, 0);
+            }
+        }
+    }
+
+    private LaunchRecord removeLaunch(Long id) {
+        LaunchRecord record = launches.remove(id);
+        if (null == record) {
+            return null;
+        }
+        launchesByPrice.remove(record);
+        launchesByDate.remove(record);
+
+        if (null != record.rocketId) {
+            launchesByRocket.remove(record.rocketId, id);
+            rocketsByLaunches.adjust(record.rocketId, null, -1, 0);
+        }
+
+        LaunchServiceProvider provider = record.provider;
+        if (null != provider) {
+            providersByFailureRate.adjust(provider.getName(), null, -1, record.failed ? -1 : 0);
+            providersByFailureRate.removeIfEmpty(provider.getName());
+            if (null != provider.getId()) {
+                launchesByProvider.remove(provider.getId(), id);
+                Ranking<Long, LaunchServiceProvider> month = providersByMonth.get(record.yearMonth);
+                month.adjust(provider.getId(), null, -1, 0);
+                month.removeIfEmpty(provider.getId());
+                if (month.isEmpty()) {
+                    providersByMonth.remove(record.yearMonth);
+                }
+            }
+        }
+        return record;
+    }
+
+    private static List<Launch> firstLaunches(TreeSet<LaunchRecord> index, int k) {
+        List<Launch> result = Lists.newArrayList();
+        for (LaunchRecord record : index) {
+            if (result.size() >= k) {
+                break;
+            }
+            result.add(record.launch);
+        }
+        return result;
+    }
+
+    private static int yearMonth(int year, int zeroBasedMonth) {
+        return year * 12 + zeroBasedMonth;
+    }
+
+    /**
+     * What a launch currently contributes to the views, kept so that the
+     * contribution can be withdrawn when the launch is updated or deleted.
+     */
+    private static final class LaunchRecord {
+        private final long order;
+        private final Launch launch;
+        private final Long rocketId;
+        private final LaunchServiceProvider provider;
+        private final int yearMonth;
+        private final boolean failed;
+        private final int price;
+        private final long date;
+
+        private LaunchRecord(long order, Launch launch, Long rocketId, LaunchServiceProvider provider, int yearMonth, boolean failed) {
+            this.order = order;
+            this.launch = launch;
+            this.rocketId = rocketId;
+            this.provider = provider;
+            this.yearMonth = yearMonth;
+            this.failed = failed;
+            this.price = launch.getPrice();
+            this.date = launch.getLaunchDate().getTime();
+        }
+    }
+
+    private static final class Stat<T> {
+        private final long order;
+        private T item;
+        private int count;
+        private int failed;
+
+        private Stat(long order) {
+            this.order = order;
+        }
+    }
+
+    /**
+     * Per-key counters kept sorted by a score, so the top k are the first k entries.
+     */
+    private final class Ranking<K, T> {
+        private final Map<K, Stat<T>> stats = new HashMap<>();
+        private final TreeSet<Stat<T>> ranked;
+
+        private Ranking(Comparator<Stat<?>> byScore) {
+            this.ranked = new TreeSet<>(byScore.thenComparingLong(s -> s.order));
+        }
+
+        // Creates the entry if needed; a non-null item replaces the one reported for the key
+        private void adjust(K key, T item, int countDelta, int failedDelta) {
+            Stat<T> stat = stats.get(key);
+            if (null == stat) {
+                stat = new Stat<>(sequence++);
+                stats.put(key, stat);
+            } else {
+                ranked.remove(stat);
+            }
+            if (null != item) {
+                stat.item = item;
+            }
+            stat.count += countDelta;
+            stat.failed += failedDelta;
+            ranked.add(stat);
+        }
+
+        private void remove(K key) {
+            Stat<T> stat = stats.remove(key);
+            if (null != stat) {
+                ranked.remove(stat);
+            }
+        }
+
+        private void removeIfEmpty(K key) {
+            Stat<T> stat = stats.get(key);
+            if (null != stat && 0 == stat.count) {
+                remove(key);
+            }
+        }
+
+        private boolean isEmpty() {
+            return stats.isEmpty();
+        }
+
+        private void clear() {
+            stats.clear();
+            ranked.clear();
+        }
+
+        // Walks the ranking until k items are found or an entry fails <code>qualifies</code>
+        private List<T> top(int k, Predicate<Stat<T>> qualifies) {
+            List<T> result = Lists.newArrayList();
+            for (Stat<T> stat : ranked) {
+                if (result.size() >= k || !qualifies.test(stat)) {
+                    break;
+                }
+                if (null != stat.item) {
+                    result.add(stat.item);
+                }
+            }
+            return result;
+        }
+    }
+}
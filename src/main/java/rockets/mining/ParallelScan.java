@@ -0,0 +1,78 @@
+package rockets.mining;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork-join scan of a list: the list is split into chunks, each chunk is
+ * folded into its own partial aggregate, and partial aggregates are merged
+ * pairwise, always the left (earlier) part with the right (later) one. An
+ * aggregate that merges in that order gives the same result as a
+ * sequential scan.
+ */
+class ParallelScan {
+    private static final int MIN_CHUNK = 1024;
+
+    /**
+     * @param <T> the type of the scanned items.
+     * @param <A> the type of the aggregate.
+     */
+    interface Aggregate<T, A> {
+        A create();
+
+        /**
+         * Folds the item at <code>index</code> of the whole list into <code>partial</code>.
+         */
+        void add(A partial, T item, int index);
+
+        /**
+         * @return the aggregate of <code>left</code> followed by <code>right</code>.
+         */
+        A merge(A left, A right);
+    }
+
+    private ParallelScan() {
+    }
+
+    static <T, A> A scan(ForkJoinPool pool, List<T> items, Aggregate<T, A> aggregate) {
+        int chunk = Math.max(MIN_CHUNK, items.size() / (pool.getParallelism() * 4));
+        return pool.invoke(new Task<>(items, 0, items.size(), chunk, aggregate));
+    }
+
+    private static final class Task<T, A> extends RecursiveTask<A> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<T> items;
+        private final int from;
+        private final int to;
+        private final int chunk;
+        private final Aggregate<T, A> aggregate;
+
+        private Task(List<T> items, int from, int to, int chunk, Aggregate<T, A> aggregate) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+            this.aggregate = aggregate;
+        }
+
+        @Override
+        protected A compute() {
+            if (to - from <= chunk) {
+                A partial = aggregate.create();
+                for (int i = from; i < to; i++) {
+                    aggregate.add(partial, items.get(i), i);
+                }
+                return partial;
+            }
+
+            int mid = (from + to) >>> 1;
+            Task<T, A> left = new Task<>(items, from, mid, chunk, aggregate);
+            Task<T, A> right = new Task<>(items, mid, to, chunk, aggregate);
+            right.fork();
+            A leftResult = left.compute();
+            return aggregate.merge(leftResult, right.join());
+        }
+    }
+}
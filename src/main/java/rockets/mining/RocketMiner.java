@@ -4,19 +4,78 @@ import com.google.common.collect.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rockets.dataaccess.DAO;
+import rockets.dataaccess.MiningDAO;
 import rockets.model.Launch;
 import rockets.model.LaunchServiceProvider;
 import rockets.model.Rocket;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
 
 public class RocketMiner {
     private static Logger logger = LoggerFactory.getLogger(RocketMiner.class);
 
+    private static final Comparator<Rocket> MOST_LAUNCHES_FIRST =
+            Comparator.comparingInt(RocketMiner::launchCount).reversed();
+
+    private static final Comparator<Launch> MOST_RECENT_FIRST =
+            Comparator.comparing(Launch::getLaunchDate).reversed();
+
+    private static final Comparator<Launch> MOST_EXPENSIVE_FIRST =
+            Comparator.comparingInt(Launch::getPrice).reversed();
+
     private DAO dao;
 
+    // Non-null when ranking queries are pushed down to the data store
+    private MiningDAO queries;
+
+    // Non-null when rankings are answered from incrementally maintained views
+    private MiningViews views;
+
+    // Non-null once indexLaunches() has been called
+    private LaunchTimeIndex timeIndex;
+
+    // Non-null once refreshSnapshot() has been called
+    private ColumnQueries snapshot;
+
+    // Non-null once useLaunchStore() has been called
+    private ColumnQueries store;
+
+    // Non-null when in-memory scans run in parallel
+    private ForkJoinPool pool;
+
     public RocketMiner(DAO dao) {
+        this(dao, false);
+    }
+
+    /**
+     * Rankings are answered from {@link MiningViews} when <code>dao</code> is a
+     * {@link MiningViewDAO}.
+     *
+     * @param dao the data source.
+     * @param pushdown whether ranking queries are answered by the data store
+     *                 itself (see {@link MiningDAO}) instead of loading all
+     *                 entities and ranking them in memory.
+     */
+    public RocketMiner(DAO dao, boolean pushdown) {
+        if (pushdown && !(dao instanceof MiningDAO)) {
+            throw new IllegalArgumentException("DAO does not support query pushdown: " + dao.getClass().getName());
+        }
         this.dao = dao;
+        this.queries = pushdown ? (MiningDAO) dao : null;
+        this.views = dao instanceof MiningViewDAO ? ((MiningViewDAO) dao).getViews() : null;
+    }
+
+    /**
+     * Creates a miner whose in-memory scans, grouping and top-k selection are
+     * split across the threads of <code>pool</code>. Results, including the
+     * order of ties, are identical to those of a sequential miner.
+     *
+     * @param dao the data source.
+     * @param pool the pool that runs the scans.
+     */
+    public RocketMiner(DAO dao, ForkJoinPool pool) {
+        this(dao, false);
+        this.pool = pool;
     }
 
     /**
@@ -26,42 +85,20 @@ public class RocketMiner {
      * @return the list of k most active rockets.
      */
     public List<Rocket> mostLaunchedRockets(int k) {
-        Collection<Rocket> rockets = dao.loadAll(Rocket.class);
-        //logger.debug("Getting all rockets, total = " + rockets.size());
-
-        ListMultimap<Integer, Rocket> multimap = MultimapBuilder.treeKeys().arrayListValues().build();
-        for (Rocket r : rockets) {
-            Set<Launch> launches = r.getLaunches();
-            if (null != launches) {
-                multimap.put(launches.size(), r);
-            } else {
-                multimap.put(0, r);
-            }
+        if (null != views) {
+            return views.mostLaunchedRockets(k);
         }
-        List<Integer> sortedKeys = Lists.newArrayList(multimap.keySet());
-        Collections.sort(sortedKeys, Ordering.natural().reverse());
-
-        List<Rocket> result = Lists.newArrayList();
-        for (Integer key : sortedKeys) {
-            List<Rocket> list = multimap.get(key);
-            if (result.size() >= k) {
-                break;
-            } else if (result.size() + list.size() >= k) {
-                int newAddition = k - result.size();
-                for (int i = 0; i < newAddition; i++) {
-                    result.add(list.get(i));
-                }
-            } else {
-                result.addAll(list);
-            }
+        if (null != queries) {
+            return queries.findMostLaunchedRockets(k);
         }
 
-        return result;
+        Collection<Rocket> rockets = dao.loadAll(Rocket.class);
+        logger.debug("Getting all rockets, total = " + rockets.size());
+
+        return selectTop(rockets, k, MOST_LAUNCHES_FIRST);
     }
 
     /**
-     * TODO: to be implemented & tested!
-     *
      * Returns the top-k most unreliable launch service providers as measured
      * by percentage of failed launches.
      *
@@ -69,76 +106,85 @@ public class RocketMiner {
      * @return the list of k most unreliable ones.
      */
     public List<String> mostUnreliableLaunchServiceProviders(int k) {
-        Collection<Launch> LaunchList3 = dao.loadAll(Launch.class);
-        List<Launch> LaunchList = new ArrayList<Launch>(LaunchList3);
+        if (null != views) {
+            return views.mostUnreliableLaunchServiceProviders(k);
+        }
+        if (null != queries) {
+            return queries.findMostUnreliableLaunchServiceProviders(k);
+        }
+        if (null != snapshot) {
+            return snapshot.mostUnreliableLaunchServiceProviders(k);
+        }
+        if (null != store) {
+            return store.mostUnreliableLaunchServiceProviders(k);
+        }
+
+        Collection<Launch> launches = dao.loadAll(Launch.class);
+        logger.debug("Getting all launches, total = " + launches.size());
 
-        List<Launch> filteredLaunchList= LaunchList.stream().filter(Launch -> Launch.getLaunchOutcome() == rockets.model.Launch.LaunchOutcome.FAILED).collect(Collectors.toList());
+        Map<String, Tally> tallies = scan(launches, new ParallelScan.Aggregate<Launch, Map<String, Tally>>() {
+            @Override
+            public Map<String, Tally> create() {
+                return new HashMap<>();
+            }
 
-        Map<String, Long> counts = filteredLaunchList.stream().collect(Collectors.groupingBy(o -> o.getLaunchVehicle().getManufacturer().getName(),Collectors.counting()));
+            @Override
+            public void add(Map<String, Tally> partial, Launch l, int index) {
+                LaunchServiceProvider lsp = manufacturerOf(l);
+                if (null != lsp) {
+                    partial.computeIfAbsent(lsp.getName(), name -> new Tally(index)).add(l.getLaunchOutcome());
+                }
+            }
 
-        List<String> sortedKeys2=new ArrayList(counts.keySet());
+            @Override
+            public Map<String, Tally> merge(Map<String, Tally> left, Map<String, Tally> right) {
+                right.forEach((name, tally) -> left.merge(name, tally, Tally::plus));
+                return left;
+            }
+        });
 
-        SortedSet<String> values = new TreeSet<>(counts.keySet());
-        ArrayList<Long> l = new ArrayList<Long>();
-        for (String value : values) {
-            Long valuess = counts.get(value);
-            l.add(valuess);
+        // Ties go to the provider that appears first
+        TopK<Map.Entry<String, Tally>> topK = new TopK<>(k, (a, b) -> Tally.HIGHEST_FAILURE_RATE_FIRST.compare(a.getValue(), b.getValue()));
+        for (Map.Entry<String, Tally> entry : tallies.entrySet()) {
+            if (entry.getValue().failed > 0) {
+                topK.offer(entry, entry.getValue().first);
+            }
         }
 
-        String s = sortedKeys2.get(0); // remember first item
-        sortedKeys2.clear(); // clear complete list
-        sortedKeys2.add(s); // add first item
-        return sortedKeys2;
+        List<String> result = Lists.newArrayList();
+        for (Map.Entry<String, Tally> entry : topK.toList()) {
+            result.add(entry.getKey());
+        }
+        return result;
     }
 
     /**
-     * TODO: to be implemented & tested!
-     *
      * Returns the top-k most recent launches.
      *
      * @param k the number of launches to be returned.
      * @return the list of k most recent launches.
      */
     public List<Launch> mostRecentLaunches(int k) {
-        Collection<Launch> launches = dao.loadAll(Launch.class);
-        logger.debug("Getting all launches, total = " + launches.size());
-
-        ListMultimap<Date, Launch> multimap = MultimapBuilder.treeKeys().arrayListValues().build();
-        for (Launch l : launches) {
-            multimap.put(l.getLaunchDate(), l);
+        if (null != views) {
+            return views.mostRecentLaunches(k);
         }
-
-        List<Date> sortedKeys = Lists.newArrayList(multimap.keySet());
-        Collections.sort(sortedKeys, Ordering.natural().reverse());
-
-        List<Launch> result = Lists.newArrayList();
-        List<Launch> list ;
-        List<Launch> finalist = Lists.newArrayList();
-        for (Date key : sortedKeys) {
-            list = multimap.get(key);
-
-            if(list.size() > 1)
-            {
-                for(int i = 0 ; i < list.size(); i++)
-                {
-                    finalist.add(list.get(i));
-                }
-            }
-            else
-                finalist.add(list.get(0));
+        if (null != queries) {
+            return queries.findMostRecentLaunches(k);
         }
-
-        for (int i=0; i<k ; i++ )
-        {
-            result.add(finalist.get(i));
+        if (null != snapshot) {
+            return snapshot.mostRecentLaunches(k);
+        }
+        if (null != store) {
+            return store.mostRecentLaunches(k);
         }
 
-        return result;
+        Collection<Launch> launches = dao.loadAll(Launch.class);
+        logger.debug("Getting all launches, total = " + launches.size());
+
+        return selectTop(launches, k, MOST_RECENT_FIRST);
     }
 
     /**
-     * TODO: to be implemented & tested!
-     *
      * Returns the top-k busiest launch service provides as measured by the
      * number of launches in <code>month</code> and </code><code>year</code>.
      *
@@ -147,132 +193,76 @@ public class RocketMiner {
      * @param month the month of the year
      * @return the list of k busiest launch service providers.
      */
-
     public List<LaunchServiceProvider> busiestLaunchServiceProviderInMonth(int k, int year, int month) {
-        Collection<Launch> launchList = dao.loadAll(Launch.class);
-        logger.debug("Getting all launches, total = " + launchList.size());
-
-        // Extracting Launch list in a given month and year
-        List<Launch> matchedLaunchList = Lists.newArrayList();
-        Calendar cal = Calendar.getInstance();
-        for (Launch l : launchList){
-            cal.setTime(l.getLaunchDate());
-            //System.out.println(l.getLaunchDate().getTime().toString());
-            if (cal.get(Calendar.YEAR) == year)
-                if (cal.get(Calendar.MONTH) == month - 1)
-                    matchedLaunchList.add(l);
-        }
-        //System.out.println("Matched Launch List:" + matchedLaunchList.size());
-        //for (Launch l: matchedLaunchList){
-        //    System.out.println(l.getLaunchVehicle().getManufacturer().getName());
-        //}
-
-        // Extract Rocket list based on Launch
-        List<Rocket> matchedRocketList = Lists.newArrayList();
-        for (Launch l : matchedLaunchList){
-            matchedRocketList.add(l.getLaunchVehicle());
-        }
-        //System.out.println("Matched Rocket List:" + matchedRocketList.size());
-        //for (Rocket r: matchedRocketList){
-        //   System.out.println(r.getManufacturer().getName());
-        //
-
-        // Extract Launch Service Provider List based on Rocket
-        List<LaunchServiceProvider> matchedLSPList = Lists.newArrayList();
-        for (Rocket r : matchedRocketList) {
-            matchedLSPList.add(r.getManufacturer());
-        }
-        //System.out.println("Matched LSP List:" + matchedLSPList.size());
-        //for (LaunchServiceProvider lsp: matchedLSPList){
-        //   System.out.println(lsp.getName());
-        //}
-
-        // Count for each LSP
-        Map<LaunchServiceProvider, Long> lspCount = matchedRocketList.stream().collect(Collectors.groupingBy(o -> o.getManufacturer() ,Collectors.counting()));
-
-        //System.out.println("This is all LSP" + sortedLSPCountValues.size());
-        lspCount.entrySet().stream().sorted(Collections.reverseOrder(Map.Entry.comparingByValue()));
-
-        List<LaunchServiceProvider> result = new ArrayList<>();
-        for (Map.Entry<LaunchServiceProvider, Long> entry: lspCount.entrySet()){
-            if (result.size() >= k)
-                break;
-            else
-                result.add(entry.getKey());
+        if (null != views) {
+            return views.busiestLaunchServiceProviderInMonth(k, year, month);
         }
-        return result;
-    }
+        if (null != queries) {
+            return queries.findBusiestLaunchServiceProvidersInMonth(k, year, month);
+        }
+        if (null != snapshot) {
+            return snapshot.busiestLaunchServiceProviders(k,
+                    LaunchTimeIndex.monthStart(year, month), LaunchTimeIndex.monthStart(year, month + 1));
+        }
+        if (null != store) {
+            return store.busiestLaunchServiceProviders(k,
+                    LaunchTimeIndex.monthStart(year, month), LaunchTimeIndex.monthStart(year, month + 1));
+        }
+
+        List<Launch> launches = null != timeIndex
+                ? timeIndex.inMonth(year, month)
+                : launchesBetween(LaunchTimeIndex.monthStart(year, month), LaunchTimeIndex.monthStart(year, month + 1));
 
+        // Count launches of each LSP in the given month and year, in order of first appearance
+        Multiset<LaunchServiceProvider> counts = LinkedHashMultiset.create();
+        for (Launch l : launches) {
+            LaunchServiceProvider lsp = manufacturerOf(l);
+            if (null != lsp) {
+                counts.add(lsp);
+            }
+        }
+
+        return topByCount(counts, k);
+    }
 
     /**
-     * TODO: to be implemented & tested!
-     *
      * Returns the top-k most expensive launches.
      *
      * @param k the number of launches to be returned.
      * @return the list of k most expensive launches.
      */
     public List<Launch> mostExpensiveLaunches(int k) {
-        Collection<Launch> launches = dao.loadAll(Launch.class);
-
-        ListMultimap<Integer, Launch> multimap = MultimapBuilder.treeKeys().arrayListValues().build();
-        for (Launch l : launches) {
-            multimap.put(l.getPrice(), l);
+        if (null != views) {
+            return views.mostExpensiveLaunches(k);
         }
-
-        List<Integer> sortedKeys = Lists.newArrayList(multimap.keySet());
-        Collections.sort(sortedKeys, Ordering.natural().reverse());
-
-        List<Launch> result = Lists.newArrayList();
-        List<Launch> list;
-        List<Launch> finalist = Lists.newArrayList();
-
-        for (Integer key : sortedKeys){
-            list = multimap.get(key);
-
-            if(list.size() > 1)
-            {
-                for(int i = 0 ; i < list.size(); i++)
-                {
-                    finalist.add(list.get(i));
-                }
-            }
-            else
-                finalist.add(list.get(0));
+        if (null != queries) {
+            return queries.findMostExpensiveLaunches(k);
         }
-
-        String rocketName = "";
-        int totalLaunch = 0;
-
-        for (Launch rocket : finalist)
-        {
-            if(!(rocketName.equalsIgnoreCase(rocket.getLaunchVehicle().getName())))
-            {
-                totalLaunch = totalLaunch + 1;
-                result.add(rocket);
-                rocketName = rocket.getLaunchVehicle().getName();
-            }
-
-            if(result.size() == k )
-                break;
+        if (null != snapshot) {
+            return snapshot.mostExpensiveLaunches(k);
+        }
+        if (null != store) {
+            return store.mostExpensiveLaunches(k);
         }
 
-        return result;
-    }
+        Collection<Launch> launches = dao.loadAll(Launch.class);
+        logger.debug("Getting all launches, total = " + launches.size());
 
+        return selectTop(launches, k, MOST_EXPENSIVE_FIRST);
+    }
 
     public List<Rocket> mostNumberOfPlannedLaunch(int k){
+        if (null != snapshot) {
+            return snapshot.rocketsWithPlannedLaunches(k, System.currentTimeMillis());
+        }
+        if (null != store) {
+            return store.rocketsWithPlannedLaunches(k, System.currentTimeMillis());
+        }
+
         List<Rocket> result = new ArrayList<>();
 
-        // get all launches
-        Collection<Launch> allLaunches = dao.loadAll(Launch.class);
         // get planned launches
-        List<Launch> loadPlanLaunches = new ArrayList<>();
-        for (Launch launch : allLaunches) {
-            if (launch.getLaunchDate().after(new Date())) {
-                loadPlanLaunches.add(launch);
-            }
-        }
+        List<Launch> loadPlanLaunches = launchesBetween(System.currentTimeMillis() + 1, Long.MAX_VALUE);
 
         // calculate how many planned times for each planned rocket
         Map<Rocket, Integer> dicRockets = new LinkedHashMap<>();
@@ -293,4 +283,174 @@ public class RocketMiner {
 
         return result;
     }
+
+    /**
+     * Builds (or rebuilds) an in-memory time index over all launches, used
+     * from then on by the month and date-range queries. The index is a
+     * snapshot: call this again after launches are written.
+     */
+    public void indexLaunches() {
+        Collection<Launch> launches = dao.loadAll(Launch.class);
+        logger.debug("Indexing all launches, total = " + launches.size());
+
+        timeIndex = LaunchTimeIndex.build(launches);
+    }
+
+    /**
+     * Takes (or retakes) a columnar {@link LaunchSnapshot} of all launches.
+     * From then on the launch rankings scan the snapshot and load only the
+     * launches they return. Like the time index, the snapshot does not see
+     * later writes until it is refreshed.
+     */
+    public void refreshSnapshot() {
+        Collection<Launch> launches = dao.loadAll(Launch.class);
+        logger.debug("Taking a snapshot of all launches, total = " + launches.size());
+
+        snapshot = new ColumnQueries(LaunchSnapshot.build(launches), dao);
+    }
+
+    /**
+     * Answers the launch rankings from an off-heap {@link LaunchStore},
+     * loading only the launches, rockets and providers they return. Unlike
+     * a snapshot, the store sees launches as soon as they are appended to it;
+     * it is up to the caller to append launches as they are written.
+     */
+    public void useLaunchStore(LaunchStore launchStore) {
+        store = new ColumnQueries(launchStore, dao);
+    }
+
+    /**
+     * Returns the launches from <code>from</code> (inclusive) to <code>to</code>
+     * (exclusive), oldest first.
+     *
+     * @param from the start of the range
+     * @param to the end of the range
+     * @return the launches in the range.
+     */
+    public List<Launch> launchesBetween(Date from, Date to) {
+        return launchesBetween(from.getTime(), to.getTime());
+    }
+
+    private List<Launch> launchesBetween(long fromMillis, long toMillis) {
+        if (null != timeIndex) {
+            return timeIndex.between(fromMillis, toMillis);
+        }
+
+        Collection<Launch> launches = dao.loadAll(Launch.class);
+        logger.debug("Getting all launches, total = " + launches.size());
+
+        List<Launch> result = scan(launches, new ParallelScan.Aggregate<Launch, List<Launch>>() {
+            @Override
+            public List<Launch> create() {
+                return Lists.newArrayList();
+            }
+
+            @Override
+            public void add(List<Launch> partial, Launch l, int index) {
+                long date = l.getLaunchDate().getTime();
+                if (date >= fromMillis && date < toMillis) {
+                    partial.add(l);
+                }
+            }
+
+            @Override
+            public List<Launch> merge(List<Launch> left, List<Launch> right) {
+                left.addAll(right);
+                return left;
+            }
+        });
+        result.sort(Comparator.comparing(Launch::getLaunchDate));
+        return result;
+    }
+
+    private <T> List<T> selectTop(Collection<T> items, int k, Comparator<? super T> comparator) {
+        TopK<T> topK = scan(items, new ParallelScan.Aggregate<T, TopK<T>>() {
+            @Override
+            public TopK<T> create() {
+                return new TopK<>(k, comparator);
+            }
+
+            @Override
+            public void add(TopK<T> partial, T item, int index) {
+                partial.offer(item, index);
+            }
+
+            @Override
+            public TopK<T> merge(TopK<T> left, TopK<T> right) {
+                left.addAll(right);
+                return left;
+            }
+        });
+        return topK.toList();
+    }
+
+    // Folds the items in order, in parallel when the miner has a pool
+    private <T, A> A scan(Collection<T> items, ParallelScan.Aggregate<T, A> aggregate) {
+        if (null != pool) {
+            List<T> list = items instanceof List && items instanceof RandomAccess ? (List<T>) items : new ArrayList<>(items);
+            return ParallelScan.scan(pool, list, aggregate);
+        }
+
+        A result = aggregate.create();
+        int index = 0;
+        for (T item : items) {
+            aggregate.add(result, item, index++);
+        }
+        return result;
+    }
+
+    private static int launchCount(Rocket rocket) {
+        Set<Launch> launches = rocket.getLaunches();
+        return null == launches ? 0 : launches.size();
+    }
+
+    private static LaunchServiceProvider manufacturerOf(Launch launch) {
+        Rocket rocket = launch.getLaunchVehicle();
+        return null == rocket ? null : rocket.getManufacturer();
+    }
+
+    private static <T> List<T> topByCount(Multiset<T> counts, int k) {
+        TopK<Multiset.Entry<T>> topK = new TopK<>(k, Comparator.comparingInt((Multiset.Entry<T> e) -> e.getCount()).reversed());
+        for (Multiset.Entry<T> entry : counts.entrySet()) {
+            topK.offer(entry);
+        }
+
+        List<T> result = Lists.newArrayList();
+        for (Multiset.Entry<T> entry : topK.toList()) {
+            result.add(entry.getElement());
+        }
+        return result;
+    }
+
+    /**
+     * Failed and total launch counts of a launch service provider.
+     */
+    private static final class Tally {
+        // a.failed / a.total > b.failed / b.total, compared without division
+        private static final Comparator<Tally> HIGHEST_FAILURE_RATE_FIRST =
+                (a, b) -> Long.compare((long) b.failed * a.total, (long) a.failed * b.total);
+
+        // position of the provider's first launch
+        private int first;
+        private int failed;
+        private int total;
+
+        private Tally(int first) {
+            this.first = first;
+        }
+
+        private void add(Launch.LaunchOutcome outcome) {
+            total++;
+            if (Launch.LaunchOutcome.FAILED == outcome) {
+                failed++;
+            }
+        }
+
+        private static Tally plus(Tally a, Tally b) {
+            a.first = Math.min(a.first, b.first);
+            a.failed += b.failed;
+            a.total += b.total;
+            return a;
+        }
+    }
 }
@@ -0,0 +1,107 @@
+package rockets.mining;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Bounded top-k selection.
+ *
+ * Keeps the k best items seen so far in a min-heap whose head is the worst
+ * retained item, so selecting k out of n items costs O(n log k) time and
+ * O(k) memory. Items are ranked by the given comparator (items that compare
+ * lower come first, as in a sort); ties are broken by an order key, lower
+ * keys first. {@link #offer(Object)} uses the arrival order as the key, which
+ * makes the result identical to a stable sort of the whole input.
+ *
+ * @param <T> the type of the ranked items.
+ */
+public class TopK<T> {
+    private final int k;
+    private final Comparator<Ranked<T>> ranking;
+    private final PriorityQueue<Ranked<T>> heap;
+    private long arrivals;
+
+    public TopK(int k, Comparator<? super T> comparator) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative.");
+        }
+        this.k = k;
+        Comparator<Ranked<T>> byItem = (a, b) -> comparator.compare(a.item, b.item);
+        this.ranking = byItem.thenComparingLong(r -> r.order);
+        this.heap = new PriorityQueue<>(Math.max(1, Math.min(k, 1024)), ranking.reversed());
+    }
+
+    /**
+     * Offers an item, using its arrival order as the tie-breaker.
+     */
+    public void offer(T item) {
+        offer(item, arrivals++);
+    }
+
+    /**
+     * Offers an item with an explicit tie-breaking order key.
+     */
+    public void offer(T item, long order) {
+        if (0 == k) {
+            return;
+        }
+        Ranked<T> candidate = new Ranked<>(item, order);
+        if (heap.size() < k) {
+            heap.add(candidate);
+        } else if (ranking.compare(candidate, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(candidate);
+        }
+    }
+
+    /**
+     * Offers every item retained by <code>other</code> with its order key,
+     * so partial selections over disjoint parts of an input can be merged.
+     */
+    public void addAll(TopK<? extends T> other) {
+        for (Ranked<? extends T> r : other.heap) {
+            offer(r.item, r.order);
+        }
+    }
+
+    public int size() {
+        return heap.size();
+    }
+
+    /**
+     * @return the retained items, best first.
+     */
+    public List<T> toList() {
+        List<Ranked<T>> ranked = new ArrayList<>(heap);
+        Collections.sort(ranked, ranking);
+        List<T> result = new ArrayList<>(ranked.size());
+        for (Ranked<T> r : ranked) {
+            result.add(r.item);
+        }
+        return result;
+    }
+
+    /**
+     * Selects the k best items of <code>items</code>, best first.
+     */
+    public static <T> List<T> select(Iterable<? extends T> items, int k, Comparator<? super T> comparator) {
+        TopK<T> topK = new TopK<>(k, comparator);
+        for (T item : items) {
+            topK.offer(item);
+        }
+        return topK.toList();
+    }
+
+    private static final class Ranked<T> {
+        private final T item;
+        private final long order;
+
+        private Ranked(T item, long order) {
+            this.item = item;
+            this.order = order;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package rockets.mining;
+
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Top-k selection over the rows of a columnar launch store, on a primitive
+ * heap of row numbers, so that nothing is allocated per row scanned.
+ */
+final class TopRows {
+    private final IntToLongFunction key;
+    private final IntUnaryOperator sequence;
+
+    private TopRows(IntToLongFunction key, IntUnaryOperator sequence) {
+        this.key = key;
+        this.sequence = sequence;
+    }
+
+    /**
+     * Selects the rows in <code>[from, to)</code> with the k highest keys,
+     * highest first, breaking ties by the lower sequence.
+     */
+    static int[] select(int from, int to, int k, IntToLongFunction key, IntUnaryOperator sequence) {
+        return new TopRows(key, sequence).select(from, to, k);
+    }
+
+    private int[] select(int from, int to, int k) {
+        int[] heap = new int[Math.max(0, Math.min(k, to - from))];
+        int size = 0;
+        for (int row = from; row < to && heap.length > 0; row++) {
+            if (size < heap.length) {
+                heap[size] = row;
+                siftUp(heap, size++);
+            } else if (before(row, heap[0])) {
+                heap[0] = row;
+                siftDown(heap, size);
+            }
+        }
+
+        // pop the worst row repeatedly, filling the result from the back
+        int[] result = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = heap[0];
+            heap[0] = heap[--size];
+            siftDown(heap, size);
+        }
+        return result;
+    }
+
+    // Whether row a ranks before row b
+    private boolean before(int a, int b) {
+        long ka = key.applyAsLong(a);
+        long kb = key.applyAsLong(b);
+        return ka > kb || (ka == kb && sequence.applyAsInt(a) < sequence.applyAsInt(b));
+    }
+
+    // The heap keeps the worst-ranked row at the root
+    private void siftUp(int[] heap, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(heap[parent], heap[i])) {
+                break;
+            }
+            swap(heap, i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int size) {
+        int i = 0;
+        while (true) {
+            int worst = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && before(heap[worst], heap[left])) {
+                worst = left;
+            }
+            if (right < size && before(heap[worst], heap[right])) {
+                worst = right;
+            }
+            if (worst == i) {
+                return;
+            }
+            swap(heap, i, worst);
+            i = worst;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+    }
+}
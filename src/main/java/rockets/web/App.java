@@ -1,9 +1,17 @@
 package rockets.web;
 
+import com.google.common.base.Throwables;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import rockets.dataaccess.AsyncDAO;
+import rockets.dataaccess.CachingDAO;
 import rockets.dataaccess.DAO;
+import rockets.dataaccess.MeteredDAO;
+import rockets.dataaccess.ReadOnlyDAO;
+import rockets.dataaccess.memory.Snapshot;
 import rockets.dataaccess.neo4j.Neo4jDAO;
+import rockets.metrics.MetricsRegistry;
+import rockets.model.Entity;
 import rockets.model.Rocket;
 import rockets.model.User;
 import spark.ModelAndView;
@@ -15,13 +23,22 @@ import spark.template.freemarker.FreeMarkerEngine;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.apache.logging.log4j.core.util.Closer.closeSilently;
+import static spark.Spark.afterAfter;
+import static spark.Spark.before;
 import static spark.Spark.get;
 import static spark.Spark.port;
 import static spark.Spark.post;
@@ -29,12 +46,25 @@ import static spark.Spark.post;
 public class App {
     private static Logger logger = LoggerFactory.getLogger(App.class);
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private static final String REQUEST_START = "metrics.start";
+    private static final String REQUEST_ROUTE = "metrics.route";
+    private static final String OTHER_ROUTE = "other";
+
     private static DAO dao;
+    private static AsyncDAO asyncDao;
+    private static final MetricsRegistry metrics = new MetricsRegistry();
 
     public static void setDao(DAO dao) {
         App.dao = dao;
     }
 
+    public static MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
     public static void main(String[] args) throws IOException {
         Properties properties = loadProperties();
 
@@ -42,9 +72,42 @@ public class App {
         port(port);
 
         String dbAddress = properties.getProperty("neo4j.dir");
+        String snapshot = properties.getProperty("snapshot.file", "");
+        if (null == dao && !snapshot.isEmpty() && Files.exists(Paths.get(snapshot))) {
+            // a read replica, serving the snapshot without opening the database; writes would be lost on restart
+            dao = new ReadOnlyDAO(Snapshot.read(Paths.get(snapshot)));
+        }
+        Neo4jDAO neo4jDAO;
         if (null == dao) {
-            dao = new Neo4jDAO(dbAddress);
+            neo4jDAO = new Neo4jDAO(dbAddress);
+            dao = new CachingDAO(neo4jDAO);
+        } else {
+            neo4jDAO = neo4jDAOOf(dao);
         }
+        if (dao instanceof CachingDAO) {
+            CachingDAO cachingDAO = (CachingDAO) dao;
+            metrics.gauge("dao_cache_hit_ratio", "Share of cached DAO reads served from the cache.",
+                    () -> cachingDAO.stats().hitRate());
+        }
+        if (!(dao instanceof MeteredDAO)) {
+            dao = new MeteredDAO(dao, metrics);
+        }
+        int ioThreads = Integer.parseInt(properties.getProperty("dao.io.threads"));
+        int ioQueue = Integer.parseInt(properties.getProperty("dao.io.queue"));
+        if (null != neo4jDAO) {
+            releaseSessionsAfterRequests(neo4jDAO);
+            asyncDao = new AsyncDAO(dao, ioThreads, ioQueue, neo4jDAO::releaseSession);
+        } else {
+            asyncDao = new AsyncDAO(dao, ioThreads, ioQueue, () -> { });
+        }
+        metrics.gauge("dao_io_queue_depth", "DAO calls waiting for an I/O thread.", () -> asyncDao.getQueueDepth());
+        metrics.gauge("jvm_memory_heap_used_bytes", "Heap in use.",
+                () -> ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+        metrics.gauge("jvm_threads_live", "Live threads.", () -> ManagementFactory.getThreadMXBean().getThreadCount());
+        recordRequestMetrics();
+
+        // "/metrics"
+        handleGetMetrics();
 
         // "/"
         handleGetIndex();
@@ -90,15 +153,71 @@ public class App {
 
     }
 
+    /**
+     * @return the Neo4jDAO that <code>dao</code> is, or decorates, whose
+     * sessions must be released after each request; null if there is none.
+     */
+    private static Neo4jDAO neo4jDAOOf(DAO dao) {
+        while (true) {
+            if (dao instanceof Neo4jDAO) {
+                return (Neo4jDAO) dao;
+            } else if (dao instanceof CachingDAO) {
+                dao = ((CachingDAO) dao).getDelegate();
+            } else if (dao instanceof MeteredDAO) {
+                dao = ((MeteredDAO) dao).getDelegate();
+            } else {
+                return null;
+            }
+        }
+    }
+
+    // Requests are served by a pool of threads, each with its own database session; a request
+    // starts with a fresh one so that entities loaded by earlier requests are not kept around
+    private static void releaseSessionsAfterRequests(Neo4jDAO neo4jDAO) {
+        afterAfter((req, res) -> neo4jDAO.releaseSession());
+    }
+
+    // Times every request into a summary by method, route and status. Spark does not say which route matched,
+    // so each route registers its path through route(), and requests to any other path count as one route
+    private static void recordRequestMetrics() {
+        before((req, res) -> req.attribute(REQUEST_START, System.nanoTime()));
+        afterAfter((req, res) -> {
+            Long start = req.attribute(REQUEST_START);
+            if (null != start) {
+                int status = res.raw().getStatus();
+                String route = req.attribute(REQUEST_ROUTE);
+                if (null == route) {
+                    route = OTHER_ROUTE;
+                }
+                metrics.histogram("http_request_duration_seconds", "Time taken to serve requests.",
+                        "method", req.requestMethod(), "route", route, "status", Integer.toString(status))
+                        .record(System.nanoTime() - start);
+            }
+        });
+    }
+
+    // The path of a route, as its request metrics are labelled: a filter on the path marks the requests to it
+    private static String route(String path) {
+        before(path, (req, res) -> req.attribute(REQUEST_ROUTE, path));
+        return path;
+    }
+
+    private static void handleGetMetrics() {
+        get(route("/metrics"), (req, res) -> {
+            res.type(MetricsRegistry.CONTENT_TYPE);
+            return metrics.scrape();
+        });
+    }
+
     public static void stop() {
         Spark.stop();
     }
 
     private static void handleGetUsers() {
-        get("/users", (req, res) -> {
+        get(route("/users"), (req, res) -> {
             Map<String, Object> attributes = new HashMap<String, Object>();
             try {
-                attributes.put("users", dao.loadAll(User.class));
+                putPage(req, attributes, "users", User.class, "email", "firstName", "lastName");
                 return new ModelAndView(attributes, "users.html.ftl");
             } catch (Exception e) {
                 return handleException(res, attributes, e, "users.html.ftl");
@@ -108,7 +227,7 @@ public class App {
     }
 
     private static void handleGetIndex() {
-        get("/", (req, res) -> {
+        get(route("/"), (req, res) -> {
             Map<String, Object> attributes = new HashMap<>();
             User user = getLoggedInUser(req);
             attributes.put("user", user);
@@ -118,7 +237,7 @@ public class App {
     }
 
     private static void handleGetRegister() {
-        get("/register", (req, res) -> {
+        get(route("/register"), (req, res) -> {
             Map<String, Object> attributes = new HashMap<>();
             attributes.put("email", "");
             attributes.put("firstName", "");
@@ -133,7 +252,7 @@ public class App {
      * TODO: a serious bug in this method. Fix it (and test to verify)!
      */
     private static void handlePostRegister() {
-        post("/register", (req, res) -> {
+        post(route("/register"), (req, res) -> {
             Map<String, Object> attributes = new HashMap<>();
             String email = req.queryParams("email");
             String password = req.queryParams("password");
@@ -188,7 +307,7 @@ public class App {
     }
 
     private static void handleGetHello() {
-        get("/hello", (req, res) -> {
+        get(route("/hello"), (req, res) -> {
             Map<String, Object> attributes = new HashMap<>();
             User user = getLoggedInUser(req);
             if (null != user) {
@@ -199,7 +318,7 @@ public class App {
     }
 
     private static void handleGetLogin() {
-        get("/login", (req, res) -> {
+        get(route("/login"), (req, res) -> {
             Map<String, Object> attributes = new HashMap<>();
             String user_name = req.params("user_name");
             if (null == user_name || user_name.trim().isEmpty()) {
@@ -213,7 +332,7 @@ public class App {
     }
 
     private static void handlePostLogin() {
-        post("/login", (req, res) -> {
+        post(route("/login"), (req, res) -> {
             Map<String, Object> attributes = new HashMap<>();
             String user_name = req.queryParams("user_name");
             String password = req.queryParams("password");
@@ -241,7 +360,7 @@ public class App {
     }
 
     private static void handleGetLogout() {
-        get("/logout", (req, res) -> {
+        get(route("/logout"), (req, res) -> {
             User user = getLoggedInUser(req);
             spark.Session session = req.session();
             if (null != session && null != user) {
@@ -265,6 +384,51 @@ public class App {
     }
 
 
+    // Puts the given properties of the page selected by the "page" (1-based) and "limit" query parameters into the
+    // model. The page is read along with the count, and read again only when it turns out to be past the last page
+    private static <T extends Entity> void putPage(Request req, Map<String, Object> attributes, String name,
+                                                   Class<T> clazz, String sortBy, String... properties) {
+        int limit = Math.min(Math.max(1, intQueryParam(req, "limit", DEFAULT_PAGE_SIZE)), MAX_PAGE_SIZE);
+        // pages past this one would start at an offset that overflows an int
+        int furthest = Integer.MAX_VALUE / limit + 1;
+        int requested = Math.min(Math.max(1, intQueryParam(req, "page", 1)), furthest);
+        CompletableFuture<Long> count = asyncDao.count(clazz);
+        CompletableFuture<List<Map<String, Object>>> rows =
+                asyncDao.loadProperties(clazz, Arrays.asList(properties), (requested - 1) * limit, limit, sortBy);
+
+        long total = await(count);
+        int pages = (int) Math.max(1, Math.min(furthest, (total + limit - 1) / limit));
+        int page = Math.min(requested, pages);
+        if (page != requested) {
+            rows = asyncDao.loadProperties(clazz, Arrays.asList(properties), (page - 1) * limit, limit, sortBy);
+        }
+
+        attributes.put(name, await(rows));
+        attributes.put("page", page);
+        attributes.put("pages", pages);
+        attributes.put("limit", limit);
+        attributes.put("total", total);
+    }
+
+    // Waits for a DAO call, rethrowing its failure as is
+    private static <R> R await(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        }
+    }
+
+    private static int intQueryParam(Request req, String name, int defaultValue) {
+        String value = req.queryParams(name);
+        try {
+            return null == value ? defaultValue : Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
     private static User getLoggedInUser(Request req) {
         spark.Session session = req.session();
         User user = null;
@@ -275,7 +439,7 @@ public class App {
     }
 
     private static void handleGetUserById() {
-        get("/user/:id", (req, res) -> {
+        get(route("/user/:id"), (req, res) -> {
             Map<String, Object> attributes = new HashMap<>();
             User user = getLoggedInUser(req);
             attributes.put("user", user);
@@ -308,10 +472,10 @@ public class App {
 
 
     private static void handleGetRockets() {
-        get("/rockets", (req, res) -> {
+        get(route("/rockets"), (req, res) -> {
             Map<String, Object> attributes = new HashMap<>();
             try {
-                attributes.put("missions", dao.loadAll(Rocket.class));
+                putPage(req, attributes, "rockets", Rocket.class, "name", "name");
                 return new ModelAndView(attributes, "rockets.html.ftl");
             } catch (Exception e) {
                 return handleException(res, attributes, e, "rockets.html.ftl");
@@ -1,5 +1,8 @@
 <#-- @ftlvariable name="errorMsg" type="java.lang.String" -->
-<#-- @ftlvariable name="rockets" type="java.util.Collection<rockets.model.Rocket>" -->
+<#-- @ftlvariable name="page" type="java.lang.Integer" -->
+<#-- @ftlvariable name="pages" type="java.lang.Integer" -->
+<#-- @ftlvariable name="limit" type="java.lang.Integer" -->
+<#-- @ftlvariable name="rockets" type="java.util.List<java.util.Map<java.lang.String, java.lang.Object>>" -->
 
 <!doctype html public "-//W3C//DTD HTML 4.01 Transitional//EN" "http://www.w3.org/TR/html4/loose.dtd">
 <html>
@@ -26,6 +29,13 @@
         </#list>
 
     </ul>
+    <#if pages gt 1>
+    <p>
+        Page ${page?c} of ${pages?c}
+        <#if page gt 1><a href="/rockets?page=${(page - 1)?c}&amp;limit=${limit?c}">Previous</a></#if>
+        <#if page lt pages><a href="/rockets?page=${(page + 1)?c}&amp;limit=${limit?c}">Next</a></#if>
+    </p>
+    </#if>
 <#else>
     <p>No rocket yet in the system. <a href="/rocket/create">Create one</a> now!</p>
 </#if>
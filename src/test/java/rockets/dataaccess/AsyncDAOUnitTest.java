@@ -0,0 +1,103 @@
+package rockets.dataaccess;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import rockets.model.Rocket;
+import rockets.model.User;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AsyncDAOUnitTest {
+    private DAO dao;
+    private AtomicInteger releases;
+    private AsyncDAO async;
+
+    @Before
+    public void setUp() {
+        dao = mock(DAO.class);
+        releases = new AtomicInteger();
+        async = new AsyncDAO(dao, 1, 1, releases::incrementAndGet);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        async.close();
+    }
+
+    @Test
+    public void shouldComposeIndependentCalls() throws Exception {
+        User user = new User("abc@example.com");
+        when(dao.getUserByEmail("abc@example.com")).thenReturn(user);
+        when(dao.count(Rocket.class)).thenReturn(3L);
+
+        CompletableFuture<String> summary = async.getUserByEmail("abc@example.com")
+                .thenCombine(async.count(Rocket.class), (u, rockets) -> u.getEmail() + ": " + rockets);
+
+        assertEquals("abc@example.com: 3", summary.get(10, TimeUnit.SECONDS));
+        async.close();
+        assertEquals("released after each call", 2, releases.get());
+    }
+
+    @Test
+    public void shouldCompleteExceptionallyWhenTheCallFails() throws Exception {
+        when(dao.load(User.class, 1L)).thenThrow(new IllegalStateException("database down"));
+
+        try {
+            async.load(User.class, 1L).get(10, TimeUnit.SECONDS);
+            fail("expected failure");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void shouldRunOnTheCallerWhenTheQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        Thread caller = Thread.currentThread();
+        Thread[] ranOn = new Thread[1];
+        when(dao.count(User.class)).thenAnswer(invocation -> {
+            started.countDown();
+            blocked.await();
+            return 0L;
+        });
+        when(dao.count(Rocket.class)).thenAnswer(invocation -> {
+            ranOn[0] = Thread.currentThread();
+            return 1L;
+        });
+
+        CompletableFuture<Long> busy = async.count(User.class);
+        started.await();
+        CompletableFuture<Long> queued = async.count(User.class);
+        assertEquals(1, async.getQueueDepth());
+
+        CompletableFuture<Long> overflow = async.count(Rocket.class);
+        assertTrue("ran synchronously", overflow.isDone());
+        assertSame(caller, ranOn[0]);
+
+        blocked.countDown();
+        assertEquals(0L, busy.get(10, TimeUnit.SECONDS).longValue());
+        assertEquals(0L, queued.get(10, TimeUnit.SECONDS).longValue());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void shouldRejectCallsOnceClosed() throws InterruptedException {
+        async.close();
+        verify(dao).close();
+        async.count(User.class);
+    }
+}
@@ -0,0 +1,176 @@
+package rockets.dataaccess;
+
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+import rockets.model.User;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingDAOUnitTest {
+    private DAO dao;
+    private CachingDAO cache;
+    private User user;
+    private Rocket rocket;
+
+    @Before
+    public void setUp() {
+        dao = mock(DAO.class);
+        cache = new CachingDAO(dao, 2, 1, TimeUnit.HOURS);
+
+        user = new User("abc@example.com");
+        user.setId(1L);
+        LaunchServiceProvider spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        rocket = new Rocket("F9", "Falcon", "FT", "USA", spacex);
+        rocket.setId(2L);
+        when(dao.load(User.class, 1L)).thenReturn(user);
+        when(dao.load(Rocket.class, 2L)).thenReturn(rocket);
+        when(dao.getUserByEmail("abc@example.com")).thenReturn(user);
+        when(dao.loadAll(Rocket.class)).thenReturn(Lists.newArrayList(rocket));
+        when(dao.createOrUpdate(user)).thenReturn(user);
+        when(dao.createOrUpdate(spacex)).thenReturn(spacex);
+    }
+
+    @Test
+    public void shouldServeRepeatedReadsFromMemory() {
+        for (int i = 0; i < 3; i++) {
+            assertSame(user, cache.load(User.class, 1L));
+            assertSame(user, cache.getUserByEmail("abc@example.com"));
+            assertNull(cache.getUserByEmail("nobody@example.com"));
+            assertEquals(1, cache.loadAll(Rocket.class).size());
+        }
+
+        verify(dao, times(1)).load(User.class, 1L);
+        verify(dao, times(1)).getUserByEmail("abc@example.com");
+        verify(dao, times(1)).getUserByEmail("nobody@example.com");
+        verify(dao, times(1)).loadAll(Rocket.class);
+        assertEquals(4, cache.stats().missCount());
+        assertEquals(8, cache.stats().hitCount());
+    }
+
+    @Test
+    public void writesShouldInvalidateWhatTheyChange() {
+        cache.load(User.class, 1L);
+        cache.getUserByEmail("abc@example.com");
+        cache.loadAll(Rocket.class);
+
+        cache.createOrUpdate(user);
+        cache.load(User.class, 1L);
+        cache.getUserByEmail("abc@example.com");
+        cache.loadAll(Rocket.class);
+
+        verify(dao, times(2)).load(User.class, 1L);
+        verify(dao, times(2)).getUserByEmail("abc@example.com");
+        verify(dao, times(2)).loadAll(Rocket.class);
+    }
+
+    @Test
+    public void propertyUpdatesShouldInvalidateWhatTheyChange() {
+        cache.load(Rocket.class, 2L);
+        cache.loadAll(Rocket.class);
+
+        cache.updateProperties(Collections.singletonList(rocket));
+        cache.load(Rocket.class, 2L);
+        cache.loadAll(Rocket.class);
+
+        verify(dao).updateProperties(Collections.singletonList(rocket));
+        verify(dao, times(2)).load(Rocket.class, 2L);
+        verify(dao, times(2)).loadAll(Rocket.class);
+    }
+
+    @Test
+    public void savingAProviderShouldInvalidateItsRocketsAndLaunches() {
+        LaunchServiceProvider spacex = rocket.getManufacturer();
+        spacex.getRockets().add(rocket);
+        Launch launch = new Launch(new GregorianCalendar(2017, 0, 1).getTime(), rocket, spacex, "KSC", "LEO");
+        launch.setId(3L);
+        rocket.getLaunches().add(launch);
+        when(dao.load(Launch.class, 3L)).thenReturn(launch);
+
+        cache.load(Rocket.class, 2L);
+        cache.load(Launch.class, 3L);
+        cache.createOrUpdate(spacex);
+        cache.load(Rocket.class, 2L);
+        cache.load(Launch.class, 3L);
+
+        verify(dao, times(2)).load(Rocket.class, 2L);
+        verify(dao, times(2)).load(Launch.class, 3L);
+    }
+
+    @Test
+    public void savingOrDeletingALaunchShouldInvalidateItsRocketAndProvider() {
+        LaunchServiceProvider spacex = rocket.getManufacturer();
+        spacex.setId(4L);
+        when(dao.load(LaunchServiceProvider.class, 4L)).thenReturn(spacex);
+        Launch launch = new Launch(new GregorianCalendar(2017, 0, 1).getTime(), rocket, spacex, "KSC", "LEO");
+        launch.setId(3L);
+        when(dao.createOrUpdate(launch)).thenReturn(launch);
+
+        cache.load(Rocket.class, 2L);
+        cache.load(LaunchServiceProvider.class, 4L);
+        cache.createOrUpdate(launch);
+        cache.load(Rocket.class, 2L);
+        cache.load(LaunchServiceProvider.class, 4L);
+        cache.delete(launch);
+        cache.load(Rocket.class, 2L);
+        cache.load(LaunchServiceProvider.class, 4L);
+
+        verify(dao, times(3)).load(Rocket.class, 2L);
+        verify(dao, times(3)).load(LaunchServiceProvider.class, 4L);
+    }
+
+    @Test
+    public void savingARocketShouldInvalidateItsManufacturer() {
+        LaunchServiceProvider spacex = rocket.getManufacturer();
+        spacex.setId(4L);
+        when(dao.load(LaunchServiceProvider.class, 4L)).thenReturn(spacex);
+        when(dao.createOrUpdate(rocket)).thenReturn(rocket);
+
+        cache.load(LaunchServiceProvider.class, 4L);
+        cache.createOrUpdate(rocket);
+        cache.load(LaunchServiceProvider.class, 4L);
+
+        verify(dao, times(2)).load(LaunchServiceProvider.class, 4L);
+    }
+
+    @Test
+    public void everyThreadShouldGetTheSameReadOnlyInstance() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Rocket> first = executor.submit(() -> cache.load(Rocket.class, 2L));
+            Future<Rocket> second = executor.submit(() -> cache.load(Rocket.class, 2L));
+            assertSame(first.get(), second.get());
+            assertSame("to change it, load it from the delegate", rocket, cache.getDelegate().load(Rocket.class, 2L));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldEvictBeyondTheMaximumSize() {
+        for (long id = 10; id < 15; id++) {
+            cache.load(Rocket.class, id);
+        }
+        assertEquals(3, cache.stats().evictionCount());
+
+        Collection<Rocket> rockets = cache.loadAll(Rocket.class);
+        assertEquals(1, rockets.size());
+    }
+}
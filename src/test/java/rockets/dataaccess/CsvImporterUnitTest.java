@@ -0,0 +1,161 @@
+package rockets.dataaccess;
+
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import rockets.model.Entity;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CsvImporterUnitTest {
+    private static final String PROVIDERS =
+            "name,yearFounded,country,headquarters\n" +
+            "SpaceX,2002,USA,Hawthorne\n" +
+            "ESA,1975,Europe,\n";
+
+    private static final String ROCKETS =
+            "name,family,variation,country,manufacturer,massToLEO,firstYearFlight,latestYearFlight,noLaunches\n" +
+            "Falcon 9,Falcon,FT,USA,SpaceX,22800,2010,2018,3\n" +
+            "Ariane 5,Ariane,ECA,Europe,ESA,,,,\n";
+
+    private static final String LAUNCHES =
+            "launchDate,rocket,launchSite,orbit,function,launchOutcome,price\n" +
+            "2017-01-14,Falcon 9,VAFB,LEO,Iridium,SUCCESSFUL,62\n" +
+            "2017-02-19,Falcon 9,KSC,LEO,,SUCCESSFUL,62\n" +
+            "2017-06-01,Ariane 5,Kourou,GTO,,FAILED,\n" +
+            "2018-02-06,Falcon 9,KSC,GTO,,SUCCESSFUL,90\n";
+
+    private DAO dao;
+    private List<List<Entity>> batches;
+    private List<List<Entity>> updates;
+
+    @Before
+    public void setUp() {
+        batches = Lists.newArrayList();
+        updates = Lists.newArrayList();
+        dao = mock(DAO.class);
+        when(dao.createOrUpdateAll(any())).thenAnswer(invocation -> {
+            Collection<Entity> batch = invocation.getArgument(0);
+            batches.add(Lists.newArrayList(batch));
+            return batch;
+        });
+        doAnswer(invocation -> {
+            Collection<Entity> batch = invocation.getArgument(0);
+            updates.add(Lists.newArrayList(batch));
+            return null;
+        }).when(dao).updateProperties(any());
+    }
+
+    @Test
+    public void shouldImportAllFilesInBatches() throws IOException {
+        CsvImporter importer = new CsvImporter(dao);
+        importer.setBatchSize(3);
+
+        CsvImporter.Summary summary = importer.importAll(
+                new StringReader(PROVIDERS), new StringReader(ROCKETS), new StringReader(LAUNCHES));
+
+        assertEquals(8, summary.getRows());
+        assertTrue(summary.getRowsPerSecond() > 0);
+        assertEquals("providers, rockets, launches (3 + 1)", 4, batches.size());
+        assertEquals(3, batches.get(2).size());
+        assertEquals(1, batches.get(3).size());
+
+        LaunchServiceProvider spacex = (LaunchServiceProvider) batches.get(0).get(0);
+        assertEquals("Hawthorne", spacex.getHeadquarters());
+        Rocket falcon9 = (Rocket) batches.get(1).get(0);
+        assertSame("resolved by name", spacex, falcon9.getManufacturer());
+        assertEquals("22800", falcon9.getMassToLEO());
+
+        Launch first = (Launch) batches.get(2).get(0);
+        assertSame(falcon9, first.getLaunchVehicle());
+        assertEquals(new GregorianCalendar(2017, 0, 14).getTime(), first.getLaunchDate());
+        assertEquals("Iridium", first.getFunction());
+        assertEquals(Launch.LaunchOutcome.SUCCESSFUL, first.getLaunchOutcome());
+        assertEquals(62, first.getPrice());
+        assertTrue("launches are not collected on their rocket", falcon9.getLaunches().isEmpty());
+
+        assertEquals("only rockets with flight data are updated", Collections.singletonList(Lists.newArrayList(falcon9)), updates);
+        assertEquals(2010, falcon9.getFirstYearFlight());
+        assertEquals(2018, falcon9.getLatestYearFlight());
+        assertEquals(3, falcon9.getNoLaunches());
+    }
+
+    @Test
+    public void shouldTellSameNamedRocketsApartByCountry() throws IOException {
+        CsvImporter importer = new CsvImporter(dao);
+        importer.importAll(new StringReader(PROVIDERS),
+                new StringReader(ROCKETS + "Falcon 9,Falcon,EU,Europe,ESA,,,,\n"),
+                new StringReader("launchDate,rocket,rocketCountry,launchSite,orbit\n" +
+                        "2017-01-14,Falcon 9,USA,VAFB,LEO\n" +
+                        "2017-02-19,Falcon 9,Europe,Kourou,LEO\n" +
+                        "2017-06-01,Ariane 5,,Kourou,GTO\n"));
+
+        List<Entity> launches = batches.get(2);
+        assertEquals("USA", ((Launch) launches.get(0)).getLaunchVehicle().getCountry());
+        assertEquals("Europe", ((Launch) launches.get(1)).getLaunchVehicle().getCountry());
+        assertEquals("Ariane 5", ((Launch) launches.get(2)).getLaunchVehicle().getName());
+    }
+
+    @Test
+    public void shouldRejectLaunchesOfAmbiguousRockets() throws IOException {
+        CsvImporter importer = new CsvImporter(dao);
+        importer.importProviders(new StringReader(PROVIDERS));
+        importer.importRockets(new StringReader(ROCKETS + "Falcon 9,Falcon,EU,Europe,ESA,,,,\n"));
+
+        try {
+            importer.importLaunches(new StringReader(LAUNCHES));
+            fail("two rockets are named Falcon 9");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("rocketCountry"));
+        }
+    }
+
+    @Test
+    public void shouldRunTheHookAfterEveryBatch() throws IOException {
+        AtomicInteger released = new AtomicInteger();
+        CsvImporter importer = new CsvImporter(dao, released::incrementAndGet);
+        importer.setBatchSize(3);
+
+        importer.importAll(new StringReader(PROVIDERS), new StringReader(ROCKETS), new StringReader(LAUNCHES));
+
+        assertEquals(batches.size() + updates.size(), released.get());
+    }
+
+    @Test
+    public void shouldReportTheInvalidRow() throws IOException {
+        CsvImporter importer = new CsvImporter(dao);
+        importer.importProviders(new StringReader(PROVIDERS));
+        importer.importRockets(new StringReader(ROCKETS));
+
+        try {
+            importer.importLaunches(new StringReader(LAUNCHES + "2018-13-01,Falcon 9,KSC,GTO,,,\n"));
+            fail("invalid date");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid row 5 in launches"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownReferences() throws IOException {
+        CsvImporter importer = new CsvImporter(dao);
+        importer.importRockets(new StringReader(ROCKETS));
+    }
+}
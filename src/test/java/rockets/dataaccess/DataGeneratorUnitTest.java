@@ -0,0 +1,108 @@
+package rockets.dataaccess;
+
+import org.junit.Test;
+import rockets.dataaccess.memory.InMemoryDAO;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class DataGeneratorUnitTest {
+    private static final LocalDate TODAY = LocalDate.of(2020, 6, 1);
+
+    @Test
+    public void shouldGenerateTheSameHistoryForTheSameSeed() throws IOException {
+        assertEquals(csv(42, 2000), csv(42, 2000));
+        assertNotEquals(csv(42, 2000), csv(43, 2000));
+    }
+
+    @Test
+    public void shouldWriteAHistoryShapedLikeTheRealOne() {
+        InMemoryDAO dao = new InMemoryDAO();
+        DataGenerator generator = new DataGenerator(7, 20_000, TODAY);
+        generator.setBatchSize(500);
+
+        assertEquals(20_000, generator.writeTo(dao));
+        Collection<Launch> launches = dao.loadAll(Launch.class);
+        assertEquals(20_000, launches.size());
+
+        long planned = launches.stream().filter(launch -> null == launch.getLaunchOutcome()).count();
+        long failed = launches.stream().filter(launch -> Launch.LaunchOutcome.FAILED == launch.getLaunchOutcome()).count();
+        assertTrue(planned > 0);
+        double failureRate = (double) failed / (launches.size() - planned);
+        assertTrue("failure rate " + failureRate, failureRate > 0.02 && failureRate < 0.1);
+
+        Map<Rocket, Long> launchesByRocket = launches.stream()
+                .collect(Collectors.groupingBy(Launch::getLaunchVehicle, Collectors.counting()));
+        List<Long> counts = dao.loadAll(Rocket.class).stream()
+                .map(rocket -> launchesByRocket.getOrDefault(rocket, 0L))
+                .sorted(Comparator.reverseOrder())
+                .collect(Collectors.toList());
+        assertTrue("busiest rocket " + counts.get(0), counts.get(0) > 10 * counts.get(counts.size() / 2));
+        for (Rocket rocket : launchesByRocket.keySet()) {
+            assertTrue(rocket.getFirstYearFlight() >= 1957);
+        }
+    }
+
+    @Test
+    public void shouldWriteLaunchesWithoutCollectingThemOnTheirRockets() {
+        DAO dao = mock(DAO.class);
+        DataGenerator generator = new DataGenerator(7, 2_000, TODAY);
+
+        assertEquals(2_000, generator.writeTo(dao));
+
+        for (LaunchServiceProvider provider : generator.getProviders()) {
+            for (Rocket rocket : provider.getRockets()) {
+                assertTrue(rocket.getLaunches().isEmpty());
+            }
+        }
+        verify(dao, atLeastOnce()).updateProperties(anyCollection());
+    }
+
+    @Test
+    public void shouldWriteCsvThatImportsToTheSameHistory() throws IOException {
+        StringWriter providers = new StringWriter();
+        StringWriter rockets = new StringWriter();
+        StringWriter launches = new StringWriter();
+        assertEquals(3000, new DataGenerator(11, 3000, TODAY).writeCsv(providers, rockets, launches));
+
+        InMemoryDAO imported = new InMemoryDAO();
+        new CsvImporter(imported).importAll(new StringReader(providers.toString()),
+                new StringReader(rockets.toString()), new StringReader(launches.toString()));
+        InMemoryDAO written = new InMemoryDAO();
+        new DataGenerator(11, 3000, TODAY).writeTo(written);
+
+        assertEquals(3000, imported.loadAll(Launch.class).size());
+        assertEquals(written.loadAll(Rocket.class).size(), imported.loadAll(Rocket.class).size());
+        assertEquals(count(written, Launch.LaunchOutcome.FAILED), count(imported, Launch.LaunchOutcome.FAILED));
+    }
+
+    private static long count(DAO dao, Launch.LaunchOutcome outcome) {
+        return dao.loadAll(Launch.class).stream().filter(launch -> outcome == launch.getLaunchOutcome()).count();
+    }
+
+    private static String csv(long seed, long launches) throws IOException {
+        StringWriter providers = new StringWriter();
+        StringWriter rockets = new StringWriter();
+        StringWriter launchCsv = new StringWriter();
+        new DataGenerator(seed, launches, TODAY).writeCsv(providers, rockets, launchCsv);
+        return providers + "\n" + rockets + "\n" + launchCsv;
+    }
+}
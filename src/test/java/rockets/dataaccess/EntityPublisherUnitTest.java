@@ -0,0 +1,135 @@
+package rockets.dataaccess;
+
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import rockets.dataaccess.memory.InMemoryDAO;
+import rockets.model.User;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EntityPublisherUnitTest {
+    private InMemoryDAO dao;
+
+    @Before
+    public void setUp() {
+        dao = new InMemoryDAO();
+        for (int i = 0; i < 5; i++) {
+            dao.createOrUpdate(new User("user" + i + "@example.com"));
+        }
+    }
+
+    @Test
+    public void shouldEmitNoMoreThanRequested() {
+        Collecting subscriber = new Collecting();
+        new EntityPublisher<>(dao, User.class, Runnable::run).subscribe(subscriber);
+
+        subscriber.subscription.request(2);
+        assertEquals(2, subscriber.received.size());
+        assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(10);
+        assertEquals(5, subscriber.received.size());
+        assertEquals("user0@example.com", subscriber.received.get(0).getEmail());
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void shouldCloseTheStreamWhenCancelled() {
+        AtomicBoolean closed = new AtomicBoolean();
+        DAO endless = mock(DAO.class);
+        when(endless.stream(User.class)).thenReturn(
+                Stream.iterate(0, i -> i + 1).map(i -> new User(i + "@example.com")).onClose(() -> closed.set(true)));
+        Collecting subscriber = new Collecting();
+        new EntityPublisher<>(endless, User.class, Runnable::run).subscribe(subscriber);
+
+        subscriber.subscription.request(3);
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(3);
+
+        assertEquals(3, subscriber.received.size());
+        assertTrue(closed.get());
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    public void shouldSignalAnErrorForNonPositiveRequests() {
+        Collecting subscriber = new Collecting();
+        new EntityPublisher<>(dao, User.class, Runnable::run).subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertEquals(0, subscriber.received.size());
+    }
+
+    @Test
+    public void shouldEmitOnTheIoThreadsOfAnAsyncDao() throws InterruptedException {
+        AsyncDAO async = new AsyncDAO(dao, 2, 4, () -> { });
+        CountDownLatch finished = new CountDownLatch(1);
+        List<String> threads = Lists.newCopyOnWriteArrayList();
+        async.publisher(User.class).subscribe(new Collecting() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                super.onSubscribe(s);
+                s.request(1);
+            }
+
+            @Override
+            public void onNext(User user) {
+                super.onNext(user);
+                threads.add(Thread.currentThread().getName());
+                subscription.request(1);
+            }
+
+            @Override
+            public void onComplete() {
+                super.onComplete();
+                finished.countDown();
+            }
+        });
+
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        assertEquals(5, threads.size());
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("dao-io-")));
+        async.close();
+    }
+
+    private static class Collecting implements Subscriber<User> {
+        final List<User> received = Lists.newCopyOnWriteArrayList();
+        volatile Subscription subscription;
+        volatile boolean completed;
+        volatile Throwable error;
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            subscription = s;
+        }
+
+        @Override
+        public void onNext(User user) {
+            received.add(user);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
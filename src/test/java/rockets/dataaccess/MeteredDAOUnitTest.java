@@ -0,0 +1,68 @@
+package rockets.dataaccess;
+
+import org.junit.Before;
+import org.junit.Test;
+import rockets.metrics.MetricsRegistry;
+import rockets.model.User;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MeteredDAOUnitTest {
+    private DAO delegate;
+    private MetricsRegistry metrics;
+    private MeteredDAO dao;
+
+    @Before
+    public void setUp() {
+        delegate = mock(DAO.class);
+        metrics = new MetricsRegistry();
+        dao = new MeteredDAO(delegate, metrics);
+    }
+
+    @Test
+    public void shouldTimeEachOperation() {
+        User user = new User("a@example.com");
+        when(delegate.load(User.class, 1L)).thenReturn(user);
+
+        assertSame(user, dao.load(User.class, 1L));
+        dao.load(User.class, 1L, 0);
+        dao.count(User.class);
+
+        assertEquals(2, metrics.histogram("dao_operation_seconds", "", "operation", "load").getCount());
+        assertEquals(1, metrics.histogram("dao_operation_seconds", "", "operation", "count").getCount());
+        assertEquals(0, metrics.histogram("dao_operation_seconds", "", "operation", "delete").getCount());
+    }
+
+    @Test
+    public void shouldTimePropertyUpdates() {
+        List<User> users = Collections.singletonList(new User("a@example.com"));
+
+        dao.updateProperties(users);
+
+        verify(delegate).updateProperties(users);
+        assertEquals(1, metrics.histogram("dao_operation_seconds", "", "operation", "updateProperties").getCount());
+    }
+
+    @Test
+    public void shouldCountCallsThatThrow() {
+        when(delegate.getUserByEmail("a@example.com")).thenThrow(new IllegalStateException("down"));
+
+        try {
+            dao.getUserByEmail("a@example.com");
+            fail();
+        } catch (IllegalStateException expected) {
+            // rethrown as is
+        }
+
+        assertEquals(1, metrics.histogram("dao_operation_seconds", "", "operation", "getUserByEmail").getCount());
+        assertEquals(1, metrics.counter("dao_errors_total", "", "operation", "getUserByEmail").get());
+    }
+}
@@ -0,0 +1,54 @@
+package rockets.dataaccess;
+
+import org.junit.Before;
+import org.junit.Test;
+import rockets.dataaccess.memory.InMemoryDAO;
+import rockets.model.User;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class ReadOnlyDAOUnitTest {
+    private InMemoryDAO delegate;
+    private ReadOnlyDAO dao;
+    private User user;
+
+    @Before
+    public void setUp() {
+        delegate = new InMemoryDAO();
+        user = delegate.createOrUpdate(new User("abc@example.com"));
+        dao = new ReadOnlyDAO(delegate);
+    }
+
+    @Test
+    public void shouldServeReads() {
+        assertSame(user, dao.load(User.class, user.getId()));
+        assertSame(user, dao.getUserByEmail("abc@example.com"));
+        assertEquals(1, dao.count(User.class));
+        assertEquals(asList(user), dao.loadPage(User.class, 0, 10, "email"));
+    }
+
+    @Test
+    public void shouldRejectEveryWrite() {
+        User other = new User("other@example.com");
+        List<Runnable> writes = asList(
+                () -> dao.createOrUpdate(other),
+                () -> dao.createOrUpdateAll(asList(other)),
+                () -> dao.updateProperties(asList(user)),
+                () -> dao.delete(user));
+        for (Runnable write : writes) {
+            try {
+                write.run();
+                fail("written through a read-only DAO");
+            } catch (UnsupportedOperationException expected) {
+                // nothing written
+            }
+        }
+        assertEquals(1, delegate.count(User.class));
+        assertSame(user, delegate.getUserByEmail("abc@example.com"));
+    }
+}
@@ -0,0 +1,177 @@
+package rockets.dataaccess;
+
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+import rockets.model.User;
+
+import java.util.Collection;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WriteBehindDAOUnitTest {
+    private DAO dao;
+    private List<List<Object>> flushed;
+    private WriteBehindDAO writeBehind;
+    private Rocket rocket;
+    private User user;
+
+    @Before
+    public void setUp() {
+        dao = mock(DAO.class);
+        flushed = Lists.newArrayList();
+        doAnswer(invocation -> {
+            Collection<?> batch = invocation.getArgument(0);
+            flushed.add(Lists.newArrayList(batch));
+            return null;
+        }).when(dao).updateProperties(anyCollection());
+        writeBehind = new WriteBehindDAO(dao, 3, 1, TimeUnit.HOURS, () -> { });
+
+        rocket = new Rocket("F9", "Falcon", "FT", "USA", new LaunchServiceProvider("SpaceX", 2002, "USA"));
+        rocket.setId(1L);
+        rocket.getManufacturer().setId(3L);
+        user = new User("abc@example.com");
+        user.setId(2L);
+    }
+
+    @Test
+    public void shouldCoalesceRepeatedUpdatesIntoOneBatch() {
+        for (String link : asList("https://en.wikipedia.org/wiki/F9", "https://en.wikipedia.org/wiki/Falcon_9")) {
+            rocket.setWikilink(link);
+            writeBehind.createOrUpdate(rocket);
+        }
+        writeBehind.createOrUpdate(user);
+
+        assertEquals(2, writeBehind.getQueueDepth());
+        assertSame("point loads see queued updates", rocket, writeBehind.load(Rocket.class, 1L));
+        verify(dao, never()).createOrUpdate(rocket);
+
+        writeBehind.flush();
+        assertEquals(asList(asList(rocket, user)), flushed);
+        assertEquals(0, writeBehind.getQueueDepth());
+        assertEquals(1, writeBehind.getFlushes());
+        assertEquals(2, writeBehind.getFlushedEntities());
+    }
+
+    @Test
+    public void shouldWriteNewEntitiesStraightAway() {
+        User created = new User("new@example.com");
+        when(dao.createOrUpdate(created)).thenReturn(created);
+
+        assertSame(created, writeBehind.createOrUpdate(created));
+        verify(dao).createOrUpdate(created);
+        assertEquals(0, writeBehind.getQueueDepth());
+    }
+
+    @Test
+    public void shouldFlushOnlyThePropertiesOfQueuedEntities() {
+        rocket.setLaunches(null);
+        rocket.setWikilink("https://en.wikipedia.org/wiki/Falcon_9");
+        writeBehind.createOrUpdate(rocket);
+
+        writeBehind.flush();
+        assertEquals(asList(asList(rocket)), flushed);
+        verify(dao, never()).createOrUpdateAll(anyCollection());
+    }
+
+    @Test
+    public void shouldWriteSavesThatReachNewEntitiesStraightAway() {
+        Launch launch = new Launch(new GregorianCalendar(2017, 0, 1).getTime(), rocket, rocket.getManufacturer(),
+                "KSC", "LEO");
+        rocket.getLaunches().add(launch);
+        when(dao.createOrUpdate(rocket)).thenReturn(rocket);
+
+        writeBehind.createOrUpdate(rocket);
+        verify(dao).createOrUpdate(rocket);
+        assertEquals(0, writeBehind.getQueueDepth());
+    }
+
+    @Test
+    public void shouldWritePropertyUpdatesStraightAway() {
+        writeBehind.updateProperties(asList(rocket));
+
+        assertEquals(asList(asList(rocket)), flushed);
+        assertEquals(0, writeBehind.getQueueDepth());
+    }
+
+    @Test
+    public void shouldFlushOnceABatchIsQueued() {
+        for (long id = 10; id < 13; id++) {
+            User queued = new User("user" + id + "@example.com");
+            queued.setId(id);
+            writeBehind.createOrUpdate(queued);
+        }
+
+        verify(dao, timeout(5000)).updateProperties(anyCollection());
+    }
+
+    @Test
+    public void shouldFlushWhenRequeuedEntitiesTakeTheQueuePastABatch() throws InterruptedException {
+        doThrow(new IllegalStateException("database down"))
+                .doNothing()
+                .when(dao).updateProperties(anyCollection());
+        for (long id = 10; id < 13; id++) {
+            User queued = new User("user" + id + "@example.com");
+            queued.setId(id);
+            writeBehind.createOrUpdate(queued);
+        }
+        verify(dao, timeout(5000)).updateProperties(anyCollection());
+        for (int i = 0; i < 500 && 3 != writeBehind.getQueueDepth(); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, writeBehind.getQueueDepth());
+
+        writeBehind.createOrUpdate(user);
+
+        verify(dao, timeout(5000).atLeast(2)).updateProperties(anyCollection());
+    }
+
+    @Test
+    public void shouldRequeueWhenAFlushFails() {
+        doThrow(new IllegalStateException("database down")).when(dao).updateProperties(anyCollection());
+        writeBehind.createOrUpdate(rocket);
+
+        try {
+            writeBehind.flush();
+            fail("expected failure");
+        } catch (IllegalStateException e) {
+            assertEquals(1, writeBehind.getQueueDepth());
+        }
+    }
+
+    @Test
+    public void shouldNotWriteDeletedEntities() {
+        writeBehind.createOrUpdate(rocket);
+        writeBehind.delete(rocket);
+
+        writeBehind.flush();
+        verify(dao).delete(rocket);
+        assertEquals(0, flushed.size());
+    }
+
+    @Test
+    public void shouldFlushOnClose() {
+        writeBehind.createOrUpdate(user);
+        writeBehind.close();
+
+        assertEquals(asList(asList(user)), flushed);
+        verify(dao).close();
+    }
+}
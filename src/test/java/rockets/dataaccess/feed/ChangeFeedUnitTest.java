@@ -0,0 +1,164 @@
+package rockets.dataaccess.feed;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import rockets.dataaccess.memory.InMemoryDAO;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+import rockets.model.User;
+
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ChangeFeedUnitTest {
+    private ChangeFeed feed;
+    private BlockingQueue<Change> received;
+
+    @Before
+    public void setUp() {
+        feed = new ChangeFeed(4);
+        received = new LinkedBlockingQueue<>();
+    }
+
+    @After
+    public void tearDown() {
+        feed.close();
+    }
+
+    @Test
+    public void subscribersReceiveLaterChangesInOrder() throws InterruptedException {
+        feed.publish(Change.Kind.CREATED, User.class, 1);
+        feed.subscribe(received::add);
+        for (long id = 2; id <= 10; id++) {
+            feed.publish(Change.Kind.UPDATED, User.class, id);
+            Change change = received.poll(5, TimeUnit.SECONDS);
+            assertEquals(id, change.getSequence());
+            assertEquals(id, change.getId());
+            assertEquals(Change.Kind.UPDATED, change.getKind());
+        }
+        assertEquals(10, feed.getLastSequence());
+    }
+
+    @Test
+    public void slowSubscribersSkipOverwrittenChanges() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicLong missed = new AtomicLong();
+        List<Long> sequences = new CopyOnWriteArrayList<>();
+        ChangeFeed.Subscription subscription = feed.subscribe(new ChangeFeed.Listener() {
+            @Override
+            public void onChange(Change change) {
+                sequences.add(change.getSequence());
+                if (1 == change.getSequence()) {
+                    blocked.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+
+            @Override
+            public void onOverrun(long count) {
+                missed.addAndGet(count);
+            }
+        });
+
+        feed.publish(Change.Kind.CREATED, User.class, 1);
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        for (long id = 2; id <= 10; id++) {
+            feed.publish(Change.Kind.CREATED, User.class, id);
+        }
+        assertEquals(9, subscription.getLag());
+        release.countDown();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (subscription.getLag() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        subscription.close();
+        assertEquals("only the last four are still held", asList(1L, 7L, 8L, 9L, 10L), sequences);
+        assertEquals(5, missed.get());
+    }
+
+    @Test
+    public void daoWritesArePublishedOnceTheySucceed() throws InterruptedException {
+        ChangeFeedDAO dao = new ChangeFeedDAO(new InMemoryDAO(), feed);
+        feed.subscribe(received::add);
+
+        LaunchServiceProvider spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        Rocket rocket = new Rocket("F9", "Falcon", "FT", "USA", spacex);
+        dao.createOrUpdate(rocket);
+        rocket.setWikilink("https://en.wikipedia.org/wiki/Falcon_9");
+        dao.createOrUpdateAll(asList(rocket));
+        dao.delete(rocket);
+        dao.delete(new User("unsaved@example.com"));
+
+        assertChange(Change.Kind.CREATED, Rocket.class, rocket.getId());
+        assertChange(Change.Kind.CREATED, LaunchServiceProvider.class, spacex.getId());
+        assertChange(Change.Kind.UPDATED, Rocket.class, rocket.getId());
+        assertChange(Change.Kind.DELETED, Rocket.class, rocket.getId());
+        assertNull("unsaved entities are not published", received.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void entitiesSavedAlongWithOthersArePublished() throws InterruptedException {
+        ChangeFeedDAO dao = new ChangeFeedDAO(new InMemoryDAO(), feed);
+        LaunchServiceProvider spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        dao.createOrUpdate(spacex);
+        feed.subscribe(received::add);
+
+        Rocket rocket = new Rocket("F9", "Falcon", "FT", "USA", spacex);
+        Launch launch = new Launch(new GregorianCalendar(2017, 0, 1).getTime(), rocket, spacex, "KSC", "LEO");
+        rocket.getLaunches().add(launch);
+        spacex.getRockets().add(rocket);
+        dao.createOrUpdate(launch);
+
+        assertChange(Change.Kind.CREATED, Launch.class, launch.getId());
+        assertChange(Change.Kind.CREATED, Rocket.class, rocket.getId());
+        assertNull("the saved provider is only referenced", received.poll(100, TimeUnit.MILLISECONDS));
+
+        dao.createOrUpdateAll(asList(spacex));
+        assertChange(Change.Kind.UPDATED, LaunchServiceProvider.class, spacex.getId());
+        assertChange(Change.Kind.UPDATED, Rocket.class, rocket.getId());
+        assertChange(Change.Kind.UPDATED, Launch.class, launch.getId());
+        assertNull("each entity once", received.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void propertyUpdatesArePublishedForEachEntity() throws InterruptedException {
+        ChangeFeedDAO dao = new ChangeFeedDAO(new InMemoryDAO(), feed);
+        LaunchServiceProvider spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        Rocket rocket = new Rocket("F9", "Falcon", "FT", "USA", spacex);
+        dao.createOrUpdate(rocket);
+        feed.subscribe(received::add);
+
+        rocket.setFirstYearFlight(2010);
+        dao.updateProperties(asList(rocket, spacex));
+
+        assertChange(Change.Kind.UPDATED, Rocket.class, rocket.getId());
+        assertChange(Change.Kind.UPDATED, LaunchServiceProvider.class, spacex.getId());
+        assertNull("nothing cascades", received.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    private void assertChange(Change.Kind kind, Class<?> type, long id) throws InterruptedException {
+        Change change = received.poll(5, TimeUnit.SECONDS);
+        assertEquals(kind, change.getKind());
+        assertEquals(type, change.getEntityType());
+        assertEquals(id, change.getId());
+    }
+}
@@ -0,0 +1,205 @@
+package rockets.dataaccess.memory;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Test;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+import rockets.model.User;
+
+import java.util.Collection;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class InMemoryDAOUnitTest {
+    private InMemoryDAO dao;
+    private LaunchServiceProvider spacex;
+    private Rocket rocket;
+
+    @Before
+    public void setUp() {
+        dao = new InMemoryDAO();
+        spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        rocket = new Rocket("F9", "Falcon", "FT", "USA", spacex);
+    }
+
+    @Test
+    public void savingARocketSavesItsManufacturerAndLaunches() {
+        Launch launch = createLaunch(rocket, 1, 100);
+
+        dao.createOrUpdate(rocket);
+
+        assertNotNull(rocket.getId());
+        assertNotNull(spacex.getId());
+        assertNotNull(launch.getId());
+        assertSame(rocket, dao.load(Rocket.class, rocket.getId()));
+        assertNull("ids are per type", dao.load(Launch.class, rocket.getId()));
+        assertEquals(1, dao.count(LaunchServiceProvider.class));
+        assertEquals(1, dao.count(Launch.class));
+    }
+
+    @Test
+    public void equalEntitiesAreMatchedOnTheirNaturalKeys() {
+        createLaunch(rocket, 1, 100);
+        dao.createOrUpdate(rocket);
+
+        LaunchServiceProvider spacexAgain = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        Rocket rocketAgain = new Rocket("F9", "Falcon", "FT", "USA", spacexAgain);
+        Launch launchAgain = createLaunch(rocketAgain, 1, 200);
+        dao.createOrUpdateAll(asList(rocketAgain, spacexAgain));
+
+        assertEquals(spacex.getId(), spacexAgain.getId());
+        assertEquals(rocket.getId(), rocketAgain.getId());
+        assertEquals(1, dao.count(Rocket.class));
+        assertEquals("launch updated in place", 1, dao.count(Launch.class));
+        assertEquals(200, dao.load(Launch.class, launchAgain.getId()).getPrice());
+    }
+
+    @Test
+    public void existingUsersAreNotUpdated() {
+        User user = new User("abc@example.com");
+        user.setFirstName("Original");
+        dao.createOrUpdate(user);
+
+        User again = new User("abc@example.com");
+        again.setFirstName("Changed");
+        dao.createOrUpdate(again);
+
+        assertEquals(user.getId(), again.getId());
+        assertEquals(1, dao.count(User.class));
+        assertEquals("Original", dao.getUserByEmail("abc@example.com").getFirstName());
+        assertNull(dao.getUserByEmail("nobody@example.com"));
+    }
+
+    @Test
+    public void renamedEntitiesAreIndexedUnderTheirNewKey() {
+        User user = new User("old@example.com");
+        dao.createOrUpdate(user);
+        User renamed = new User("new@example.com");
+        renamed.setId(user.getId());
+        dao.createOrUpdate(renamed);
+
+        assertNull(dao.getUserByEmail("old@example.com"));
+        assertSame(renamed, dao.getUserByEmail("new@example.com"));
+    }
+
+    @Test
+    public void pagesAndPropertiesFollowTheDatabaseOrdering() {
+        for (String name : asList("Vega", "Ariane 5", "Soyuz")) {
+            dao.createOrUpdate(new Rocket(name, "Family", "V", "Europe", spacex));
+        }
+
+        List<Rocket> page = dao.loadPage(Rocket.class, 1, 5, "name");
+        assertEquals(asList("Soyuz", "Vega"), asList(page.get(0).getName(), page.get(1).getName()));
+        assertEquals("Vega", dao.loadPage(Rocket.class, 0, 1, null).get(0).getName());
+
+        List<Map<String, Object>> rows = dao.loadProperties(Rocket.class, asList("name", "lastYearFlight", "wikilink"), 0, 1, "name");
+        assertEquals(asList("id", "name", "lastYearFlight", "wikilink"), Lists.newArrayList(rows.get(0).keySet()));
+        assertEquals("Ariane 5", rows.get(0).get("name"));
+        assertEquals(0, rows.get(0).get("lastYearFlight"));
+        assertNull(rows.get(0).get("wikilink"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pagesCannotBeSortedByUnorderedProperties() {
+        createLaunch(rocket, 1, 100).setPayload(Sets.newHashSet("Iridium"));
+        createLaunch(rocket, 2, 100).setPayload(Sets.newHashSet("Dragon"));
+        dao.createOrUpdate(rocket);
+
+        dao.loadPage(Launch.class, 0, 10, "payload");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void projectedPropertiesMustBeIdentifiers() {
+        dao.loadProperties(Rocket.class, asList("name` AS x"), 0, 10, null);
+    }
+
+    @Test
+    public void deletedEntitiesAreNoLongerFound() {
+        User user = new User("abc@example.com");
+        dao.createOrUpdate(user);
+        dao.delete(user);
+
+        assertNull(dao.load(User.class, user.getId()));
+        assertNull(dao.getUserByEmail("abc@example.com"));
+        assertEquals(0, dao.loadAll(User.class).size());
+    }
+
+    @Test
+    public void propertyUpdatesStoreTheEntitiesAlone() {
+        dao.createOrUpdate(rocket);
+        Launch unsaved = createLaunch(rocket, 1, 100);
+
+        rocket.setFirstYearFlight(2010);
+        dao.updateProperties(asList(rocket));
+
+        assertEquals(2010, dao.load(Rocket.class, rocket.getId()).getFirstYearFlight());
+        assertNull("launches are not cascaded to", unsaved.getId());
+        assertEquals(0, dao.count(Launch.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void propertyUpdatesNeedSavedEntities() {
+        dao.updateProperties(asList(rocket));
+    }
+
+    @Test
+    public void savedLaunchesAreAmongTheirRocketsLaunches() {
+        dao.createOrUpdate(rocket);
+        Launch launch = new Launch(new GregorianCalendar(2017, 1, 10).getTime(), rocket, spacex, "Perlin", "LEO");
+        dao.createOrUpdate(launch);
+
+        assertEquals(asList(launch), Lists.newArrayList(dao.load(Rocket.class, rocket.getId()).getLaunches()));
+
+        dao.delete(launch);
+        assertEquals(0, dao.load(Rocket.class, rocket.getId()).getLaunches().size());
+    }
+
+    @Test
+    public void concurrentSavesOfEqualEntitiesStoreOne() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        dao.createOrUpdate(new User("user" + i + "@example.com"));
+                        dao.createOrUpdate(new Rocket("R" + i, "Family", "V", "USA", new LaunchServiceProvider("LSP", 2000, "USA")));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(100, dao.count(User.class));
+        assertEquals(100, dao.count(Rocket.class));
+        assertEquals(1, dao.count(LaunchServiceProvider.class));
+        Collection<User> users = dao.loadAll(User.class);
+        assertEquals(100, users.stream().map(User::getId).distinct().count());
+    }
+
+    private Launch createLaunch(Rocket vehicle, int month, int price) {
+        Launch launch = new Launch(new GregorianCalendar(2017, month, 10).getTime(), vehicle, vehicle.getManufacturer(), "Perlin", "LEO");
+        launch.setPrice(price);
+        vehicle.getLaunches().add(launch);
+        return launch;
+    }
+}
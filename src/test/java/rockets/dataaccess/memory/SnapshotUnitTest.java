@@ -0,0 +1,106 @@
+package rockets.dataaccess.memory;
+
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+import rockets.model.User;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.GregorianCalendar;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotUnitTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private InMemoryDAO source;
+    private Path file;
+    private Rocket falcon;
+    private Launch launch;
+
+    @Before
+    public void setUp() throws IOException {
+        source = new InMemoryDAO();
+        file = folder.getRoot().toPath().resolve("rockets.snapshot");
+
+        LaunchServiceProvider spacex = new LaunchServiceProvider("SpaceX", 2002, "USA");
+        spacex.setHeadquarters("Hawthorne");
+        falcon = new Rocket("Falcon 9", "Falcon", "FT", "USA", spacex);
+        falcon.setWikilink("https://en.wikipedia.org/wiki/Falcon_9");
+        Rocket heavy = new Rocket("Falcon Heavy", "Falcon", "Heavy", "USA", spacex);
+        spacex.getRockets().addAll(asList(falcon, heavy));
+        launch = new Launch(new GregorianCalendar(2018, 1, 6).getTime(), falcon, spacex, "LC-39A", "LEO");
+        launch.setPayload(Sets.newLinkedHashSet(asList("Dragon", "Starlink")));
+        launch.setLaunchOutcome(Launch.LaunchOutcome.SUCCESSFUL);
+        launch.setPrice(62);
+        falcon.getLaunches().add(launch);
+        falcon.setFirstYearFlight(2010);
+        source.createOrUpdate(spacex);
+
+        User user = new User("abc@example.com");
+        user.setFirstName("Ada");
+        source.createOrUpdate(user);
+    }
+
+    @Test
+    public void shouldRoundTripEntitiesAndRelationships() throws IOException {
+        assertEquals(5, Snapshot.write(source, file));
+        InMemoryDAO copy = Snapshot.read(file);
+
+        assertEquals(1, copy.count(LaunchServiceProvider.class));
+        assertEquals(2, copy.count(Rocket.class));
+        assertEquals(1, copy.count(Launch.class));
+
+        Rocket rocket = copy.load(Rocket.class, falcon.getId());
+        assertEquals(falcon.getName(), rocket.getName());
+        assertEquals(falcon.getWikilink(), rocket.getWikilink());
+        assertEquals(2010, rocket.getFirstYearFlight());
+        assertEquals("Hawthorne", rocket.getManufacturer().getHeadquarters());
+        assertSame("one object per entity", rocket, rocket.getManufacturer().getRockets().stream()
+                .filter(r -> r.getId().equals(falcon.getId())).findFirst().get());
+
+        Launch restored = rocket.getLaunches().iterator().next();
+        assertEquals(launch.getId(), restored.getId());
+        assertEquals(launch.getLaunchDate(), restored.getLaunchDate());
+        assertEquals(launch.getPayload(), restored.getPayload());
+        assertEquals(Launch.LaunchOutcome.SUCCESSFUL, restored.getLaunchOutcome());
+        assertEquals(62, restored.getPrice());
+        assertNull(restored.getFunction());
+        assertSame(rocket, restored.getLaunchVehicle());
+
+        assertEquals("Ada", copy.getUserByEmail("abc@example.com").getFirstName());
+    }
+
+    @Test
+    public void restoredEntitiesAreMatchedOnTheirNaturalKeys() throws IOException {
+        Snapshot.write(source, file);
+        InMemoryDAO copy = Snapshot.read(file);
+
+        Rocket again = new Rocket("Falcon 9", "Falcon", "FT", "USA", new LaunchServiceProvider("SpaceX", 2002, "USA"));
+        copy.createOrUpdate(again);
+        assertEquals(falcon.getId(), again.getId());
+
+        Rocket created = new Rocket("Starship", "Starship", "V1", "USA", again.getManufacturer());
+        copy.createOrUpdate(created);
+        assertEquals(1, copy.count(LaunchServiceProvider.class));
+        assertTrue("ids continue after the snapshot", created.getId() > source.getUserByEmail("abc@example.com").getId());
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectOtherFiles() throws IOException {
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        Snapshot.read(file);
+    }
+}
@@ -1,5 +1,6 @@
 package rockets.dataaccess.neo4j;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
@@ -16,7 +17,9 @@ import org.neo4j.ogm.session.Session;
 import org.neo4j.ogm.session.SessionFactory;
 import org.neo4j.test.TestGraphDatabaseFactory;
 import org.neo4j.test.rule.TestDirectory;
+import rockets.dataaccess.CsvImporter;
 import rockets.dataaccess.DAO;
+import rockets.dataaccess.MiningDAO;
 import rockets.model.Launch;
 import rockets.model.LaunchServiceProvider;
 import rockets.model.Rocket;
@@ -24,13 +27,23 @@ import rockets.model.User;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
 import java.util.*;
-
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class Neo4jDAOUnitTest {
     private static final String TEST_DB = "target/test-data/test-db";
@@ -431,6 +444,315 @@ public class Neo4jDAOUnitTest {
 
 
 
+    @Test
+    public void rankingQueriesArePushedDownToTheGraph() {
+        Launch cheap = createLaunch(rocket, 0, 100, Launch.LaunchOutcome.SUCCESSFUL);
+        Launch expensive = createLaunch(rocket, 1, 900, Launch.LaunchOutcome.SUCCESSFUL);
+        Launch latest = createLaunch(rocket, 5, 500, Launch.LaunchOutcome.FAILED);
+        Launch european = createLaunch(rocket2, 2, 300, Launch.LaunchOutcome.FAILED);
+        dao.createOrUpdate(rocket);
+        dao.createOrUpdate(rocket2);
+
+        MiningDAO queries = (MiningDAO) dao;
+        assertEquals("most launched", asList(rocket), queries.findMostLaunchedRockets(1));
+        assertEquals("most recent", asList(latest, european), queries.findMostRecentLaunches(2));
+        assertEquals("most expensive", asList(expensive, latest, european), queries.findMostExpensiveLaunches(3));
+        assertEquals("busiest in January", asList(spacex), queries.findBusiestLaunchServiceProvidersInMonth(5, 2017, 1));
+        assertEquals("ESA fails 1/1, SpaceX 1/3", asList("ESA", "SpaceX"), queries.findMostUnreliableLaunchServiceProviders(5));
+        assertTrue("nothing in 2016", queries.findBusiestLaunchServiceProvidersInMonth(5, 2016, 1).isEmpty());
+        assertTrue("cheap launch ranked last", !queries.findMostExpensiveLaunches(3).contains(cheap));
+    }
+
+    @Test
+    public void rankingTiesComeBackInAnyOrder() {
+        Launch first = createLaunch(rocket, 3, 500, Launch.LaunchOutcome.SUCCESSFUL);
+        Launch second = createLaunch(rocket2, 3, 500, Launch.LaunchOutcome.SUCCESSFUL);
+        dao.createOrUpdate(rocket);
+        dao.createOrUpdate(rocket2);
+
+        MiningDAO queries = (MiningDAO) dao;
+        assertEquals("one launch each", Sets.newHashSet(rocket, rocket2),
+                Sets.newHashSet(queries.findMostLaunchedRockets(2)));
+        assertEquals("same date", Sets.newHashSet(first, second), Sets.newHashSet(queries.findMostRecentLaunches(2)));
+        assertEquals("same price", Sets.newHashSet(first, second), Sets.newHashSet(queries.findMostExpensiveLaunches(2)));
+    }
+
+    @Test
+    public void naturalKeysAreIndexed() {
+        Set<String> indexes = Sets.newHashSet();
+        for (Map<String, Object> row : session.query("CALL db.indexes() YIELD description RETURN description",
+                Collections.emptyMap()).queryResults()) {
+            indexes.add((String) row.get("description"));
+        }
+        assertTrue(indexes.toString(), indexes.contains("INDEX ON :Rocket(name, country)"));
+        assertTrue(indexes.toString(), indexes.contains("INDEX ON :LaunchServiceProvider(name, yearFounded, country)"));
+        assertTrue(indexes.toString(), indexes.contains("INDEX ON :Launch(launchDate, launchSite)"));
+        assertTrue(indexes.toString(), indexes.contains("INDEX ON :User(email)"));
+    }
+
+    @Test
+    public void launchWithANewOutcomeUpdatesTheSameLaunch() {
+        Launch planned = createLaunch(rocket, 3, 100, Launch.LaunchOutcome.SUCCESSFUL);
+        dao.createOrUpdate(rocket);
+
+        Launch flown = new Launch(planned.getLaunchDate(), rocket, spacex, planned.getLaunchSite(), "LEO");
+        flown.setLaunchOutcome(Launch.LaunchOutcome.FAILED);
+        dao.createOrUpdate(flown);
+
+        assertEquals(planned.getId(), flown.getId());
+        assertEquals(1, dao.count(Launch.class));
+    }
+
+    @Test
+    public void pagesAreOrderedAndCountedInTheDatabase() {
+        for (String name : asList("Vega", "Ariane 5", "Soyuz", "Ariane 6", "Zenit")) {
+            dao.createOrUpdate(new Rocket(name, "Family", "V", "Europe", esa));
+        }
+
+        assertEquals(5, dao.count(Rocket.class));
+        assertEquals(1, dao.count(LaunchServiceProvider.class));
+        List<Rocket> first = dao.loadPage(Rocket.class, 0, 2, "name");
+        List<Rocket> last = dao.loadPage(Rocket.class, 4, 2, "name");
+        assertEquals(asList("Ariane 5", "Ariane 6"), asList(first.get(0).getName(), first.get(1).getName()));
+        assertEquals("partial last page", 1, last.size());
+        assertEquals("Zenit", last.get(0).getName());
+        assertTrue("past the end", dao.loadPage(Rocket.class, 5, 2, "name").isEmpty());
+        assertEquals("by id", "Vega", dao.loadPage(Rocket.class, 0, 1, null).get(0).getName());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pageSortPropertyMustBeAnIdentifier() {
+        dao.loadPage(Rocket.class, 0, 10, "name` DESC //");
+    }
+
+    @Test
+    public void loadDepthIsChosenPerCall() {
+        createLaunch(rocket, 0, 100, Launch.LaunchOutcome.SUCCESSFUL);
+        dao.createOrUpdate(rocket);
+        Long id = rocket.getId();
+
+        ((Neo4jDAO) dao).releaseSession();
+        Rocket shallow = dao.load(Rocket.class, id, 0);
+        assertEquals("F9", shallow.getName());
+        assertNull("manufacturer not loaded", shallow.getManufacturer());
+        assertTrue("launches not loaded", null == shallow.getLaunches() || shallow.getLaunches().isEmpty());
+
+        ((Neo4jDAO) dao).releaseSession();
+        Rocket loaded = dao.load(Rocket.class, id, 1);
+        assertEquals(spacex, loaded.getManufacturer());
+        assertEquals(1, loaded.getLaunches().size());
+
+        ((Neo4jDAO) dao).releaseSession();
+        for (Rocket r : dao.loadAll(Rocket.class, 0)) {
+            assertNull(r.getManufacturer());
+        }
+    }
+
+    @Test
+    public void propertiesArePagedWithoutLoadingEntities() {
+        for (String name : asList("Vega", "Ariane 5", "Soyuz")) {
+            dao.createOrUpdate(new Rocket(name, "Family", "V", "Europe", esa));
+        }
+
+        List<Map<String, Object>> rows = dao.loadProperties(Rocket.class, asList("name", "country", "wikilink"), 1, 5, "name");
+        assertEquals(2, rows.size());
+        assertEquals("Soyuz", rows.get(0).get("name"));
+        assertEquals("Europe", rows.get(0).get("country"));
+        assertNull("unset property", rows.get(0).get("wikilink"));
+        assertEquals(asList("id", "name", "country", "wikilink"), Lists.newArrayList(rows.get(0).keySet()));
+        assertEquals(dao.loadPage(Rocket.class, 1, 5, "name").get(1).getId().longValue(),
+                ((Number) rows.get(1).get("id")).longValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void projectedPropertiesMustBeIdentifiers() {
+        dao.loadProperties(Rocket.class, asList("name", "name` AS x, n.password AS `y"), 0, 10, null);
+    }
+
+    @Test
+    public void bulkWritesMatchExistingAndRepeatedEntities() {
+        Neo4jDAO bulk = new Neo4jDAO(sessionFactory);
+        bulk.setWriteBatchSize(2);
+        bulk.createOrUpdate(rocket);
+
+        for (int round = 0; round < 2; round++) {
+            LaunchServiceProvider spacexAgain = new LaunchServiceProvider("SpaceX", 2002, "USA");
+            Rocket f9 = new Rocket("F9", "Ariane", "ECA", "USA", spacexAgain);
+            Rocket heavy = new Rocket("FH", "Falcon", "Heavy", "USA", spacexAgain);
+            spacexAgain.getRockets().addAll(asList(f9, heavy));
+            createLaunch(f9, 0, 100, Launch.LaunchOutcome.SUCCESSFUL);
+            createLaunch(f9, 1, 100, Launch.LaunchOutcome.FAILED);
+            createLaunch(heavy, 0, 300, Launch.LaunchOutcome.SUCCESSFUL);
+            User first = new User("bulk@example.com");
+            User repeated = new User("bulk@example.com");
+
+            bulk.createOrUpdateAll(asList(spacexAgain, rocket2, first, repeated));
+
+            assertEquals("matched existing LSP", spacex.getId(), spacexAgain.getId());
+            assertEquals("matched existing rocket", rocket.getId(), f9.getId());
+            assertNotNull(heavy.getId());
+            assertEquals("repeated user saved once", first.getId(), repeated.getId());
+            assertEquals(2, bulk.count(LaunchServiceProvider.class));
+            assertEquals(3, bulk.count(Rocket.class));
+            assertEquals(3, bulk.count(Launch.class));
+            assertEquals(1, bulk.count(User.class));
+        }
+    }
+
+    @Test
+    public void bulkWritesRejectEqualNewRocketsAndLeaveThemAsTheyAre() {
+        Neo4jDAO bulk = new Neo4jDAO(sessionFactory);
+        Rocket copy = new Rocket("F9", "Ariane", "ECA", "USA", spacex);
+        Launch launch = createLaunch(rocket, 0, 100, Launch.LaunchOutcome.SUCCESSFUL);
+        Launch other = createLaunch(copy, 1, 200, Launch.LaunchOutcome.SUCCESSFUL);
+
+        try {
+            bulk.createOrUpdateAll(asList(launch, other));
+            fail("equal new rockets were saved together");
+        } catch (IllegalArgumentException expected) {
+            // nothing written
+        }
+
+        assertEquals(0, bulk.count(Rocket.class));
+        assertEquals(0, bulk.count(Launch.class));
+        assertSame(copy, other.getLaunchVehicle());
+        assertTrue(rocket.getLaunches().contains(launch));
+        assertTrue(copy.getLaunches().contains(other));
+    }
+
+    @Test
+    public void propertyUpdatesLeaveRelationshipsAsTheyAre() {
+        createLaunch(rocket, 0, 100, Launch.LaunchOutcome.SUCCESSFUL);
+        dao.createOrUpdate(rocket);
+
+        rocket.getLaunches().clear();
+        rocket.setWikilink("https://en.wikipedia.org/wiki/Falcon_9");
+        dao.updateProperties(asList(rocket));
+
+        ((Neo4jDAO) dao).releaseSession();
+        Rocket loaded = dao.load(Rocket.class, rocket.getId(), 1);
+        assertEquals("https://en.wikipedia.org/wiki/Falcon_9", loaded.getWikilink());
+        assertEquals("launch still linked", 1, loaded.getLaunches().size());
+        assertEquals(spacex, loaded.getManufacturer());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void propertyUpdatesNeedSavedEntities() {
+        dao.updateProperties(asList(rocket));
+    }
+
+    @Test
+    public void storesWithUsersSharingAnEmailStillOpen() {
+        EmbeddedDriver driver = createImpermanentEmbeddedDriver("duplicate-emails");
+        SessionFactory duplicates = new SessionFactory(driver, User.class.getPackage().getName());
+        try {
+            duplicates.openSession().query("CREATE (:User {email: 'twice@example.com'}), (:User {email: 'twice@example.com'})",
+                    Collections.emptyMap());
+
+            Neo4jDAO opened = new Neo4jDAO(duplicates);
+
+            assertEquals(2, opened.count(User.class));
+            assertNotNull(opened.getUserByEmail("twice@example.com"));
+        } finally {
+            duplicates.close();
+        }
+    }
+
+    @Test
+    public void csvImportKeepsLaunchesLinkedToTheirRockets() throws IOException {
+        importFalcons(new CsvImporter(dao));
+    }
+
+    @Test
+    public void csvImportReleasingTheSessionAfterEachBatchKeepsLaunchesLinked() throws IOException {
+        importFalcons(new CsvImporter(dao, ((Neo4jDAO) dao)::releaseSession));
+    }
+
+    private void importFalcons(CsvImporter importer) throws IOException {
+        importer.setBatchSize(2);
+        importer.importAll(
+                new StringReader("name,yearFounded,country\nSpaceX,2002,USA\n"),
+                new StringReader("name,family,variation,country,manufacturer,firstYearFlight\n" +
+                        "Falcon 9,Falcon,FT,USA,SpaceX,2010\nFalcon Heavy,Falcon,FH,USA,SpaceX,\n"),
+                new StringReader("launchDate,rocket,launchSite,orbit\n" +
+                        "2017-01-14,Falcon 9,VAFB,LEO\n2017-02-19,Falcon 9,KSC,LEO\n" +
+                        "2018-02-06,Falcon Heavy,KSC,GTO\n2018-03-06,Falcon 9,KSC,GTO\n"));
+
+        assertEquals(4, dao.count(Launch.class));
+        Rocket falcon9 = ((MiningDAO) dao).findMostLaunchedRockets(1).get(0);
+        assertEquals("Falcon 9", falcon9.getName());
+        assertEquals(2010, falcon9.getFirstYearFlight());
+        assertEquals("launches still linked after the rocket is saved again", 3, falcon9.getLaunches().size());
+    }
+
+    @Test
+    public void streamPagesThroughAllEntitiesInIdOrder() {
+        List<String> names = Lists.newArrayList();
+        for (int i = 0; i < 7; i++) {
+            Rocket r = new Rocket("Ariane " + i, "Ariane", "ECA", "Europe", esa);
+            dao.createOrUpdate(r);
+            names.add(r.getName());
+        }
+
+        try (Stream<Rocket> rockets = ((Neo4jDAO) dao).stream(Rocket.class, 3)) {
+            assertEquals("saved in id order", names, rockets.map(Rocket::getName).collect(Collectors.toList()));
+        }
+        try (Stream<Rocket> rockets = dao.stream(Rocket.class)) {
+            assertEquals("one default-sized batch", 7, rockets.count());
+        }
+        try (Stream<User> users = dao.stream(User.class)) {
+            assertEquals("no users", 0, users.count());
+        }
+    }
+
+    @Test
+    public void concurrentRequestsEachUseTheirOwnSession() throws Exception {
+        int threads = 8;
+        int iterations = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < iterations; i++) {
+                        User saved = new User("user" + thread + "." + i + "@rockets.org");
+                        saved.setFirstName("Thread" + thread);
+                        saved.setLastName("Iteration" + i);
+                        dao.createOrUpdate(saved);
+
+                        User byEmail = dao.getUserByEmail(saved.getEmail());
+                        assertEquals(saved.getId(), byEmail.getId());
+                        assertEquals("Thread" + thread, byEmail.getFirstName());
+                        assertEquals("Iteration" + i, dao.load(User.class, saved.getId()).getLastName());
+
+                        // as a web request would on completion
+                        if (i % 5 == 4) {
+                            ((Neo4jDAO) dao).releaseSession();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads * iterations, dao.count(User.class));
+    }
+
+    private Launch createLaunch(Rocket vehicle, int month, int price, Launch.LaunchOutcome outcome) {
+        Calendar calendar = new GregorianCalendar(2017, month, 10);
+        Launch launch = new Launch(calendar.getTime(), vehicle, vehicle.getManufacturer(), "Perlin", "LEO");
+        launch.setPrice(price);
+        launch.setLaunchOutcome(outcome);
+        vehicle.getLaunches().add(launch);
+        return launch;
+    }
+
     @After
     public void localTearDown() {
         session.purgeDatabase();
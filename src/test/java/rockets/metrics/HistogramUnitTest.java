@@ -0,0 +1,63 @@
+package rockets.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramUnitTest {
+    @Test
+    public void shouldKeepEveryValueInABucketThatHoldsIt() {
+        for (long value : new long[]{0, 1, 127, 128, 129, 255, 256, 1_000, 123_456_789, 1L << 40}) {
+            int index = Histogram.index(value);
+            assertTrue(value + " is below its bucket", Histogram.lowestValue(index) <= value);
+            assertTrue(value + " is above its bucket", Histogram.lowestValue(index + 1) > value);
+        }
+    }
+
+    @Test
+    public void shouldClampValuesFrom2To45Nanoseconds() {
+        int last = Histogram.index(Long.MAX_VALUE);
+        assertTrue(Histogram.index(1L << 44) < last);
+        assertTrue(Histogram.lowestValue(last) < (1L << 45));
+        assertEquals(last, Histogram.index(1L << 45));
+    }
+
+    @Test
+    public void shouldReadQuantilesWithinTheBucketPrecision() {
+        Histogram histogram = new Histogram();
+        for (long i = 1; i <= 100_000; i++) {
+            histogram.record(i * 1_000);
+        }
+
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000_000L, histogram.getMax());
+        assertEquals(50_000_000, histogram.getValueAtQuantile(0.5), 50_000_000 / 64.0);
+        assertEquals(99_000_000, histogram.getValueAtQuantile(0.99), 99_000_000 / 64.0);
+        assertEquals(100_000_000L, histogram.getValueAtQuantile(1));
+        assertEquals(0, new Histogram().getValueAtQuantile(0.5));
+    }
+
+    @Test
+    public void shouldNotLoseValuesRecordedConcurrently() throws InterruptedException {
+        Histogram histogram = new Histogram();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(80_000, histogram.getCount());
+        assertEquals(8 * 49_995_000L, histogram.getSum());
+        assertEquals(9_999, histogram.getMax());
+    }
+}
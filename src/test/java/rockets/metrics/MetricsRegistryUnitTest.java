@@ -0,0 +1,64 @@
+package rockets.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsRegistryUnitTest {
+    private MetricsRegistry metrics;
+
+    @Before
+    public void setUp() {
+        metrics = new MetricsRegistry();
+    }
+
+    @Test
+    public void shouldWriteCountersAndGaugesInTheTextFormat() {
+        metrics.counter("requests_total", "Requests.", "method", "GET").add(3);
+        metrics.counter("requests_total", "Requests.", "method", "POST").increment();
+        metrics.gauge("queue_depth", "Queued \"calls\".", () -> 2.5);
+
+        assertEquals("# HELP queue_depth Queued \"calls\".\n" +
+                "# TYPE queue_depth gauge\n" +
+                "queue_depth 2.5\n" +
+                "# HELP requests_total Requests.\n" +
+                "# TYPE requests_total counter\n" +
+                "requests_total{method=\"GET\"} 3\n" +
+                "requests_total{method=\"POST\"} 1\n", metrics.scrape());
+    }
+
+    @Test
+    public void shouldWriteHistogramsAsSummariesInSeconds() {
+        Histogram histogram = metrics.histogram("call_seconds", "Calls.", "path", "/a\"b");
+        histogram.record(2_000_000_000L);
+        histogram.record(1_000_000_000L);
+        metrics.histogram("call_seconds", "Calls.", "path", "/empty");
+
+        String scrape = metrics.scrape();
+        assertTrue(scrape, scrape.contains("# TYPE call_seconds summary\n"));
+        assertTrue(scrape, scrape.contains("call_seconds{path=\"/a\\\"b\",quantile=\"0.5\"} 1."));
+        assertTrue(scrape, scrape.contains("call_seconds{path=\"/a\\\"b\",quantile=\"0.999\"} 2\n"));
+        assertTrue(scrape, scrape.contains("call_seconds_sum{path=\"/a\\\"b\"} 3\n"));
+        assertTrue(scrape, scrape.contains("call_seconds_count{path=\"/a\\\"b\"} 2\n"));
+        assertTrue(scrape, scrape.contains("call_seconds{path=\"/empty\",quantile=\"0.5\"} NaN\n"));
+    }
+
+    @Test
+    public void shouldReturnTheSameMetricForTheSameLabels() {
+        assertSame(metrics.counter("a_total", "A.", "x", "1"), metrics.counter("a_total", "A.", "x", "1"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectAMetricOfAnotherType() {
+        metrics.counter("a_total", "A.");
+        metrics.histogram("a_total", "A.");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnpairedLabels() {
+        metrics.counter("a_total", "A.", "x");
+    }
+}
@@ -0,0 +1,141 @@
+package rockets.mining;
+
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import rockets.dataaccess.DAO;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LaunchSnapshotUnitTest {
+    private DAO dao;
+    private List<LaunchServiceProvider> lsps;
+    private List<Rocket> rockets;
+    private List<Launch> launches;
+
+    @Before
+    public void setUp() {
+        lsps = Lists.newArrayList(
+                new LaunchServiceProvider("ULA", 1990, "USA"),
+                new LaunchServiceProvider("SpaceX", 2002, "USA"),
+                new LaunchServiceProvider("ULA", 2006, "USA")
+        );
+        for (int i = 0; i < lsps.size(); i++) {
+            lsps.get(i).setId(10L + i);
+        }
+        rockets = Lists.newArrayList();
+        int[] lspIndex = new int[]{0, 1, 1, 2};
+        for (int i = 0; i < lspIndex.length; i++) {
+            Rocket rocket = new Rocket("R" + i, "Family", "V", "USA", lsps.get(lspIndex[i]));
+            rocket.setId(20L + i);
+            rockets.add(rocket);
+        }
+
+        // years relative to now, so that some launches are always planned
+        int thisYear = Calendar.getInstance().get(Calendar.YEAR);
+        int[] years = new int[]{-3, -3, -3, -2, -2, -3, 1, 1, 2, -3, 3, -2};
+        int[] months = new int[]{4, 4, 1, 7, 4, 4, 0, 5, 5, 4, 2, 7};
+        int[] rocketIndex = new int[]{0, 1, 1, 2, 3, 3, 1, 1, 2, 0, 1, 3};
+        int[] prices = new int[]{10, 30, 30, 20, 50, 10, 30, 40, 30, 50, 20, 10};
+        launches = Lists.newArrayList();
+        for (int i = 0; i < years.length; i++) {
+            Calendar calendar = new GregorianCalendar(thisYear + years[i], months[i], 1 + i % 3);
+            Rocket rocket = rockets.get(rocketIndex[i]);
+            Launch launch = new Launch(calendar.getTime(), rocket, rocket.getManufacturer(), "Site " + i % 2, "LEO");
+            launch.setId(100L + i);
+            launch.setPrice(prices[i]);
+            launch.setLaunchOutcome(i % 4 == 1 || i == 4 ? Launch.LaunchOutcome.FAILED : Launch.LaunchOutcome.SUCCESSFUL);
+            launches.add(launch);
+        }
+
+        dao = mock(DAO.class);
+        when(dao.loadAll(Launch.class)).thenReturn(launches);
+        when(dao.load(eq(Launch.class), anyLong())).thenAnswer(
+                invocation -> launches.get((int) (invocation.<Long>getArgument(1) - 100)));
+        when(dao.load(eq(Rocket.class), anyLong())).thenAnswer(
+                invocation -> rockets.get((int) (invocation.<Long>getArgument(1) - 20)));
+        when(dao.load(eq(LaunchServiceProvider.class), anyLong())).thenAnswer(
+                invocation -> lsps.get((int) (invocation.<Long>getArgument(1) - 10)));
+    }
+
+    @Test
+    public void shouldStoreLaunchesAsColumnsInDateOrder() {
+        LaunchSnapshot snapshot = LaunchSnapshot.build(launches);
+
+        assertEquals(launches.size(), snapshot.size());
+        for (int row = 1; row < snapshot.size(); row++) {
+            assertTrue("sorted by date", snapshot.launchDate(row - 1) <= snapshot.launchDate(row));
+        }
+        for (int row = 0; row < snapshot.size(); row++) {
+            Launch launch = launches.get(snapshot.sequence(row));
+            assertEquals(launch.getId().longValue(), snapshot.launchId(row));
+            assertEquals(launch.getPrice(), snapshot.price(row));
+            assertEquals(launch.getLaunchVehicle().getId().longValue(), snapshot.rocketId(snapshot.rocket(row)));
+            assertEquals(launch.getLaunchSite(), snapshot.siteOf(snapshot.site(row)));
+            assertEquals(launch.getOrbit(), snapshot.orbitOf(snapshot.orbit(row)));
+            assertEquals(launch.getLaunchOutcome() == Launch.LaunchOutcome.FAILED ? LaunchSnapshot.FAILED : LaunchSnapshot.SUCCESSFUL,
+                    snapshot.outcome(row));
+        }
+        assertEquals("dictionary-encoded", 4, snapshot.rocketCount());
+        assertEquals(3, snapshot.providerCount());
+        assertEquals("two providers named ULA", 2, snapshot.providerNameCount());
+    }
+
+    @Test
+    public void shouldSelectTopRowsWithStableTies() {
+        LaunchSnapshot snapshot = LaunchSnapshot.build(launches);
+        int[] rows = snapshot.topRows(0, snapshot.size(), 4, snapshot::price);
+
+        int[] sequences = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            sequences[i] = snapshot.sequence(rows[i]);
+        }
+        assertArrayEquals("prices 50, 50, 40, 30 in input order", new int[]{4, 9, 7, 1}, sequences);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnsavedLaunches() {
+        launches.get(0).setId(null);
+        LaunchSnapshot.build(launches);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectLaunchesOfUnsavedRockets() {
+        rockets.get(0).setId(null);
+        LaunchSnapshot.build(launches);
+    }
+
+    @Test
+    public void minerShouldAnswerTheSameFromTheSnapshot() {
+        RocketMiner scanning = new RocketMiner(dao);
+        RocketMiner snapshotted = new RocketMiner(dao);
+        snapshotted.refreshSnapshot();
+
+        int thisYear = Calendar.getInstance().get(Calendar.YEAR);
+        for (int k = 0; k <= launches.size() + 1; k++) {
+            assertEquals(scanning.mostRecentLaunches(k), snapshotted.mostRecentLaunches(k));
+            assertEquals(scanning.mostExpensiveLaunches(k), snapshotted.mostExpensiveLaunches(k));
+            assertEquals(scanning.mostUnreliableLaunchServiceProviders(k), snapshotted.mostUnreliableLaunchServiceProviders(k));
+            assertEquals(scanning.mostNumberOfPlannedLaunch(k), snapshotted.mostNumberOfPlannedLaunch(k));
+            for (int year = thisYear - 3; year <= thisYear + 3; year++) {
+                for (int month = 1; month <= 12; month++) {
+                    assertEquals(scanning.busiestLaunchServiceProviderInMonth(k, year, month),
+                            snapshotted.busiestLaunchServiceProviderInMonth(k, year, month));
+                }
+            }
+        }
+    }
+}
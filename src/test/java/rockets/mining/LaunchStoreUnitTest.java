@@ -0,0 +1,252 @@
+package rockets.mining;
+
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import rockets.dataaccess.DAO;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LaunchStoreUnitTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DAO dao;
+    private List<LaunchServiceProvider> lsps;
+    private List<Rocket> rockets;
+    private List<Launch> launches;
+    private Path file;
+    private LaunchStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        lsps = Lists.newArrayList(
+                new LaunchServiceProvider("ULA", 1990, "USA"),
+                new LaunchServiceProvider("SpaceX", 2002, "USA"),
+                new LaunchServiceProvider("ULA", 2006, "USA")
+        );
+        for (int i = 0; i < lsps.size(); i++) {
+            lsps.get(i).setId(10L + i);
+        }
+        rockets = Lists.newArrayList();
+        int[] lspIndex = new int[]{0, 1, 1, 2};
+        for (int i = 0; i < lspIndex.length; i++) {
+            Rocket rocket = new Rocket("R" + i, "Family", "V", "USA", lsps.get(lspIndex[i]));
+            rocket.setId(20L + i);
+            rockets.add(rocket);
+        }
+
+        // years relative to now, so that some launches are always planned
+        int thisYear = Calendar.getInstance().get(Calendar.YEAR);
+        int[] years = new int[]{-3, -3, -3, -2, -2, -3, 1, 1, 2, -3, 3, -2};
+        int[] months = new int[]{4, 4, 1, 7, 4, 4, 0, 5, 5, 4, 2, 7};
+        int[] rocketIndex = new int[]{0, 1, 1, 2, 3, 3, 1, 1, 2, 0, 1, 3};
+        int[] prices = new int[]{10, 30, 30, 20, 50, 10, 30, 40, 30, 50, 20, 10};
+        launches = Lists.newArrayList();
+        for (int i = 0; i < years.length; i++) {
+            Calendar calendar = new GregorianCalendar(thisYear + years[i], months[i], 1 + i % 3);
+            Rocket rocket = rockets.get(rocketIndex[i]);
+            Launch launch = new Launch(calendar.getTime(), rocket, rocket.getManufacturer(), "Site " + i % 2, "LEO");
+            launch.setId(100L + i);
+            launch.setPrice(prices[i]);
+            launch.setLaunchOutcome(i % 4 == 1 || i == 4 ? Launch.LaunchOutcome.FAILED : Launch.LaunchOutcome.SUCCESSFUL);
+            launches.add(launch);
+        }
+
+        dao = mock(DAO.class);
+        when(dao.loadAll(Launch.class)).thenReturn(launches);
+        when(dao.load(eq(Launch.class), anyLong())).thenAnswer(
+                invocation -> launches.get((int) (invocation.<Long>getArgument(1) - 100)));
+        when(dao.load(eq(Rocket.class), anyLong())).thenAnswer(
+                invocation -> rockets.get((int) (invocation.<Long>getArgument(1) - 20)));
+        when(dao.load(eq(LaunchServiceProvider.class), anyLong())).thenAnswer(
+                invocation -> lsps.get((int) (invocation.<Long>getArgument(1) - 10)));
+
+        file = folder.getRoot().toPath().resolve("launches.store");
+        store = LaunchStore.open(file);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        store.close();
+    }
+
+    @Test
+    public void shouldKeepAppendedLaunchesAcrossReopening() throws IOException {
+        store.appendAll(launches);
+        store.close();
+        store = LaunchStore.open(file);
+
+        assertEquals(launches.size(), store.size());
+        for (int row = 0; row < store.size(); row++) {
+            Launch launch = launches.get(row);
+            assertEquals(launch.getId().longValue(), store.launchId(row));
+            assertEquals(launch.getLaunchDate().getTime(), store.launchDate(row));
+            assertEquals(launch.getPrice(), store.price(row));
+            assertEquals(launch.getLaunchVehicle().getId().longValue(), store.rocketId(store.rocket(row)));
+            assertEquals(launch.getLaunchVehicle().getManufacturer().getId().longValue(), store.providerId(store.provider(row)));
+            assertEquals(launch.getLaunchSite(), store.stringOf(store.site(row)));
+            assertEquals(launch.getOrbit(), store.stringOf(store.orbit(row)));
+            assertEquals(launch.getLaunchOutcome() == Launch.LaunchOutcome.FAILED ? LaunchSnapshot.FAILED : LaunchSnapshot.SUCCESSFUL,
+                    store.outcome(row));
+        }
+        assertEquals("dictionary-encoded", 4, store.rocketCount());
+        assertEquals(3, store.providerCount());
+        assertEquals("two providers named ULA", store.providerNameCode(0), store.providerNameCode(2));
+
+        store.append(launches.get(0));
+        assertEquals("appends continue after reopening", launches.size() + 1, store.size());
+        assertEquals(4, store.rocketCount());
+    }
+
+    @Test
+    public void shouldGrowPastItsInitialCapacity() throws IOException {
+        Launch launch = launches.get(0);
+        for (int i = 0; i < 3000; i++) {
+            launch.setPrice(i);
+            store.append(launch);
+        }
+
+        assertEquals(3000, store.size());
+        assertEquals(2999, store.price(2999));
+        assertEquals(0, store.price(0));
+        store.close();
+        store = LaunchStore.open(file);
+        assertEquals(3000, store.size());
+        assertEquals(1234, store.price(1234));
+    }
+
+    @Test
+    public void shouldReadTheSameRowsWhateverTheSegmentSize() throws IOException {
+        store.close();
+        store = LaunchStore.open(file, 4);
+        Launch launch = launches.get(0);
+        for (int i = 0; i < 3000; i++) {
+            launch.setPrice(i);
+            store.append(launch);
+        }
+        store.close();
+
+        store = LaunchStore.open(file);
+        assertEquals(3000, store.size());
+        for (int row = 0; row < store.size(); row++) {
+            assertEquals(row, store.price(row));
+        }
+        store.close();
+        store = LaunchStore.open(file, 5);
+        assertEquals(1234, store.price(1234));
+        assertEquals(2999, store.price(2999));
+    }
+
+    @Test
+    public void shouldAddressRowsPastTwoGigabytes() throws IOException {
+        // a sparse file of 60 million empty rows, which takes no space on disk
+        int rows = 60_000_000;
+        store.close();
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.setLength(16 + 40L * rows);
+            raw.seek(8);
+            raw.writeLong(rows);
+        }
+
+        store = LaunchStore.open(file);
+        store.append(launches.get(1));
+        store.close();
+        store = LaunchStore.open(file);
+        assertEquals(rows + 1, store.size());
+        assertEquals(launches.get(1).getId().longValue(), store.launchId(rows));
+        assertEquals(launches.get(1).getPrice(), store.price(rows));
+        assertEquals(rockets.get(1).getId().longValue(), store.rocketId(store.rocket(rows)));
+    }
+
+    @Test
+    public void concurrentReadersShouldResolveTheCodesOfEveryRowTheySee() throws Exception {
+        int count = 5000;
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> checked = reader.submit(() -> {
+                int rows = 0;
+                while (!done.get() || rows < store.size()) {
+                    for (int size = store.size(); rows < size; rows++) {
+                        assertEquals(20L + rows, store.rocketId(store.rocket(rows)));
+                        assertEquals("Site " + rows, store.stringOf(store.site(rows)));
+                    }
+                }
+                return rows;
+            });
+            LaunchServiceProvider lsp = lsps.get(0);
+            for (int i = 0; i < count; i++) {
+                // a new rocket and a new site on every row, so every append grows the dictionaries
+                Rocket rocket = new Rocket("R" + i, "Family", "V", "USA", lsp);
+                rocket.setId(20L + i);
+                Launch launch = new Launch(new GregorianCalendar(2017, 0, 1).getTime(), rocket, lsp, "Site " + i, "LEO");
+                launch.setId(100L + i);
+                store.append(launch);
+            }
+            done.set(true);
+            assertEquals(count, (int) checked.get(30, TimeUnit.SECONDS));
+        } finally {
+            done.set(true);
+            reader.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnsavedLaunches() {
+        launches.get(0).setId(null);
+        store.append(launches.get(0));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectOtherFiles() throws IOException {
+        Path other = folder.getRoot().toPath().resolve("other");
+        Files.write(other, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+        LaunchStore.open(other);
+    }
+
+    @Test
+    public void minerShouldAnswerTheSameFromTheStore() {
+        store.appendAll(launches);
+        RocketMiner scanning = new RocketMiner(dao);
+        RocketMiner stored = new RocketMiner(dao);
+        stored.useLaunchStore(store);
+
+        int thisYear = Calendar.getInstance().get(Calendar.YEAR);
+        for (int k = 0; k <= launches.size() + 1; k++) {
+            assertEquals(scanning.mostRecentLaunches(k), stored.mostRecentLaunches(k));
+            assertEquals(scanning.mostExpensiveLaunches(k), stored.mostExpensiveLaunches(k));
+            assertEquals(scanning.mostUnreliableLaunchServiceProviders(k), stored.mostUnreliableLaunchServiceProviders(k));
+            assertEquals(scanning.mostNumberOfPlannedLaunch(k), stored.mostNumberOfPlannedLaunch(k));
+            for (int year = thisYear - 3; year <= thisYear + 3; year++) {
+                for (int month = 1; month <= 12; month++) {
+                    assertEquals(scanning.busiestLaunchServiceProviderInMonth(k, year, month),
+                            stored.busiestLaunchServiceProviderInMonth(k, year, month));
+                }
+            }
+        }
+    }
+}
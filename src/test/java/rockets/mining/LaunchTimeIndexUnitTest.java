@@ -0,0 +1,90 @@
+package rockets.mining;
+
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import rockets.dataaccess.DAO;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LaunchTimeIndexUnitTest {
+    private List<Launch> launches;
+    private LaunchTimeIndex index;
+
+    @Before
+    public void setUp() {
+        LaunchServiceProvider ula = new LaunchServiceProvider("ULA", 1990, "USA");
+        Rocket rocket = new Rocket("Atlas", "Atlas", "V", "USA", ula);
+
+        // deliberately unsorted, with a gap of several empty months
+        int[][] dates = new int[][]{{2017, 3, 15}, {2016, 11, 31}, {2017, 0, 1}, {2017, 3, 1}, {2018, 1, 28}, {2017, 3, 15}};
+        launches = Lists.newArrayList();
+        for (int[] date : dates) {
+            Calendar calendar = new GregorianCalendar(date[0], date[1], date[2]);
+            launches.add(new Launch(calendar.getTime(), rocket, ula, "Site " + launches.size(), "LEO"));
+        }
+        index = LaunchTimeIndex.build(launches);
+    }
+
+    @Test
+    public void shouldFindLaunchesOfAMonth() {
+        assertEquals(Lists.newArrayList(launches.get(3), launches.get(0), launches.get(5)), index.inMonth(2017, 4));
+        assertEquals(Lists.newArrayList(launches.get(2)), index.inMonth(2017, 1));
+        assertEquals(Lists.newArrayList(launches.get(1)), index.inMonth(2016, 12));
+        assertEquals(Lists.newArrayList(launches.get(4)), index.inMonth(2018, 2));
+    }
+
+    @Test
+    public void shouldFindNothingInEmptyOrOutOfRangeMonths() {
+        assertTrue(index.inMonth(2017, 7).isEmpty());
+        assertTrue(index.inMonth(2010, 1).isEmpty());
+        assertTrue(index.inMonth(2030, 1).isEmpty());
+    }
+
+    @Test
+    public void shouldFindLaunchesOfAYear() {
+        assertEquals(4, index.inYear(2017).size());
+        assertEquals(1, index.inYear(2016).size());
+    }
+
+    @Test
+    public void shouldFindLaunchesInAHalfOpenRange() {
+        List<Launch> range = index.between(
+                new GregorianCalendar(2017, 0, 1).getTime(),
+                new GregorianCalendar(2017, 3, 15).getTime());
+        assertEquals(Lists.newArrayList(launches.get(2), launches.get(3)), range);
+        assertEquals(Lists.newArrayList(launches.get(4)), index.since(new GregorianCalendar(2017, 3, 16).getTime()));
+    }
+
+    @Test
+    public void shouldIndexNoLaunches() {
+        LaunchTimeIndex empty = LaunchTimeIndex.build(Lists.newArrayList());
+        assertEquals(0, empty.size());
+        assertTrue(empty.inMonth(2017, 1).isEmpty());
+        assertTrue(empty.inYear(2017).isEmpty());
+    }
+
+    @Test
+    public void minerShouldAnswerTheSameWithAnIndex() {
+        DAO dao = mock(DAO.class);
+        when(dao.loadAll(Launch.class)).thenReturn(launches);
+        RocketMiner miner = new RocketMiner(dao);
+
+        List<Launch> scanned = miner.launchesBetween(new GregorianCalendar(2016, 0, 1).getTime(), new GregorianCalendar(2018, 0, 1).getTime());
+        miner.indexLaunches();
+        List<Launch> indexed = miner.launchesBetween(new GregorianCalendar(2016, 0, 1).getTime(), new GregorianCalendar(2018, 0, 1).getTime());
+
+        assertEquals(5, scanned.size());
+        assertEquals(scanned, indexed);
+    }
+}
@@ -0,0 +1,28 @@
+package rockets.mining;
+
+import org.junit.Test;
+import rockets.dataaccess.DataGenerator;
+import rockets.dataaccess.memory.InMemoryDAO;
+import rockets.metrics.MetricsRegistry;
+
+import java.time.LocalDate;
+
+import static org.junit.Assert.assertEquals;
+
+public class MeteredRocketMinerUnitTest {
+    @Test
+    public void shouldTimeQueriesAndAnswerAsTheMinerDoes() {
+        InMemoryDAO dao = new InMemoryDAO();
+        new DataGenerator(3, 2000, LocalDate.of(2020, 1, 1)).writeTo(dao);
+        MetricsRegistry metrics = new MetricsRegistry();
+        RocketMiner metered = new MeteredRocketMiner(dao, metrics);
+        RocketMiner plain = new RocketMiner(dao);
+
+        assertEquals(plain.mostLaunchedRockets(5), metered.mostLaunchedRockets(5));
+        assertEquals(plain.mostExpensiveLaunches(5), metered.mostExpensiveLaunches(5));
+        metered.mostExpensiveLaunches(3);
+
+        assertEquals(1, metrics.histogram("miner_query_seconds", "", "query", "mostLaunchedRockets").getCount());
+        assertEquals(2, metrics.histogram("miner_query_seconds", "", "query", "mostExpensiveLaunches").getCount());
+    }
+}
@@ -0,0 +1,167 @@
+package rockets.mining;
+
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import rockets.dataaccess.DAO;
+import rockets.model.Entity;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MiningViewDAOUnitTest {
+    private DAO dao;
+    private MiningViewDAO viewDao;
+    private List<LaunchServiceProvider> lsps;
+    private List<Rocket> rockets;
+    private List<Launch> launches;
+    private long nextId = 1;
+
+    @Before
+    public void setUp() {
+        dao = mock(DAO.class);
+        when(dao.createOrUpdate(any(Entity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        lsps = Lists.newArrayList(
+                withId(new LaunchServiceProvider("ULA", 1990, "USA")),
+                withId(new LaunchServiceProvider("SpaceX", 2002, "USA")),
+                withId(new LaunchServiceProvider("ESA", 1975, "Europe"))
+        );
+
+        int[] lspIndex = new int[]{0, 0, 1, 2};
+        rockets = Lists.newArrayList();
+        for (int i = 0; i < lspIndex.length; i++) {
+            rockets.add(withId(new Rocket("R" + i, "Family", "V", "USA", lsps.get(lspIndex[i]))));
+        }
+
+        int[] rocketIndex = new int[]{0, 0, 0, 1, 1, 2, 2, 3, 3};
+        int[] months = new int[]{0, 3, 3, 3, 5, 3, 11, 5, 3};
+        int[] prices = new int[]{10, 50, 20, 50, 30, 40, 10, 60, 20};
+        boolean[] failed = new boolean[]{true, false, false, true, false, true, false, false, true};
+        launches = Lists.newArrayList();
+        for (int i = 0; i < rocketIndex.length; i++) {
+            Rocket rocket = rockets.get(rocketIndex[i]);
+            Launch launch = createLaunch(rocket, months[i], i + 1, prices[i]);
+            launch.setLaunchOutcome(failed[i] ? Launch.LaunchOutcome.FAILED : Launch.LaunchOutcome.SUCCESSFUL);
+            launches.add(launch);
+        }
+
+        when(dao.loadAll(Rocket.class)).thenReturn(rockets);
+        when(dao.loadAll(Launch.class)).thenReturn(launches);
+        viewDao = new MiningViewDAO(dao);
+    }
+
+    @Test
+    public void viewsAgreeWithFullScan() {
+        RocketMiner scanning = new RocketMiner(dao);
+        RocketMiner viewed = new RocketMiner(viewDao);
+
+        for (int k = 0; k <= 10; k++) {
+            assertEquals(scanning.mostLaunchedRockets(k), viewed.mostLaunchedRockets(k));
+            assertEquals(scanning.mostRecentLaunches(k), viewed.mostRecentLaunches(k));
+            assertEquals(scanning.mostExpensiveLaunches(k), viewed.mostExpensiveLaunches(k));
+            assertEquals(scanning.mostUnreliableLaunchServiceProviders(k), viewed.mostUnreliableLaunchServiceProviders(k));
+            for (int month = 1; month <= 12; month++) {
+                assertEquals(scanning.busiestLaunchServiceProviderInMonth(k, 2017, month),
+                        viewed.busiestLaunchServiceProviderInMonth(k, 2017, month));
+            }
+        }
+    }
+
+    @Test
+    public void savedLaunchesUpdateTheViews() {
+        RocketMiner miner = new RocketMiner(viewDao);
+        Launch launch = createLaunch(rockets.get(3), 5, 28, 100);
+        launch.setLaunchOutcome(Launch.LaunchOutcome.FAILED);
+
+        viewDao.createOrUpdate(launch);
+        verify(dao).createOrUpdate(launch);
+        assertEquals("new most expensive", launch, miner.mostExpensiveLaunches(1).get(0));
+        assertEquals("ESA now busiest in June", lsps.get(2), miner.busiestLaunchServiceProviderInMonth(1, 2017, 6).get(0));
+        assertEquals("ESA now 2/3 failed", "ESA", miner.mostUnreliableLaunchServiceProviders(1).get(0));
+
+        launch.setPrice(1);
+        viewDao.createOrUpdate(launch);
+        assertFalse("update moved it down", miner.mostExpensiveLaunches(1).contains(launch));
+        assertEquals("counted once", 10, miner.mostExpensiveLaunches(20).size());
+    }
+
+    @Test
+    public void propertyUpdatesUpdateTheViews() {
+        RocketMiner miner = new RocketMiner(viewDao);
+        List<Rocket> mostLaunched = miner.mostLaunchedRockets(20);
+        Launch cheapest = launches.get(0);
+
+        cheapest.setPrice(1_000);
+        Rocket rocket = rockets.get(0);
+        rocket.setFirstYearFlight(2017);
+        viewDao.updateProperties(Lists.newArrayList(cheapest, rocket));
+
+        verify(dao).updateProperties(Lists.newArrayList(cheapest, rocket));
+        assertEquals("new most expensive", cheapest, miner.mostExpensiveLaunches(1).get(0));
+        assertEquals("counted once", 9, miner.mostExpensiveLaunches(20).size());
+        assertEquals(mostLaunched, miner.mostLaunchedRockets(20));
+    }
+
+    @Test
+    public void deletedEntitiesLeaveTheViews() {
+        RocketMiner miner = new RocketMiner(viewDao);
+        Launch mostExpensive = miner.mostExpensiveLaunches(1).get(0);
+
+        viewDao.delete(mostExpensive);
+        verify(dao).delete(mostExpensive);
+        assertFalse(miner.mostExpensiveLaunches(20).contains(mostExpensive));
+
+        viewDao.delete(rockets.get(0));
+        assertFalse(miner.mostLaunchedRockets(20).contains(rockets.get(0)));
+        assertTrue("the only January launch was made by R0",
+                miner.busiestLaunchServiceProviderInMonth(5, 2017, 1).isEmpty());
+
+        viewDao.delete(lsps.get(1));
+        assertTrue("the only December launch was made by a SpaceX rocket",
+                miner.busiestLaunchServiceProviderInMonth(5, 2017, 12).isEmpty());
+        assertEquals(Lists.newArrayList(lsps.get(0), lsps.get(2)), miner.busiestLaunchServiceProviderInMonth(5, 2017, 4));
+    }
+
+    @Test
+    public void deletedRocketsLeaveNoEntryBehind() {
+        RocketMiner miner = new RocketMiner(viewDao);
+
+        viewDao.delete(rockets.get(0));
+        assertEquals(Lists.newArrayList(rockets.get(1), rockets.get(2), rockets.get(3)), miner.mostLaunchedRockets(20));
+
+        // brought back with one new launch, it ranks above a rocket without any
+        Rocket unflown = withId(new Rocket("R4", "Family", "V", "USA", lsps.get(0)));
+        viewDao.createOrUpdate(unflown);
+        rockets.get(0).getLaunches().clear();
+        viewDao.createOrUpdate(rockets.get(0));
+        viewDao.createOrUpdate(createLaunch(rockets.get(0), 7, 1, 10));
+        assertEquals(Lists.newArrayList(rockets.get(1), rockets.get(2), rockets.get(3), rockets.get(0), unflown),
+                miner.mostLaunchedRockets(20));
+    }
+
+    private Launch createLaunch(Rocket rocket, int month, int day, int price) {
+        Calendar calendar = new GregorianCalendar(2017, month, day);
+        Launch launch = withId(new Launch(calendar.getTime(), rocket, rocket.getManufacturer(), "Perlin", "LEO"));
+        launch.setPrice(price);
+        rocket.getLaunches().add(launch);
+        return launch;
+    }
+
+    private <T extends Entity> T withId(T entity) {
+        entity.setId(nextId++);
+        return entity;
+    }
+}
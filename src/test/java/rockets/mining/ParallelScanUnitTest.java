@@ -0,0 +1,105 @@
+package rockets.mining;
+
+import com.google.common.collect.Lists;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import rockets.dataaccess.DAO;
+import rockets.model.Launch;
+import rockets.model.LaunchServiceProvider;
+import rockets.model.Rocket;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ParallelScanUnitTest {
+    private static ForkJoinPool pool;
+    private static DAO dao;
+
+    @BeforeClass
+    public static void setUp() {
+        pool = new ForkJoinPool(4);
+
+        Random random = new Random(7);
+        List<LaunchServiceProvider> lsps = Lists.newArrayList();
+        for (int i = 0; i < 12; i++) {
+            lsps.add(new LaunchServiceProvider("LSP " + i % 9, 1960 + i, "USA"));
+        }
+        List<Rocket> rockets = Lists.newArrayList();
+        for (int i = 0; i < 40; i++) {
+            rockets.add(new Rocket("R" + i, "Family", "V", "USA", lsps.get(random.nextInt(lsps.size()))));
+        }
+
+        // coarse prices and dates, so that there are plenty of ties
+        List<Launch> launches = Lists.newArrayList();
+        for (int i = 0; i < 20000; i++) {
+            Rocket rocket = rockets.get(random.nextInt(rockets.size()));
+            Calendar calendar = new GregorianCalendar(2000 + random.nextInt(20), random.nextInt(12), 1 + random.nextInt(3));
+            Launch launch = new Launch(calendar.getTime(), rocket, rocket.getManufacturer(), "Site", "LEO");
+            launch.setPrice(1000 * random.nextInt(20));
+            launch.setLaunchOutcome(random.nextInt(10) < 2 ? Launch.LaunchOutcome.FAILED : Launch.LaunchOutcome.SUCCESSFUL);
+            rocket.getLaunches().add(launch);
+            launches.add(launch);
+        }
+
+        dao = mock(DAO.class);
+        when(dao.loadAll(Launch.class)).thenReturn(launches);
+        when(dao.loadAll(Rocket.class)).thenReturn(rockets);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void parallelMinerShouldMatchSequentialMiner() {
+        RocketMiner sequential = new RocketMiner(dao);
+        RocketMiner parallel = new RocketMiner(dao, pool);
+
+        for (int k : new int[]{0, 1, 5, 50, 500}) {
+            assertEquals(sequential.mostLaunchedRockets(k), parallel.mostLaunchedRockets(k));
+            assertEquals(sequential.mostRecentLaunches(k), parallel.mostRecentLaunches(k));
+            assertEquals(sequential.mostExpensiveLaunches(k), parallel.mostExpensiveLaunches(k));
+            assertEquals(sequential.mostUnreliableLaunchServiceProviders(k), parallel.mostUnreliableLaunchServiceProviders(k));
+            assertEquals(sequential.busiestLaunchServiceProviderInMonth(k, 2010, 6), parallel.busiestLaunchServiceProviderInMonth(k, 2010, 6));
+        }
+        assertEquals(sequential.launchesBetween(new GregorianCalendar(2005, 0, 1).getTime(), new GregorianCalendar(2007, 0, 1).getTime()),
+                parallel.launchesBetween(new GregorianCalendar(2005, 0, 1).getTime(), new GregorianCalendar(2007, 0, 1).getTime()));
+    }
+
+    @Test
+    public void scanShouldMergePartialsInOrder() {
+        List<Integer> items = Lists.newArrayList();
+        for (int i = 0; i < 10000; i++) {
+            items.add(i);
+        }
+
+        List<Integer> copy = ParallelScan.scan(pool, items, new ParallelScan.Aggregate<Integer, List<Integer>>() {
+            @Override
+            public List<Integer> create() {
+                return Lists.newArrayList();
+            }
+
+            @Override
+            public void add(List<Integer> partial, Integer item, int index) {
+                assertEquals(item.intValue(), index);
+                partial.add(item);
+            }
+
+            @Override
+            public List<Integer> merge(List<Integer> left, List<Integer> right) {
+                left.addAll(right);
+                return left;
+            }
+        });
+        assertEquals(items, copy);
+    }
+}
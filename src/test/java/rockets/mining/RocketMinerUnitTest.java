@@ -7,6 +7,7 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rockets.dataaccess.DAO;
+import rockets.dataaccess.MiningDAO;
 import rockets.dataaccess.neo4j.Neo4jDAO;
 import rockets.model.Launch;
 import rockets.model.LaunchServiceProvider;
@@ -22,7 +23,9 @@ import static org.hamcrest.core.CombinableMatcher.either;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class RocketMinerUnitTest {
@@ -238,6 +241,23 @@ public class RocketMinerUnitTest {
     }
 
 
+    @Test
+    public void testRankingQueriesArePushedDown() {
+        MiningDAO queries = (MiningDAO) dao;
+        when(queries.findMostRecentLaunches(2)).thenReturn(launches.subList(0, 2));
+        when(queries.findMostUnreliableLaunchServiceProviders(1)).thenReturn(Lists.newArrayList("ESA"));
+
+        RocketMiner pushdownMiner = new RocketMiner(dao, true);
+        assertEquals("answered by the DAO", launches.subList(0, 2), pushdownMiner.mostRecentLaunches(2));
+        assertEquals("answered by the DAO", Lists.newArrayList("ESA"), pushdownMiner.mostUnreliableLaunchServiceProviders(1));
+        verify(dao, never()).loadAll(Launch.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPushdownNeedsMiningDAO() {
+        new RocketMiner(mock(DAO.class), true);
+    }
+
     @Test
     public void testMostNumberofPlannedLaunchRockets(){
         Calendar calendar = new GregorianCalendar(2018, 8, 01);
@@ -0,0 +1,68 @@
+package rockets.mining;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TopKUnitTest {
+
+    @Test
+    public void shouldReturnBestItemsInRankingOrder() {
+        List<Integer> top = TopK.select(Lists.newArrayList(5, 1, 9, 3, 7), 3, Comparator.reverseOrder());
+        assertEquals(Lists.newArrayList(9, 7, 5), top);
+    }
+
+    @Test
+    public void shouldReturnEverythingWhenKExceedsInput() {
+        List<Integer> top = TopK.select(Lists.newArrayList(2, 1), 10, Comparator.naturalOrder());
+        assertEquals(Lists.newArrayList(1, 2), top);
+    }
+
+    @Test
+    public void shouldReturnNothingForZeroK() {
+        assertTrue(TopK.select(Lists.newArrayList(2, 1), 0, Comparator.<Integer>naturalOrder()).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNegativeK() {
+        new TopK<Integer>(-1, Comparator.naturalOrder());
+    }
+
+    @Test
+    public void shouldBreakTiesByArrivalOrder() {
+        List<String> words = Lists.newArrayList("bb", "a", "cc", "dd", "e");
+        List<String> top = TopK.select(words, 3, Comparator.comparingInt(String::length).reversed());
+        assertEquals(Lists.newArrayList("bb", "cc", "dd"), top);
+    }
+
+    @Test
+    public void shouldBreakTiesByExplicitOrder() {
+        TopK<String> topK = new TopK<>(2, Comparator.comparingInt(String::length));
+        topK.offer("x", 3);
+        topK.offer("y", 1);
+        topK.offer("z", 2);
+        assertEquals(Lists.newArrayList("y", "z"), topK.toList());
+        assertEquals(2, topK.size());
+    }
+
+    @Test
+    public void shouldMatchStableSort() {
+        Random random = new Random(42);
+        List<Integer> items = Lists.newArrayList();
+        for (int i = 0; i < 1000; i++) {
+            items.add(random.nextInt(50));
+        }
+        Comparator<Integer> byTens = Comparator.comparingInt(i -> i / 10);
+
+        List<Integer> sorted = Lists.newArrayList(items);
+        Collections.sort(sorted, byTens);
+        assertEquals(sorted.subList(0, 25), TopK.select(items, 25, byTens));
+    }
+}
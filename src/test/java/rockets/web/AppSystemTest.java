@@ -17,13 +17,19 @@ import spark.resource.ClassPathResource;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Properties;
+import java.util.Scanner;
 
 import static org.apache.logging.log4j.core.util.Closer.closeSilently;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class AppSystemTest {
     private static DAO dao;
@@ -159,6 +165,65 @@ public class AppSystemTest {
         JWebUnit.assertTextNotPresent("Welcome back: Jane Who!");
     }
 
+    @Test
+    public void rocketsShouldBeListedOnePageAtATime() {
+        for (int i = 0; i < 3; i++) {
+            dao.createOrUpdate(new Rocket("rocket_" + i, "Ariane", "ECT", "USA", lsps.get(2)));
+        }
+
+        JWebUnit.beginAt("/rockets?limit=2");
+        JWebUnit.assertTextPresent("Page 1 of 2");
+        JWebUnit.assertLinkPresentWithExactText("rocket_0");
+        JWebUnit.assertLinkPresentWithExactText("rocket_1");
+        JWebUnit.assertLinkNotPresentWithExactText("rocket_2");
+
+        JWebUnit.clickLinkWithExactText("Next");
+        JWebUnit.assertTextPresent("Page 2 of 2");
+        JWebUnit.assertLinkPresentWithExactText("rocket_2");
+        JWebUnit.assertLinkNotPresentWithExactText("rocket_0");
+    }
+
+    @Test
+    public void pagesPastTheEndShouldShowTheLastPage() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            dao.createOrUpdate(new Rocket("rocket_" + i, "Ariane", "ECT", "USA", lsps.get(2)));
+        }
+
+        JWebUnit.beginAt("/rockets?limit=2&page=" + Integer.MAX_VALUE);
+        JWebUnit.assertTextPresent("Page 2 of 2");
+        JWebUnit.assertLinkPresentWithExactText("rocket_2");
+        // an offset that overflowed would have been rejected by the DAO, even if the page then showed
+        String scraped = scrape();
+        assertTrue(scraped, scraped.contains("dao_errors_total{operation=\"loadProperties\"} 0"));
+    }
+
+    @Test
+    public void requestMetricsShouldBeLabelledByRouteNotPath() throws IOException {
+        assertEquals(500, status("/user/abc"));
+        assertEquals(404, status("/no/such/page/" + System.nanoTime()));
+
+        String scraped = scrape();
+        assertTrue(scraped, scraped.contains("route=\"/user/:id\",status=\"500\""));
+        assertTrue(scraped, scraped.contains("route=\"other\",status=\"404\""));
+        assertFalse(scraped, scraped.contains("/user/abc"));
+        assertFalse(scraped, scraped.contains("/no/such/page"));
+    }
+
+    private static String scrape() throws IOException {
+        return new Scanner(new URL(JWebUnit.getTestContext().getBaseUrl(), "/metrics").openStream(), "UTF-8")
+                .useDelimiter("\\A").next();
+    }
+
+    private static int status(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(JWebUnit.getTestContext().getBaseUrl(), path)
+                .openConnection();
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
     @Test
     public void basePageShouldContainWelcome() {
         String path = "/";
@@ -0,0 +1,348 @@
+package rockets.web;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import org.apache.commons.io.FileUtils;
+import rockets.dataaccess.CachingDAO;
+import rockets.dataaccess.DAO;
+import rockets.dataaccess.DataGenerator;
+import rockets.dataaccess.memory.InMemoryDAO;
+import rockets.dataaccess.neo4j.Neo4jDAO;
+import rockets.metrics.Histogram;
+import rockets.model.User;
+import spark.resource.ClassPathResource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.apache.logging.log4j.core.util.Closer.closeSilently;
+
+/**
+ * A load test of the web app: starts {@link App} against a DAO filled by
+ * {@link DataGenerator}, then drives virtual users that log in and browse
+ * <code>/users</code>, <code>/rockets</code> and <code>/user/:id</code>,
+ * and reports the throughput, latency percentiles and errors of each page.
+ *
+ * Not a unit test (surefire does not pick it up); run it from the test
+ * classpath with <code>--option=value</code> arguments:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=rockets.web.WebLoadRunner \
+ *     -Dexec.args="--dao=cached --launches=100000 --vus=200 --rampUp=30 --duration=120"
+ * </pre>
+ * <ul>
+ * <li>dao: memory, neo4j or cached (a CachingDAO over Neo4j, as the app runs by default)</li>
+ * <li>launches, accounts, seed: the generated data</li>
+ * <li>vus: the number of virtual users, started evenly over rampUp seconds</li>
+ * <li>duration: seconds from the start of the run to its end</li>
+ * <li>think: milliseconds each virtual user waits between requests</li>
+ * </ul>
+ *
+ * Each virtual user keeps its own session cookie and makes one request at a
+ * time, so throughput is bound by latency; add users, not think time, to
+ * push harder. Latencies are kept in the app's own {@link Histogram}, so
+ * percentiles are exact to within about 1.6%.
+ */
+public class WebLoadRunner {
+    private static final String PASSWORD = "load-test";
+    private static final long REPORT_INTERVAL_MILLIS = 5_000;
+
+    private final Map<String, String> options;
+    private final String baseUrl;
+    private final List<Long> userIds = Lists.newArrayList();
+    private final Map<String, Stats> stats = new LinkedHashMap<>();
+    private final Stats all = new Stats();
+    private final AtomicInteger active = new AtomicInteger();
+
+    private WebLoadRunner(Map<String, String> options, String baseUrl) {
+        this.options = options;
+        this.baseUrl = baseUrl;
+        for (String page : new String[]{"login", "users", "rockets", "user"}) {
+            stats.put(page, new Stats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        options.put("dao", "memory");
+        options.put("launches", "10000");
+        options.put("accounts", "1000");
+        options.put("seed", "1");
+        options.put("vus", "50");
+        options.put("rampUp", "10");
+        options.put("duration", "60");
+        options.put("think", "0");
+        for (String arg : null == args ? new String[0] : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            if (2 != option.length || !options.containsKey(option[0])) {
+                System.err.println("Unknown option " + arg + "; options are --" + Joiner.on("=..., --").join(options.keySet()) + "=...");
+                System.exit(1);
+            }
+            options.put(option[0], option[1]);
+        }
+
+        // one kept-alive connection per virtual user
+        System.setProperty("http.maxConnections", options.get("vus"));
+
+        File directory = null;
+        DAO dao;
+        String store = options.get("dao");
+        if ("memory".equals(store)) {
+            dao = new InMemoryDAO();
+        } else if ("neo4j".equals(store) || "cached".equals(store)) {
+            directory = Files.createTempDirectory("rockets-load").toFile();
+            Neo4jDAO neo4jDAO = new Neo4jDAO(directory.getPath());
+            dao = "cached".equals(store) ? new CachingDAO(neo4jDAO) : neo4jDAO;
+        } else {
+            throw new IllegalArgumentException("Unknown dao " + store);
+        }
+
+        WebLoadRunner runner = new WebLoadRunner(options, "http://localhost:" + port());
+        try {
+            runner.fill(dao);
+            App.setDao(dao);
+            App.main(null);
+            runner.awaitStarted();
+            runner.run();
+        } finally {
+            App.stop();
+            dao.close();
+            if (null != directory) {
+                FileUtils.deleteDirectory(directory);
+            }
+        }
+    }
+
+    private int option(String name) {
+        return Integer.parseInt(options.get(name));
+    }
+
+    private static int port() throws IOException {
+        ClassPathResource resource = new ClassPathResource("app.properties");
+        Properties properties = new Properties();
+        InputStream stream = null;
+        try {
+            stream = resource.getInputStream();
+            properties.load(stream);
+            return Integer.parseInt(properties.getProperty("spark.port"));
+        } finally {
+            closeSilently(stream);
+        }
+    }
+
+    private void fill(DAO dao) {
+        long start = System.nanoTime();
+        new DataGenerator(Long.parseLong(options.get("seed")), option("launches")).writeTo(dao);
+        List<User> users = Lists.newArrayList();
+        for (int i = 0; i < option("accounts"); i++) {
+            User user = new User("user" + i + "@example.com");
+            user.setFirstName("First" + i);
+            user.setLastName("Last" + i);
+            user.setPassword(PASSWORD);
+            users.add(user);
+        }
+        for (List<User> batch : Lists.partition(users, 1000)) {
+            dao.createOrUpdateAll(batch);
+        }
+        users.forEach(user -> userIds.add(user.getId()));
+        System.out.printf("Generated %s launches and %d accounts in %d s%n",
+                options.get("launches"), users.size(), TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+    }
+
+    private void awaitStarted() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + "/").openConnection();
+                if (200 == connection.getResponseCode()) {
+                    drain(connection);
+                    return;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("The app did not start on " + baseUrl);
+    }
+
+    private void run() throws InterruptedException {
+        int vus = option("vus");
+        long rampUpMillis = TimeUnit.SECONDS.toMillis(option("rampUp"));
+        long start = System.currentTimeMillis();
+        long end = start + TimeUnit.SECONDS.toMillis(option("duration"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(vus);
+        for (int i = 0; i < vus; i++) {
+            long startAt = start + rampUpMillis * i / vus;
+            executor.execute(() -> new VirtualUser().run(startAt, end));
+        }
+        executor.shutdown();
+
+        long last = 0;
+        while (!executor.awaitTermination(REPORT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+            long total = all.count();
+            long errors = all.errors();
+            System.out.printf("%4d s: %d users, %.0f req/s, %d errors%n",
+                    (System.currentTimeMillis() - start) / 1000, active.get(),
+                    (total - last) * 1000.0 / REPORT_INTERVAL_MILLIS, errors);
+            last = total;
+        }
+        report(System.currentTimeMillis() - start);
+    }
+
+    private void report(long elapsedMillis) {
+        System.out.printf("%n%d virtual users over %.1f s, latencies in ms%n", option("vus"), elapsedMillis / 1000.0);
+        System.out.printf("%-10s %10s %8s %9s %8s %8s %8s %8s %8s%n",
+                "page", "requests", "errors", "req/s", "p50", "p95", "p99", "p99.9", "max");
+        for (Map.Entry<String, Stats> page : stats.entrySet()) {
+            print(page.getKey(), page.getValue(), elapsedMillis);
+        }
+        print("all", all, elapsedMillis);
+    }
+
+    private static void print(String page, Stats stats, long elapsedMillis) {
+        System.out.printf("%-10s %10d %8d %9.1f %8.2f %8.2f %8.2f %8.2f %8.2f%n", page, stats.count(), stats.errors(),
+                stats.count() * 1000.0 / elapsedMillis, stats.percentile(0.5), stats.percentile(0.95),
+                stats.percentile(0.99), stats.percentile(0.999), stats.max());
+    }
+
+    private static void drain(HttpURLConnection connection) throws IOException {
+        InputStream body = connection.getResponseCode() >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (null != body) {
+            try (InputStream in = body) {
+                ByteStreams.exhaust(in);
+            }
+        }
+    }
+
+    /**
+     * Logs in with one of the generated accounts, then requests a random page
+     * at a time until the end of the run.
+     */
+    private class VirtualUser {
+        private String cookie;
+
+        void run(long startAt, long end) {
+            try {
+                Thread.sleep(Math.max(0, startAt - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            active.incrementAndGet();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            String email = "user" + random.nextInt(userIds.size()) + "@example.com";
+            send("login", "/login", "user_name=" + encode(email) + "&password=" + encode(PASSWORD));
+            long think = option("think");
+            while (System.currentTimeMillis() < end) {
+                switch (random.nextInt(3)) {
+                    case 0:
+                        send("users", "/users?page=" + (1 + random.nextInt(1 + userIds.size() / 20)), null);
+                        break;
+                    case 1:
+                        send("rockets", "/rockets?page=" + (1 + random.nextInt(10)), null);
+                        break;
+                    default:
+                        send("user", "/user/" + userIds.get(random.nextInt(userIds.size())), null);
+                }
+                if (think > 0) {
+                    try {
+                        Thread.sleep(think);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            active.decrementAndGet();
+        }
+
+        // A GET, or a form POST when there is a form; redirects count as successes
+        private void send(String page, String path, String form) {
+            long start = System.nanoTime();
+            boolean failed;
+            try {
+                HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+                connection.setInstanceFollowRedirects(false);
+                if (null != cookie) {
+                    connection.setRequestProperty("Cookie", cookie);
+                }
+                if (null != form) {
+                    connection.setRequestMethod("POST");
+                    connection.setDoOutput(true);
+                    connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+                    try (OutputStream out = connection.getOutputStream()) {
+                        out.write(form.getBytes(StandardCharsets.UTF_8));
+                    }
+                }
+                failed = connection.getResponseCode() >= 400;
+                String setCookie = connection.getHeaderField("Set-Cookie");
+                if (null != setCookie) {
+                    cookie = setCookie.split(";", 2)[0];
+                }
+                drain(connection);
+            } catch (IOException e) {
+                failed = true;
+            }
+            long nanos = System.nanoTime() - start;
+            stats.get(page).record(nanos, failed);
+            all.record(nanos, failed);
+        }
+
+        private String encode(String value) {
+            try {
+                return URLEncoder.encode(value, "UTF-8");
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static class Stats {
+        private final Histogram latencies = new Histogram();
+        private final LongAdder errors = new LongAdder();
+
+        void record(long nanos, boolean failed) {
+            latencies.record(nanos);
+            if (failed) {
+                errors.increment();
+            }
+        }
+
+        long count() {
+            return latencies.getCount();
+        }
+
+        long errors() {
+            return errors.sum();
+        }
+
+        // In milliseconds
+        double percentile(double quantile) {
+            return latencies.getValueAtQuantile(quantile) / 1e6;
+        }
+
+        double max() {
+            return latencies.getMax() / 1e6;
+        }
+    }
+}